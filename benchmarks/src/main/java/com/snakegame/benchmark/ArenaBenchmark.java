@@ -0,0 +1,56 @@
+package com.snakegame.benchmark;
+
+import com.snakegame.arena.Arena;
+import com.snakegame.arena.ArenaStrategy;
+import com.snakegame.arena.GreedyArenaStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a tick of an arena with many greedy snakes, as many apples, and respawning on,
+ * after a warm-up that lets the snakes grow and start colliding.
+ *
+ * @author Alessandro Sorbara
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArenaBenchmark {
+
+    private static final int WARM_UP_TICKS = 1000;
+
+    @Param({"100", "1000"})
+    public int snakes;
+
+    @Param({"256", "1024"})
+    public int boardSize;
+
+    private Arena arena;
+
+    /**
+     * Fills the arena and plays the warm-up ticks.
+     */
+    @Setup
+    public void setUp() {
+        arena = new Arena(boardSize, boardSize, snakes, new Random(42));
+        ArenaStrategy strategy = new GreedyArenaStrategy();
+        for (int i = 0; i < snakes; i++) arena.addSnake(strategy);
+        for (int i = 0; i < WARM_UP_TICKS; i++) arena.tick();
+    }
+
+    /**
+     * Plays one tick.
+     *
+     * @return the arena, so the tick is not optimized away
+     */
+    @Benchmark
+    public Arena tick() {
+        arena.tick();
+        return arena;
+    }
+}
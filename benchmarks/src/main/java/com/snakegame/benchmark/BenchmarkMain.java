@@ -0,0 +1,31 @@
+package com.snakegame.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark module.
+ * Accepts the usual JMH command line (benchmark regexes, -p parameters, -wi, -i, ...)
+ * and always attaches the GC profiler, so every run reports allocation rates next to the timings.
+ *
+ * @author Alessandro Sorbara
+ */
+public class BenchmarkMain {
+
+    /**
+     * Runs the selected benchmarks, or all of them if none is selected.
+     *
+     * @param args JMH command-line options
+     * @throws CommandLineOptionException if the options cannot be parsed
+     * @throws RunnerException if a benchmark fails
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class);
+        new Runner(options.build()).run();
+    }
+}
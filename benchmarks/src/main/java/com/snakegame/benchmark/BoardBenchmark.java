@@ -0,0 +1,60 @@
+package com.snakegame.benchmark;
+
+import com.snakegame.model.Board;
+import com.snakegame.model.Direction;
+import com.snakegame.model.GameState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full tick of Board.moveSnake, including the fail check, apple eating and spawning.
+ * The snake starts at the given length and moves along a Hamiltonian cycle; it grows whenever it
+ * crosses the apple, and the board is reset to the starting position once the game is won.
+ *
+ * @author Alessandro Sorbara
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    @Param({"16", "64", "256", "1024"})
+    public int boardSize;
+
+    @Param({"16", "1024", "65536"})
+    public int length;
+
+    private Board board;
+    private Direction[] directions;
+    private int[] body;
+
+    /**
+     * Builds the board and lays the snake along the cycle.
+     */
+    @Setup
+    public void setUp() {
+        int[] cycle = Positions.cycle(boardSize, boardSize);
+        directions = Positions.directions(cycle, boardSize);
+        body = Positions.body(cycle, Positions.clamp(length, cycle.length));
+        board = new Board(boardSize, boardSize, new Random(42));
+        board.resetBoard(body, body.length);
+    }
+
+    /**
+     * Advances the game by one tick, restarting it if it has ended.
+     *
+     * @return the current score
+     */
+    @Benchmark
+    public int moveSnake() {
+        GameState state = board.getGameState();
+        if (state.isGameOver() || state.isGameWon()) board.resetBoard(body, body.length);
+        board.moveSnake(directions[board.getSnake().headCell()]);
+        return state.getScore();
+    }
+}
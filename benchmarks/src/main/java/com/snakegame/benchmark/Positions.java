@@ -0,0 +1,81 @@
+package com.snakegame.benchmark;
+
+import com.snakegame.model.Direction;
+
+/**
+ * Builds reproducible snake positions for the benchmarks.
+ * Snakes are laid along a Hamiltonian cycle of the board and move forward along it,
+ * so they can run forever at a constant length without ever colliding.
+ *
+ * @author Alessandro Sorbara
+ */
+final class Positions {
+
+    private Positions() {}
+
+    /**
+     * Returns the cells of a Hamiltonian cycle of a board with an even number of rows, in traversal order.
+     * The cycle snakes through the rows over columns 1 to width - 1 and comes back up along column 0.
+     *
+     * @param width the number of columns of the board
+     * @param height the number of rows of the board, which must be even
+     * @return the packed cell indices of the cycle
+     */
+    static int[] cycle(int width, int height) {
+        if (height % 2 != 0) throw new IllegalArgumentException("Height must be even: " + height);
+
+        int[] cycle = new int[width * height];
+        int n = 0;
+        for (int y = 0; y < height; y++) {
+            if (y % 2 == 0) for (int x = 1; x < width; x++) cycle[n++] = y * width + x;
+            else for (int x = width - 1; x >= 1; x--) cycle[n++] = y * width + x;
+        }
+        for (int y = height - 1; y >= 0; y--) cycle[n++] = y * width;
+        return cycle;
+    }
+
+    /**
+     * Returns, for every cell, the direction that leads to the next cell of the cycle.
+     *
+     * @param cycle the cells of the cycle, in traversal order
+     * @param width the number of columns of the board
+     * @return the directions indexed by packed cell index
+     */
+    static Direction[] directions(int[] cycle, int width) {
+        Direction[] directions = new Direction[cycle.length];
+        for (int i = 0; i < cycle.length; i++) {
+            int from = cycle[i];
+            int to = cycle[(i + 1) % cycle.length];
+            if (to == from + 1) directions[from] = Direction.RIGHT;
+            else if (to == from - 1) directions[from] = Direction.LEFT;
+            else if (to == from + width) directions[from] = Direction.DOWN;
+            else directions[from] = Direction.UP;
+        }
+        return directions;
+    }
+
+    /**
+     * Returns the body of a snake of the given length whose head lies on the last cell of the cycle,
+     * head first, so that it keeps moving forward along the cycle.
+     *
+     * @param cycle the cells of the cycle, in traversal order
+     * @param length the number of segments, at most the length of the cycle
+     * @return the packed cell indices of the body, head first
+     */
+    static int[] body(int[] cycle, int length) {
+        int[] body = new int[length];
+        for (int i = 0; i < length; i++) body[i] = cycle[length - 1 - i];
+        return body;
+    }
+
+    /**
+     * Clamps a requested snake length so that it leaves room for the apple and the move on the given board.
+     *
+     * @param length the requested length
+     * @param area the number of cells of the board
+     * @return the usable length
+     */
+    static int clamp(int length, int area) {
+        return Math.max(2, Math.min(length, area / 2));
+    }
+}
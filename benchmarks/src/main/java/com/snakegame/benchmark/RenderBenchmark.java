@@ -0,0 +1,71 @@
+package com.snakegame.benchmark;
+
+import com.snakegame.model.Board;
+import com.snakegame.view.GamePanel;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full paint of the GamePanel into an offscreen BufferedImage, in headless mode.
+ * Board sizes are kept small since the image grows with the board area.
+ *
+ * @author Alessandro Sorbara
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+
+    @Param({"16", "32", "64"})
+    public int boardSize;
+
+    @Param({"16", "256", "1024"})
+    public int length;
+
+    private GamePanel panel;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    /**
+     * Builds the board, lays the snake along the cycle and sizes the panel.
+     */
+    @Setup
+    public void setUp() {
+        int[] cycle = Positions.cycle(boardSize, boardSize);
+        int snakeLength = Positions.clamp(length, cycle.length);
+
+        Board board = new Board(boardSize, boardSize, new Random(42));
+        board.resetBoard(Positions.body(cycle, snakeLength), snakeLength);
+
+        panel = new GamePanel(board);
+        panel.setSize(panel.getPreferredSize());
+        image = new BufferedImage(panel.getWidth(), panel.getHeight(), BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+    }
+
+    /**
+     * Releases the graphics context.
+     */
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    /**
+     * Paints the whole panel.
+     *
+     * @return the image painted into
+     */
+    @Benchmark
+    public BufferedImage paint() {
+        panel.paint(graphics);
+        return image;
+    }
+}
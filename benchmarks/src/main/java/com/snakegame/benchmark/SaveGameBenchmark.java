@@ -0,0 +1,142 @@
+package com.snakegame.benchmark;
+
+import com.snakegame.model.Board;
+import com.snakegame.model.BoardSnapshot;
+import com.snakegame.model.GameRandom;
+import com.snakegame.save.SaveGame;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures saving and loading a game with a snake of up to a million segments on a 1024 x 1024 board:
+ * encoding a snapshot, writing it to an open channel, saving it to a file (forced to the device and moved over
+ * the previous save, as a checkpoint does), reading it back, decoding the snake and restoring a board from the file.
+ *
+ * @author Alessandro Sorbara
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaveGameBenchmark {
+
+    private static final int SIZE = 1024;
+
+    @Param({"1000", "1000000"})
+    public int segments;
+
+    private Board board;
+    private BoardSnapshot snapshot;
+    private SaveGame save;
+    private Path file;
+    private Path scratch;
+    private FileChannel channel;
+
+    /**
+     * Lays the snake along a Hamiltonian cycle of the board and saves it once.
+     *
+     * @throws IOException if the save cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        int[] cycle = Positions.cycle(SIZE, SIZE);
+        board = new Board(SIZE, SIZE, new GameRandom(42));
+        board.resetBoard(Positions.body(cycle, segments), segments);
+        snapshot = board.takeSnapshot();
+        save = SaveGame.of(snapshot);
+
+        file = Files.createTempFile("snake", ".save");
+        save.save(file);
+        scratch = Files.createTempFile("snake", ".bin");
+        channel = FileChannel.open(scratch, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Closes and deletes the files.
+     *
+     * @throws IOException if a file cannot be closed or deleted
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(scratch);
+    }
+
+    /**
+     * Encodes the snapshot, as the checkpoint thread does.
+     *
+     * @return the save
+     */
+    @Benchmark
+    public SaveGame encode() {
+        return SaveGame.of(snapshot);
+    }
+
+    /**
+     * Writes the encoded save to an open channel, leaving it in the page cache.
+     *
+     * @return the channel
+     * @throws IOException if the channel cannot be written
+     */
+    @Benchmark
+    public FileChannel write() throws IOException {
+        channel.position(0);
+        save.write(channel);
+        return channel;
+    }
+
+    /**
+     * Encodes the snapshot and saves it to the file, forced to the device.
+     *
+     * @return the save
+     * @throws IOException if the file cannot be written
+     */
+    @Benchmark
+    public SaveGame save() throws IOException {
+        SaveGame checkpoint = SaveGame.of(snapshot);
+        checkpoint.save(file);
+        return checkpoint;
+    }
+
+    /**
+     * Reads and checks the save from the file.
+     *
+     * @return the save
+     * @throws IOException if the file cannot be read
+     */
+    @Benchmark
+    public SaveGame load() throws IOException {
+        return SaveGame.load(file);
+    }
+
+    /**
+     * Decodes the cells of the snake from its direction chain.
+     *
+     * @return the cells
+     */
+    @Benchmark
+    public int[] decode() {
+        return save.cells();
+    }
+
+    /**
+     * Reads the save from the file and restores the board from it.
+     *
+     * @return the board
+     * @throws IOException if the file cannot be read
+     */
+    @Benchmark
+    public Board restore() throws IOException {
+        SaveGame.load(file).restore(board);
+        return board;
+    }
+}
@@ -0,0 +1,105 @@
+package com.snakegame.benchmark;
+
+import com.snakegame.scores.ScoreLog;
+import com.snakegame.scores.ScoreRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the queries of a ScoreLog holding millions of records: the ten best records, the percentile rank
+ * of a score and the score at a percentile. The log is filled once, in a temporary file, with scores spread
+ * as those of the greedy autopilot on the default board.
+ *
+ * @author Alessandro Sorbara
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreLogBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({"10000000"})
+    public long records;
+
+    private Path file;
+    private ScoreLog scores;
+    private int[] queryScores;
+    private double[] queryPercentiles;
+    private int query;
+
+    /**
+     * Fills a temporary log and draws the scores and percentiles queried.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("scores", ".log");
+        Files.delete(file);
+        scores = new ScoreLog(file);
+
+        SplittableRandom random = new SplittableRandom(42);
+        for (long i = 0; i < records; i++) {
+            int score = Math.min(252, (int) Math.abs(random.nextGaussian() * 40 + 60));
+            scores.append(i, random.nextLong(), 17, 15, score, score * 12, score == 252);
+        }
+
+        queryScores = new int[QUERIES];
+        queryPercentiles = new double[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queryScores[i] = random.nextInt(256);
+            queryPercentiles[i] = random.nextDouble() * 100;
+        }
+    }
+
+    /**
+     * Closes and deletes the log.
+     *
+     * @throws IOException if the log cannot be closed or deleted
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        scores.close();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Reads the ten best records.
+     *
+     * @return the records, so the query is not optimized away
+     */
+    @Benchmark
+    public List<ScoreRecord> top10() {
+        return scores.top(10);
+    }
+
+    /**
+     * Computes the percentile rank of a score.
+     *
+     * @return the rank, so the query is not optimized away
+     */
+    @Benchmark
+    public double percentileOf() {
+        return scores.percentileOf(queryScores[query++ & (QUERIES - 1)]);
+    }
+
+    /**
+     * Finds the score at a percentile.
+     *
+     * @return the score, so the query is not optimized away
+     */
+    @Benchmark
+    public int scoreAt() {
+        return scores.scoreAt(queryPercentiles[query++ & (QUERIES - 1)]);
+    }
+}
@@ -0,0 +1,52 @@
+package com.snakegame.benchmark;
+
+import com.snakegame.model.Direction;
+import com.snakegame.model.Snake;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Snake.move for snakes of increasing length on boards of increasing size.
+ * The snake moves forward along a Hamiltonian cycle, so its length stays constant.
+ *
+ * @author Alessandro Sorbara
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnakeBenchmark {
+
+    @Param({"16", "64", "256", "1024"})
+    public int boardSize;
+
+    @Param({"16", "1024", "65536"})
+    public int length;
+
+    private Snake snake;
+    private Direction[] directions;
+
+    /**
+     * Lays the snake along the cycle.
+     */
+    @Setup
+    public void setUp() {
+        int[] cycle = Positions.cycle(boardSize, boardSize);
+        directions = Positions.directions(cycle, boardSize);
+        snake = new Snake(boardSize, boardSize);
+        snake.initializeSnake(Positions.body(cycle, Positions.clamp(length, cycle.length)), Positions.clamp(length, cycle.length));
+    }
+
+    /**
+     * Moves the snake one cell forward.
+     *
+     * @return the vacated cell
+     */
+    @Benchmark
+    public int move() {
+        return snake.move(directions[snake.headCell()]);
+    }
+}
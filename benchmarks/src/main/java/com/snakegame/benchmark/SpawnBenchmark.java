@@ -0,0 +1,54 @@
+package com.snakegame.benchmark;
+
+import com.snakegame.model.FreeCells;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the random pick of a free cell that Board.spawnApple performs, on boards filled by the snake
+ * at increasing ratios.
+ *
+ * @author Alessandro Sorbara
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpawnBenchmark {
+
+    @Param({"16", "256", "4096"})
+    public int boardSize;
+
+    @Param({"0.1", "0.5", "0.9", "0.999"})
+    public double fillRatio;
+
+    private FreeCells freeCells;
+    private Random random;
+
+    /**
+     * Takes a random fraction of the cells, leaving at least one free.
+     */
+    @Setup
+    public void setUp() {
+        int area = boardSize * boardSize;
+        random = new Random(42);
+        freeCells = new FreeCells(area);
+
+        int taken = Math.min(area - 1, (int) (area * fillRatio));
+        while (freeCells.size() > area - taken) freeCells.remove(random.nextInt(area));
+    }
+
+    /**
+     * Picks a random free cell.
+     *
+     * @return the picked cell
+     */
+    @Benchmark
+    public int spawn() {
+        return freeCells.random(random);
+    }
+}
@@ -0,0 +1,40 @@
+package com.snakegame.benchmark;
+
+import com.snakegame.view.utils.SpriteLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures SpriteLoader.loadSprites and SpriteLoader.loadAtlas, which decode every sprite from the resources.
+ * It depends neither on the board nor on the snake, so it takes no parameters.
+ *
+ * @author Alessandro Sorbara
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SpriteLoaderBenchmark {
+
+    /**
+     * Loads all the sprites.
+     *
+     * @return the loaded sprites
+     */
+    @Benchmark
+    public Object loadSprites() {
+        return SpriteLoader.loadSprites();
+    }
+
+    /**
+     * Loads all the sprites and packs them into the atlas.
+     *
+     * @return the loaded atlas
+     */
+    @Benchmark
+    public Object loadAtlas() {
+        return SpriteLoader.loadAtlas();
+    }
+}
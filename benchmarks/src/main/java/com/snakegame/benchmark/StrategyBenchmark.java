@@ -0,0 +1,66 @@
+package com.snakegame.benchmark;
+
+import com.snakegame.ai.DirectionStrategy;
+import com.snakegame.ai.Strategies;
+import com.snakegame.model.Board;
+import com.snakegame.model.Direction;
+import com.snakegame.model.GameRandom;
+import com.snakegame.model.GameState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the decisions per second of the built-in strategies, each decision followed by the move it picked,
+ * over whole games played back to back. Win rates are measured by the BatchRunner, with the strategy name as last argument.
+ *
+ * @author Alessandro Sorbara
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StrategyBenchmark {
+
+    @Param({"greedy", "bfs", "astar", "hamiltonian"})
+    public String strategy;
+
+    @Param({"16", "32", "64"})
+    public int boardSize;
+
+    private Board board;
+    private GameState state;
+    private DirectionStrategy pilot;
+    private long maxTicks;
+    private long ticks;
+
+    /**
+     * Creates the board and the strategy.
+     */
+    @Setup
+    public void setUp() {
+        board = new Board(boardSize, boardSize, new GameRandom(42));
+        state = board.getGameState();
+        pilot = Strategies.named(strategy).get();
+        maxTicks = (long) boardSize * boardSize * boardSize * boardSize;
+    }
+
+    /**
+     * Picks and plays one move, starting a new game when the previous one ended or ran too long.
+     *
+     * @return the direction picked
+     */
+    @Benchmark
+    public Direction decide() {
+        if (state.isGameOver() || state.isGameWon() || ticks == maxTicks) {
+            board.resetBoard();
+            ticks = 0;
+        }
+        Direction direction = pilot.nextDirection(board);
+        board.moveSnake(direction);
+        ticks++;
+        return direction;
+    }
+}
@@ -0,0 +1,80 @@
+package com.snakegame.benchmark;
+
+import com.snakegame.simulation.VectorEnv;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the environment steps per second of a VectorEnv on the default board, with random actions
+ * (so many episodes end and are reset, as early in training), without observations or writing them as floats or bytes.
+ * Each invocation steps every environment once; the score is reported per environment step.
+ *
+ * @author Alessandro Sorbara
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(VectorEnvBenchmark.ENVS)
+public class VectorEnvBenchmark {
+
+    static final int ENVS = 4096;
+    private static final int ACTION_ROWS = 64;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"none", "float", "bytes"})
+    public String observation;
+
+    private VectorEnv env;
+    private int[][] actions;
+    private float[] floats;
+    private ByteBuffer bytes;
+    private int row;
+
+    /**
+     * Creates the environments, the observation buffers and the random actions.
+     */
+    @Setup
+    public void setUp() {
+        env = new VectorEnv(ENVS, 17, 15, 42, threads);
+        floats = new float[ENVS * env.getObservationSize()];
+        bytes = ByteBuffer.allocateDirect(ENVS * env.getObservationSize());
+
+        Random random = new Random(42);
+        actions = new int[ACTION_ROWS][ENVS];
+        for (int[] rowActions : actions) {
+            for (int i = 0; i < ENVS; i++) rowActions[i] = random.nextInt(4);
+        }
+    }
+
+    /**
+     * Shuts down the worker threads.
+     */
+    @TearDown
+    public void tearDown() {
+        env.close();
+    }
+
+    /**
+     * Steps every environment once.
+     *
+     * @return the environments, so the step is not optimized away
+     */
+    @Benchmark
+    public VectorEnv step() {
+        int[] next = actions[row++ & (ACTION_ROWS - 1)];
+        switch (observation) {
+            case "float" -> env.step(next, floats);
+            case "bytes" -> env.step(next, bytes);
+            default -> env.step(next);
+        }
+        return env;
+    }
+}
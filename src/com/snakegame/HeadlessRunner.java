@@ -0,0 +1,134 @@
+package com.snakegame;
+
+import com.snakegame.ai.DirectionStrategy;
+import com.snakegame.ai.GreedyStrategy;
+import com.snakegame.metrics.Counter;
+import com.snakegame.metrics.LatencyHistogram;
+import com.snakegame.metrics.MetricsRegistry;
+import com.snakegame.model.Board;
+import com.snakegame.model.GameRandom;
+import com.snakegame.model.GameState;
+import com.snakegame.scores.ScoreLog;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Headless entry point for the Snake game.
+ * Plays games back to back on a single thread without any window or sound, as fast as the CPU allows,
+ * with the snake driven by a GreedyStrategy, and reports the throughput.
+ * With a metrics file, every tick and apple spawn is timed and the metrics are dumped when the run ends.
+ * With a score log, the result of every game is appended to it, with the seed of the run.
+ *
+ * @author Alessandro Sorbara
+ */
+public class HeadlessRunner {
+
+    /**
+     * Runs the requested number of games and prints ticks/sec, games/sec and the mean score.
+     *
+     * @param args optional number of games (default 10000), board width and height (default 17 x 15) and seed;
+     *             {@code --metrics=<file>} anywhere dumps the tick and spawn times to the file,
+     *             as JSON if it ends with .json and as CSV otherwise, and {@code --scores=<file>} appends every result
+     *             to a score log and prints its best and median scores
+     */
+    public static void main(String[] args) {
+        List<String> positional = new ArrayList<>();
+        Path metricsFile = null;
+        Path scoresFile = null;
+        for (String arg : args) {
+            if (arg.startsWith("--metrics=")) metricsFile = Path.of(arg.substring("--metrics=".length()));
+            else if (arg.startsWith("--scores=")) scoresFile = Path.of(arg.substring("--scores=".length()));
+            else positional.add(arg);
+        }
+
+        int games = positional.size() >= 1 ? Integer.parseInt(positional.get(0)) : 10_000;
+        int width = positional.size() >= 3 ? Integer.parseInt(positional.get(1)) : Board.DEFAULT_WIDTH;
+        int height = positional.size() >= 3 ? Integer.parseInt(positional.get(2)) : Board.DEFAULT_HEIGHT;
+        long seed = positional.size() >= 4 ? Long.parseLong(positional.get(3)) : System.nanoTime();
+
+        Board board = new Board(width, height, new GameRandom(seed));
+        DirectionStrategy strategy = new GreedyStrategy();
+
+        MetricsRegistry metrics = metricsFile == null ? null : new MetricsRegistry();
+        LatencyHistogram tickTimes = metrics == null ? null : metrics.histogram(MetricsRegistry.TICK_TIME);
+        Counter tickCount = metrics == null ? null : metrics.counter(MetricsRegistry.TICKS);
+        board.setMetrics(metrics);
+
+        ScoreLog scores = null;
+        if (scoresFile != null) {
+            try {
+                scores = new ScoreLog(scoresFile);
+            } catch (IOException e) {
+                System.err.println("Cannot open score log " + scoresFile + ": " + e.getMessage());
+            }
+        }
+
+        long ticks = 0;
+        long scoreSum = 0;
+        long start = System.nanoTime();
+
+        for (int game = 0; game < games; game++) {
+            board.resetBoard();
+            GameState state = board.getGameState();
+            long gameStart = ticks;
+
+            while (!state.isGameOver() && !state.isGameWon()) {
+                if (tickTimes == null) {
+                    board.moveSnake(strategy.nextDirection(board));
+                } else {
+                    long tickStart = System.nanoTime();
+                    board.moveSnake(strategy.nextDirection(board));
+                    tickTimes.record(System.nanoTime() - tickStart);
+                    tickCount.increment();
+                }
+                ticks++;
+            }
+
+            scoreSum += state.getScore();
+            if (scores != null) record(scores, seed, board, (int) (ticks - gameStart));
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games on %dx%d (seed %d) in %.3f s%n", games, width, height, seed, seconds);
+        System.out.printf("%,.0f ticks/sec, %,.0f games/sec, mean score %.2f%n", ticks / seconds, games / seconds, (double) scoreSum / games);
+
+        if (metrics != null) {
+            try {
+                metrics.dump(metricsFile);
+                System.out.println("metrics written to " + metricsFile);
+            } catch (IOException e) {
+                System.err.println("Cannot write metrics to " + metricsFile + ": " + e.getMessage());
+            }
+        }
+
+        if (scores != null) {
+            System.out.printf("%,d scores in %s: best %d, median %d, p99 %d%n", scores.size(), scoresFile,
+                    scores.getBestScore(), scores.scoreAt(50), scores.scoreAt(99));
+            try {
+                scores.close();
+            } catch (IOException e) {
+                System.err.println("Cannot close score log " + scoresFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Appends the result of the game that just ended to the score log, reporting a failure to grow it.
+     *
+     * @param scores the score log
+     * @param seed the seed of the run
+     * @param board the board of the finished game
+     * @param ticks the number of moves played
+     */
+    private static void record(ScoreLog scores, long seed, Board board, int ticks) {
+        GameState state = board.getGameState();
+        try {
+            scores.append(System.currentTimeMillis(), seed, board.getWidth(), board.getHeight(), state.getScore(), ticks, state.isGameWon());
+        } catch (IOException e) {
+            System.err.println("Cannot record score: " + e.getMessage());
+        }
+    }
+}
@@ -1,8 +1,21 @@
 package com.snakegame;
 
+import com.snakegame.ai.Strategies;
 import com.snakegame.view.*;
 import com.snakegame.controller.*;
+import com.snakegame.diagnostics.GameEvents;
+import com.snakegame.metrics.MetricsRegistry;
 import com.snakegame.model.Board;
+import com.snakegame.model.GameRandom;
+import com.snakegame.save.Checkpointer;
+import com.snakegame.scores.ScoreLog;
+import com.snakegame.view.utils.AssetManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Entry point for the Snake game.
@@ -12,12 +25,105 @@ public class SnakeGame {
 
     /**
      * The main method to launch the Snake game.
+     * Assets start loading in the background right after the arguments are read, so that they decode while the rest
+     * of the game is set up; a Flight Recorder recording, if requested, starts before them so that it covers their decoding.
      *
-     * @param args command-line arguments (not used)
+     * @param args optional board width and height, in cells (defaults to 17 x 15), ticks per second (defaults to 10)
+     *             and file to save the replay of each game to; {@code --ai=<strategy>} anywhere lets one of the
+     *             built-in strategies play instead of the keyboard, and {@code --metrics=<file>} dumps the metrics
+     *             to the file when the game exits, as JSON if it ends with .json and as CSV otherwise;
+     *             {@code --jfr=<file>} records the game events and the snake.jfc profile to the file, and
+     *             {@code --scores=<file>} appends the result of every game to a persistent score log;
+     *             {@code --save=<file>} resumes the game saved in the file and checkpoints the game in progress to it
      */
     public static void main(String[] args) {
-        Board model = new Board();
-        GameFrame view = new GameFrame(model);
-        Controller controller = new Controller(model, view);
+        List<String> positional = new ArrayList<>();
+        String ai = null;
+        String metricsFile = null;
+        String jfrFile = null;
+        String scoresFile = null;
+        String saveFile = null;
+        for (String arg : args) {
+            if (arg.startsWith("--ai=")) ai = arg.substring("--ai=".length());
+            else if (arg.startsWith("--metrics=")) metricsFile = arg.substring("--metrics=".length());
+            else if (arg.startsWith("--jfr=")) jfrFile = arg.substring("--jfr=".length());
+            else if (arg.startsWith("--scores=")) scoresFile = arg.substring("--scores=".length());
+            else if (arg.startsWith("--save=")) saveFile = arg.substring("--save=".length());
+            else positional.add(arg);
+        }
+
+        if (jfrFile != null) {
+            try {
+                GameEvents.startRecording(Path.of(jfrFile));
+            } catch (IOException | ParseException e) {
+                System.err.println("Cannot start flight recording to " + jfrFile + ": " + e.getMessage());
+            }
+        }
+        AssetManager assets = new AssetManager();
+
+        int width = positional.size() >= 2 ? Integer.parseInt(positional.get(0)) : Board.DEFAULT_WIDTH;
+        int height = positional.size() >= 2 ? Integer.parseInt(positional.get(1)) : Board.DEFAULT_HEIGHT;
+        double ticksPerSecond = positional.size() >= 3 ? Double.parseDouble(positional.get(2)) : Controller.DEFAULT_TICKS_PER_SECOND;
+
+        Board model = new Board(width, height, new GameRandom());
+        GameFrame view = new GameFrame(model, assets);
+        Controller controller = new Controller(model, view, ticksPerSecond);
+        if (positional.size() >= 4) controller.setReplayFile(Path.of(positional.get(3)));
+        if (ai != null) controller.setAutopilot(Strategies.named(ai).get());
+        if (metricsFile != null) dumpOnExit(controller.getMetrics(), Path.of(metricsFile));
+        if (scoresFile != null) controller.setScoreLog(openScores(Path.of(scoresFile)));
+        if (saveFile != null) {
+            controller.setSaveFile(Path.of(saveFile));
+            closeOnExit(controller.getCheckpointer());
+        }
+    }
+
+    /**
+     * Registers a shutdown hook closing a checkpointer when the game exits, which saves the game one last time.
+     *
+     * @param checkpointer the checkpointer to close
+     */
+    static void closeOnExit(Checkpointer checkpointer) {
+        Runtime.getRuntime().addShutdownHook(new Thread(checkpointer::close, "checkpoint-close"));
+    }
+
+    /**
+     * Opens a score log, prints its best score and registers a shutdown hook closing it when the game exits.
+     *
+     * @param file the log file
+     * @return the score log, or null if it cannot be opened
+     */
+    static ScoreLog openScores(Path file) {
+        try {
+            ScoreLog scores = new ScoreLog(file);
+            System.out.printf("%,d scores in %s, best %d%n", scores.size(), file, scores.getBestScore());
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    scores.close();
+                } catch (IOException e) {
+                    System.err.println("Cannot close score log " + file + ": " + e.getMessage());
+                }
+            }, "scores-close"));
+            return scores;
+        } catch (IOException e) {
+            System.err.println("Cannot open score log " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Registers a shutdown hook writing the metrics to a file when the game exits.
+     *
+     * @param metrics the metrics to dump
+     * @param file the file to write
+     */
+    static void dumpOnExit(MetricsRegistry metrics, Path file) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                metrics.dump(file);
+            } catch (IOException e) {
+                System.err.println("Cannot write metrics to " + file + ": " + e.getMessage());
+            }
+        }, "metrics-dump"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,23 @@
+package com.snakegame.ai;
+
+import com.snakegame.model.Board;
+import com.snakegame.model.Direction;
+
+/**
+ * Chooses the direction of the snake's next move from the current state of the board.
+ * Strategies are polled once per tick in place of the keyboard; they may keep internal state,
+ * so each board should be driven by its own instance.
+ *
+ * @author Alessandro Sorbara
+ */
+@FunctionalInterface
+public interface DirectionStrategy {
+
+    /**
+     * Returns the direction the snake should move in on the next tick.
+     *
+     * @param board the board to inspect
+     * @return the direction of the next move
+     */
+    Direction nextDirection(Board board);
+}
@@ -0,0 +1,48 @@
+package com.snakegame.ai;
+
+import com.snakegame.model.Board;
+import com.snakegame.model.Direction;
+import com.snakegame.model.Point;
+import com.snakegame.model.Snake;
+
+/**
+ * Strategy that heads straight for the apple, picking the move that brings the head closest to it
+ * among those that do not cause an immediate collision.
+ * It is cheap and allocation-free, but it can trap itself in its own body.
+ *
+ * @author Alessandro Sorbara
+ */
+public class GreedyStrategy implements DirectionStrategy {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Returns the safe direction closest to the apple, or LEFT if every move is fatal.
+     *
+     * @param board the board to inspect
+     * @return the direction of the next move
+     */
+    @Override
+    public Direction nextDirection(Board board) {
+        Snake snake = board.getSnake();
+        Point apple = board.getApple().getPosition();
+        int width = board.getWidth();
+
+        Direction best = Direction.LEFT;
+        int bestDistance = Integer.MAX_VALUE;
+
+        for (Direction direction : DIRECTIONS) {
+            int next = snake.nextCell(direction);
+            if (next < 0) continue;
+            if (snake.occupies(next) && (snake.isGrowing() || next != snake.tailCell())) continue;
+
+            int distance = Math.abs(next % width - apple.getX()) + Math.abs(next / width - apple.getY());
+            if (distance < bestDistance) {
+                best = direction;
+                bestDistance = distance;
+            }
+        }
+
+        return best;
+    }
+}
@@ -0,0 +1,210 @@
+package com.snakegame.ai;
+
+import com.snakegame.model.Board;
+import com.snakegame.model.Direction;
+import com.snakegame.model.Point;
+import com.snakegame.model.Snake;
+
+/**
+ * Strategy that follows a Hamiltonian cycle of the board, which visits every cell once and so always wins,
+ * taking shortcuts towards the apple while the snake is short.
+ * The cycle runs along the rows and back up the first column, or along the columns if the number of rows is odd;
+ * a board with an odd number of both rows and columns has no Hamiltonian cycle and is played by a PathfindingStrategy.
+ * Once the body lies along the cycle, from the tail up to the head, the cells ahead of the head up to the tail are free,
+ * so the head may jump ahead to any neighbor among them without breaking the order, as long as it stays a few cells
+ * away from the tail and does not overtake the apple. Shortcuts stop once the snake covers half of the board.
+ * The cycle is computed once per board size into an int array; decisions do not allocate.
+ *
+ * @author Alessandro Sorbara
+ */
+public class HamiltonianStrategy implements DirectionStrategy {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int SHORTCUT_MARGIN = 4;
+
+    private final PathfindingStrategy fallback = new PathfindingStrategy(PathfindingStrategy.Search.A_STAR);
+
+    private int width;
+    private int height;
+    private int cells;
+    private int[] order = new int[0];
+    private boolean cyclic;
+
+    private boolean aligned;
+    private int lastHead = -1;
+    private int lastTail = -1;
+    private int lastSize;
+
+    /**
+     * Returns the next move along the cycle, or a shortcut ahead of it.
+     * Until the body lies along the cycle, as at the start of a game, the cycle is only followed when its next cell is safe.
+     * A new game is detected when the head or the tail jumps, or the snake shrinks.
+     *
+     * @param board the board to inspect
+     * @return the direction of the next move
+     */
+    @Override
+    public Direction nextDirection(Board board) {
+        if (!prepare(board)) return fallback.nextDirection(board);
+
+        Snake snake = board.getSnake();
+        int head = snake.headCell();
+        int tail = snake.tailCell();
+        int size = snake.size();
+        if (size < lastSize || !adjacent(head, lastHead) || distance(lastTail, tail) > 1) aligned = false;
+        lastHead = head;
+        lastTail = tail;
+        lastSize = size;
+        if (!aligned) aligned = isAligned(snake);
+
+        Direction along = directionTo(head, successor(head));
+        if (!aligned) {
+            int next = snake.nextCell(along);
+            boolean safe = !snake.occupies(next) || (next == snake.tailCell() && !snake.isGrowing());
+            if (safe) return along;
+            Point apple = board.getApple().getPosition();
+            fallback.prepare(board, snake);
+            return fallback.roomiestMove(snake, snake.cellOf(apple.getX(), apple.getY()));
+        }
+
+        int allowed = 1;
+        if (2 * size < cells) {
+            Point apple = board.getApple().getPosition();
+            int toApple = distance(head, snake.cellOf(apple.getX(), apple.getY()));
+            int toTail = distance(head, tail);
+            allowed = Math.max(1, Math.min(toApple, toTail - SHORTCUT_MARGIN));
+        }
+
+        Direction best = along;
+        int bestJump = 1;
+        for (Direction direction : DIRECTIONS) {
+            int next = snake.nextCell(direction);
+            if (next < 0 || snake.occupies(next)) continue;
+
+            int jump = distance(head, next);
+            if (jump > bestJump && jump <= allowed) {
+                best = direction;
+                bestJump = jump;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Builds the cycle if the board size changed.
+     *
+     * @param board the board to inspect
+     * @return true if the board has a Hamiltonian cycle
+     */
+    private boolean prepare(Board board) {
+        if (board.getWidth() == width && board.getHeight() == height) return cyclic;
+
+        width = board.getWidth();
+        height = board.getHeight();
+        cells = width * height;
+        cyclic = height % 2 == 0 || width % 2 == 0;
+        aligned = false;
+        lastHead = -1;
+        lastTail = -1;
+        if (!cyclic) return false;
+
+        order = new int[cells];
+        boolean rows = height % 2 == 0;
+        int lanes = rows ? height : width;
+        int length = rows ? width : height;
+
+        int position = 0;
+        order[cellAt(rows, 0, 0)] = position++;
+        for (int lane = 0; lane < lanes; lane++) {
+            for (int i = 1; i < length; i++) {
+                int along = lane % 2 == 0 ? i : length - i;
+                order[cellAt(rows, along, lane)] = position++;
+            }
+        }
+        for (int lane = lanes - 1; lane > 0; lane--) order[cellAt(rows, 0, lane)] = position++;
+        return true;
+    }
+
+    /**
+     * Returns the cell at the given position along a lane of the cycle.
+     *
+     * @param rows true if the lanes are rows, false if they are columns
+     * @param along the position along the lane
+     * @param lane the index of the lane
+     * @return the packed cell index
+     */
+    private int cellAt(boolean rows, int along, int lane) {
+        return rows ? lane * width + along : along * width + lane;
+    }
+
+    /**
+     * Checks if the body lies along the cycle, each segment coming right after the previous one in cycle order
+     * from the tail up to the head.
+     *
+     * @param snake the snake to check
+     * @return true if the body follows the cycle
+     */
+    private boolean isAligned(Snake snake) {
+        int tail = snake.tailCell();
+        int previous = 0;
+        for (int i = snake.size() - 2; i >= 0; i--) {
+            int d = distance(tail, snake.cellAt(i));
+            if (d <= previous) return false;
+            previous = d;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of moves along the cycle from one cell to another.
+     *
+     * @param from the packed index of the starting cell
+     * @param to the packed index of the destination cell
+     * @return the distance along the cycle, in [0, cells)
+     */
+    private int distance(int from, int to) {
+        int d = order[to] - order[from];
+        return d < 0 ? d + cells : d;
+    }
+
+    /**
+     * Returns the cell following the given one along the cycle.
+     *
+     * @param cell the packed cell index
+     * @return the packed index of the next cell
+     */
+    private int successor(int cell) {
+        int x = cell % width, y = cell / width;
+        int target = order[cell] + 1 == cells ? 0 : order[cell] + 1;
+        if (x > 0 && order[cell - 1] == target) return cell - 1;
+        if (x < width - 1 && order[cell + 1] == target) return cell + 1;
+        if (y > 0 && order[cell - width] == target) return cell - width;
+        return cell + width;
+    }
+
+    /**
+     * Returns the direction leading from a cell to one of its neighbors.
+     *
+     * @param from the packed index of the starting cell
+     * @param to the packed index of the neighbor
+     * @return the direction of the move
+     */
+    private Direction directionTo(int from, int to) {
+        if (to == from - 1) return Direction.LEFT;
+        if (to == from + 1) return Direction.RIGHT;
+        return to < from ? Direction.UP : Direction.DOWN;
+    }
+
+    /**
+     * Checks if two cells are side by side.
+     *
+     * @param a the packed index of a cell
+     * @param b the packed index of another cell, or -1
+     * @return true if the cells are neighbors
+     */
+    private boolean adjacent(int a, int b) {
+        if (b < 0) return false;
+        int dx = Math.abs(a % width - b % width), dy = Math.abs(a / width - b / width);
+        return dx + dy == 1;
+    }
+}
@@ -0,0 +1,395 @@
+package com.snakegame.ai;
+
+import com.snakegame.model.Board;
+import com.snakegame.model.Direction;
+import com.snakegame.model.Point;
+import com.snakegame.model.Snake;
+
+/**
+ * Strategy that follows a shortest path to the apple, found by breadth-first search or A* with the Manhattan distance.
+ * The search knows when each segment moves out of the way: the segment i cells from the tail is gone after i + 1 moves,
+ * one more if the snake is growing, so paths may run through cells the body is about to leave.
+ * A path to the apple is only taken if, having eaten, the snake could still reach its own tail; otherwise the snake
+ * follows its tail, which keeps it alive until the apple becomes safe to reach.
+ * Every array is sized to the board once and reused on every decision, so decisions do not allocate.
+ *
+ * @author Alessandro Sorbara
+ */
+public class PathfindingStrategy implements DirectionStrategy {
+
+    /**
+     * The search algorithm used to reach the apple.
+     */
+    public enum Search {
+        BFS, A_STAR
+    }
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Search search;
+
+    private int width;
+    private int height;
+    private int stamp;
+    private int[] bodyStamps = new int[0];
+    private int[] freeAfter = new int[0];
+    private int seenStamp;
+    private int[] seenStamps = new int[0];
+    private int regionStamp;
+    private int[] regionStamps = new int[0];
+    private int[] distances = new int[0];
+    private byte[] firstMoves = new byte[0];
+    private int[] parents = new int[0];
+    private int[] path = new int[0];
+    private int[] queue = new int[0];
+    private long[] heap = new long[0];
+
+    /**
+     * Creates a strategy using the given search.
+     *
+     * @param search the search algorithm
+     */
+    public PathfindingStrategy(Search search) {
+        this.search = search;
+    }
+
+    /**
+     * Returns the first move of a shortest path to the apple if the snake can still reach its tail once it has eaten,
+     * otherwise the move following the tail the long way round, or as a last resort the move opening onto the largest region.
+     *
+     * @param board the board to inspect
+     * @return the direction of the next move
+     */
+    @Override
+    public Direction nextDirection(Board board) {
+        Snake snake = board.getSnake();
+        Point apple = board.getApple().getPosition();
+        int target = snake.cellOf(apple.getX(), apple.getY());
+        int head = snake.headCell();
+
+        prepare(board, snake);
+        if (search(head, target)) {
+            byte firstMove = firstMoves[target];
+            if (canReachTailAfter(snake, head, target)) return DIRECTIONS[firstMove];
+            prepare(board, snake);
+        }
+
+        Direction follow = followTail(snake);
+        return follow != null ? follow : roomiestMove(snake, target);
+    }
+
+    /**
+     * Returns the move from which the tail is reachable by the longest shortest path, which makes the snake
+     * take the long way around while it waits for the apple to become safe, instead of circling in place.
+     *
+     * @param snake the snake, whose position must have been prepared
+     * @return the direction of the move, or null if the tail cannot be reached
+     */
+    private Direction followTail(Snake snake) {
+        int tail = snake.tailCell();
+        Direction best = null;
+        int bestDistance = -1;
+
+        for (Direction direction : DIRECTIONS) {
+            int next = snake.nextCell(direction);
+            if (next < 0 || isBlocked(next, 1)) continue;
+            if (next == tail) {
+                if (best == null) best = direction;
+                continue;
+            }
+            if (search(next, tail) && distances[tail] > bestDistance) {
+                best = direction;
+                bestDistance = distances[tail];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Checks if, after following the path just found to the apple and eating it, the snake could reach its tail.
+     * The body at that point is made of the path, newest cell first, followed by the current body, cut to length.
+     * Overwrites the body stamps, so prepare must be called again before searching the current position.
+     *
+     * @param snake the snake
+     * @param head the head cell
+     * @param target the apple cell, reached by the last search
+     * @return true if the tail is reachable from the apple
+     */
+    private boolean canReachTailAfter(Snake snake, int head, int target) {
+        int size = snake.size() + (snake.isGrowing() ? 1 : 0);
+        int length = 0;
+        for (int cell = target; cell != head && length < size; cell = parents[cell]) path[length++] = cell;
+        for (int i = 0; length < size; i++) path[length++] = snake.cellAt(i);
+
+        stamp++;
+        for (int i = 0; i < size; i++) {
+            bodyStamps[path[i]] = stamp;
+            freeAfter[path[i]] = size - i + 1;
+        }
+        return search(target, path[size - 1]);
+    }
+
+    /**
+     * Returns the move opening onto the largest region of free cells, the one closest to the apple among equal regions,
+     * or LEFT if every move is fatal.
+     *
+     * @param snake the snake to move
+     * @param target the apple cell
+     * @return the direction of the next move
+     */
+    Direction roomiestMove(Snake snake, int target) {
+        int targetX = target % width, targetY = target / width;
+        Direction best = Direction.LEFT;
+        int bestRegion = -1;
+        int bestDistance = Integer.MAX_VALUE;
+
+        for (Direction direction : DIRECTIONS) {
+            int next = snake.nextCell(direction);
+            if (next < 0 || isBlocked(next, 1)) continue;
+
+            int region = regionSize(next, width * height);
+            int distance = manhattan(next, targetX, targetY);
+            if (region > bestRegion || (region == bestRegion && distance < bestDistance)) {
+                best = direction;
+                bestRegion = region;
+                bestDistance = distance;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Resizes the arrays if the board changed and records when each body cell becomes free.
+     * Must be called before any search on the current position.
+     *
+     * @param board the board to inspect
+     * @param snake the snake of the board
+     */
+    void prepare(Board board, Snake snake) {
+        if (board.getWidth() != width || board.getHeight() != height) {
+            width = board.getWidth();
+            height = board.getHeight();
+            int cells = width * height;
+            bodyStamps = new int[cells];
+            freeAfter = new int[cells];
+            seenStamps = new int[cells];
+            regionStamps = new int[cells];
+            distances = new int[cells];
+            firstMoves = new byte[cells];
+            parents = new int[cells];
+            path = new int[cells + 1];
+            queue = new int[cells];
+            heap = new long[4 * cells + 1];
+            stamp = 0;
+            seenStamp = 0;
+            regionStamp = 0;
+        }
+
+        stamp++;
+        int size = snake.size();
+        int extra = snake.isGrowing() ? 1 : 0;
+        for (int i = 0; i < size; i++) {
+            int cell = snake.cellAt(i);
+            bodyStamps[cell] = stamp;
+            freeAfter[cell] = size - i + extra;
+        }
+    }
+
+    /**
+     * Checks if the head cannot enter the cell on the given move, because a segment is still on it by then.
+     *
+     * @param cell the packed cell index
+     * @param step the number of the move entering the cell, 1 for the next move
+     * @return true if the cell is blocked
+     */
+    boolean isBlocked(int cell, int step) {
+        return bodyStamps[cell] == stamp && step < freeAfter[cell];
+    }
+
+    /**
+     * Searches a path with the configured algorithm. Every search marks the cells it reaches with a stamp of its own,
+     * so it never sees the cells of an earlier search as reached, while the body stamps of the position are kept.
+     *
+     * @param start the cell to start from, entered at move 0
+     * @param target the cell to reach
+     * @return true if the target was reached
+     */
+    private boolean search(int start, int target) {
+        seenStamp++;
+        return search == Search.BFS ? breadthFirst(start, target) : aStar(start, target);
+    }
+
+    /**
+     * Searches the board breadth first, recording the first move and the distance of every cell reached.
+     *
+     * @param start the head cell
+     * @param target the apple cell
+     * @return true if the target was reached
+     */
+    private boolean breadthFirst(int start, int target) {
+        int seen = seenStamp;
+        seenStamps[start] = seen;
+        distances[start] = 0;
+        int read = 0, write = 0;
+        queue[write++] = start;
+
+        while (read < write) {
+            int cell = queue[read++];
+            int step = distances[cell] + 1;
+
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                int next = neighbor(cell, d);
+                if (next < 0 || seenStamps[next] == seen || isBlocked(next, step)) continue;
+
+                seenStamps[next] = seen;
+                distances[next] = step;
+                firstMoves[next] = cell == start ? (byte) d : firstMoves[cell];
+                parents[next] = cell;
+                if (next == target) return true;
+                queue[write++] = next;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Searches the board with A* and the Manhattan distance, recording the first move and the distance of every cell expanded.
+     * The heap holds (f, cell) pairs packed in longs; stale entries are skipped when popped instead of being updated.
+     *
+     * @param start the head cell
+     * @param target the apple cell
+     * @return true if the target was reached
+     */
+    private boolean aStar(int start, int target) {
+        int targetX = target % width, targetY = target / width;
+        int seen = seenStamp;
+        int closed = -seen;
+
+        seenStamps[start] = seen;
+        distances[start] = 0;
+        int size = push(0, manhattan(start, targetX, targetY), start);
+
+        while (size > 0) {
+            long entry = heap[0];
+            size = pop(size);
+            int cell = (int) entry;
+            if (seenStamps[cell] == closed) continue;
+            seenStamps[cell] = closed;
+            if (cell == target) return true;
+
+            int step = distances[cell] + 1;
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                int next = neighbor(cell, d);
+                if (next < 0 || isBlocked(next, step)) continue;
+                if (seenStamps[next] == closed || (seenStamps[next] == seen && distances[next] <= step)) continue;
+
+                seenStamps[next] = seen;
+                distances[next] = step;
+                firstMoves[next] = cell == start ? (byte) d : firstMoves[cell];
+                parents[next] = cell;
+                size = push(size, step + manhattan(next, targetX, targetY), next);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts the free cells reachable from a cell, stopping early once the limit is reached.
+     * Body cells count as walls, except those the tail leaves before the fill could reach them.
+     *
+     * @param start the cell to fill from, entered on the next move
+     * @param limit the count at which to stop
+     * @return the number of cells reached, at most limit
+     */
+    private int regionSize(int start, int limit) {
+        int mark = ++regionStamp;
+        regionStamps[start] = mark;
+        distances[start] = 1;
+        int read = 0, write = 0;
+        queue[write++] = start;
+
+        while (read < write && write < limit) {
+            int cell = queue[read++];
+            int step = distances[cell] + 1;
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                int next = neighbor(cell, d);
+                if (next < 0 || regionStamps[next] == mark || isBlocked(next, step)) continue;
+                regionStamps[next] = mark;
+                distances[next] = step;
+                queue[write++] = next;
+            }
+        }
+        return Math.min(write, limit);
+    }
+
+    /**
+     * Returns the neighbor of a cell in the direction with the given ordinal.
+     *
+     * @param cell the packed cell index
+     * @param d the ordinal of the direction
+     * @return the packed index of the neighbor, or -1 if it is off the board
+     */
+    private int neighbor(int cell, int d) {
+        return switch (DIRECTIONS[d]) {
+            case UP -> cell >= width ? cell - width : -1;
+            case DOWN -> cell < (height - 1) * width ? cell + width : -1;
+            case LEFT -> cell % width > 0 ? cell - 1 : -1;
+            case RIGHT -> cell % width < width - 1 ? cell + 1 : -1;
+        };
+    }
+
+    /**
+     * Returns the Manhattan distance from a cell to the target.
+     *
+     * @param cell the packed cell index
+     * @param targetX the column of the target
+     * @param targetY the row of the target
+     * @return the distance, in moves
+     */
+    private int manhattan(int cell, int targetX, int targetY) {
+        return Math.abs(cell % width - targetX) + Math.abs(cell / width - targetY);
+    }
+
+    /**
+     * Adds an entry to the binary min-heap.
+     *
+     * @param size the number of entries in the heap
+     * @param priority the estimated length of a path through the cell
+     * @param cell the packed cell index
+     * @return the new number of entries
+     */
+    private int push(int size, int priority, int cell) {
+        long entry = (long) priority << 32 | cell;
+        int i = size;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= entry) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+        return size + 1;
+    }
+
+    /**
+     * Removes the smallest entry of the binary min-heap.
+     *
+     * @param size the number of entries in the heap
+     * @return the new number of entries
+     */
+    private int pop(int size) {
+        long last = heap[--size];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if (heap[child] >= last) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return size;
+    }
+}
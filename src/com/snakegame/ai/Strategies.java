@@ -0,0 +1,37 @@
+package com.snakegame.ai;
+
+import java.util.function.Supplier;
+
+/**
+ * Names of the built-in strategies, as accepted on the command line.
+ *
+ * @author Alessandro Sorbara
+ */
+public final class Strategies {
+
+    public static final String NAMES = "greedy, bfs, astar, hamiltonian";
+
+    /**
+     * Not instantiable.
+     */
+    private Strategies() {
+    }
+
+    /**
+     * Returns a factory of the strategy with the given name. Strategies keep per-board state,
+     * so each board needs its own instance.
+     *
+     * @param name one of greedy, bfs, astar and hamiltonian
+     * @return a factory creating instances of the strategy
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static Supplier<DirectionStrategy> named(String name) {
+        return switch (name) {
+            case "greedy" -> GreedyStrategy::new;
+            case "bfs" -> () -> new PathfindingStrategy(PathfindingStrategy.Search.BFS);
+            case "astar" -> () -> new PathfindingStrategy(PathfindingStrategy.Search.A_STAR);
+            case "hamiltonian" -> HamiltonianStrategy::new;
+            default -> throw new IllegalArgumentException("Unknown strategy " + name + ", expected one of " + NAMES);
+        };
+    }
+}
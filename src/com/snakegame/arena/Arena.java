@@ -0,0 +1,374 @@
+package com.snakegame.arena;
+
+import com.snakegame.model.Board;
+import com.snakegame.model.Direction;
+import com.snakegame.model.FreeCells;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Board shared by many snakes and apples, all moving in lockstep.
+ * Collisions are resolved through one ownership grid holding, for every cell, the snake covering it or the apple lying on it,
+ * so a tick only looks at the cells the heads enter and leave: its cost is O(snakes + changed cells)
+ * whatever the size of the board and the length of the snakes.
+ * A snake dies when it leaves the board, enters a body (its own or another's) that is not a tail moving away,
+ * or enters the same cell as another head, in which case both die.
+ * Dead snakes respawn at a random free cell unless respawning is turned off.
+ *
+ * @author Alessandro Sorbara
+ */
+public class Arena {
+
+    public static final int INITIAL_LENGTH = 3;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int width;
+    private final int height;
+    private final Random random;
+
+    private final int[] owner;
+    private final int[] claimStamps;
+    private final int[] claimants;
+    private final FreeCells freeCells;
+
+    private final int[] apples;
+    private final int[] pendingApples;
+    private int pendingAppleCount;
+
+    private final List<ArenaSnake> snakes = new ArrayList<>();
+    private int[] next = new int[16];
+    private boolean[] dying = new boolean[16];
+
+    private boolean respawning = true;
+    private int tick;
+    private long deaths;
+    private long applesEaten;
+
+    /**
+     * Creates an empty arena and places its apples.
+     *
+     * @param width the number of columns
+     * @param height the number of rows
+     * @param appleCount the number of apples kept on the board
+     * @param random the random number generator placing snakes and apples
+     * @throws IllegalArgumentException if a dimension is outside [MIN_SIZE, MAX_SIZE] or there are no apples
+     */
+    public Arena(int width, int height, int appleCount, Random random) {
+        if (width < Board.MIN_SIZE || width > Board.MAX_SIZE || height < Board.MIN_SIZE || height > Board.MAX_SIZE) {
+            throw new IllegalArgumentException("Arena size must be between " + Board.MIN_SIZE + " and " + Board.MAX_SIZE + ": " + width + "x" + height);
+        }
+        if (appleCount < 1) throw new IllegalArgumentException("Apple count must be positive: " + appleCount);
+
+        this.width = width;
+        this.height = height;
+        this.random = random;
+
+        int cells = width * height;
+        this.owner = new int[cells];
+        this.claimStamps = new int[cells];
+        this.claimants = new int[cells];
+        this.freeCells = new FreeCells(cells);
+
+        this.apples = new int[appleCount];
+        this.pendingApples = new int[appleCount];
+        for (int i = 0; i < appleCount; i++) {
+            apples[i] = -1;
+            pendingApples[pendingAppleCount++] = i;
+        }
+        placeApples();
+    }
+
+    /**
+     * Adds a snake at a random free cell. It starts with one segment and grows to INITIAL_LENGTH over its first moves.
+     *
+     * @param strategy the strategy steering the snake
+     * @return the id of the new snake
+     * @throws IllegalStateException if there is no free cell left
+     */
+    public int addSnake(ArenaStrategy strategy) {
+        int id = snakes.size();
+        ArenaSnake snake = new ArenaSnake(id, strategy);
+        snakes.add(snake);
+
+        if (id == next.length) {
+            next = Arrays.copyOf(next, id * 2);
+            dying = Arrays.copyOf(dying, id * 2);
+        }
+
+        spawn(snake);
+        return id;
+    }
+
+    /**
+     * Moves every living snake by one cell, resolves collisions and eaten apples,
+     * then respawns the apples and, if enabled, the snakes that died.
+     */
+    public void tick() {
+        int stamp = ++tick;
+        int count = snakes.size();
+
+        for (int id = 0; id < count; id++) {
+            ArenaSnake snake = snakes.get(id);
+            dying[id] = false;
+            if (!snake.isAlive()) continue;
+
+            Direction direction = snake.getStrategy().nextDirection(this, snake);
+            if (snake.size() > 1 && direction == snake.getDirection().opposite()) direction = snake.getDirection();
+            snake.setDirection(direction);
+
+            int cell = neighbor(snake.headCell(), direction);
+            next[id] = cell;
+            if (cell < 0) {
+                dying[id] = true;
+            } else if (claimStamps[cell] == stamp) {
+                dying[id] = true;
+                dying[claimants[cell]] = true;
+            } else {
+                claimStamps[cell] = stamp;
+                claimants[cell] = id;
+            }
+        }
+
+        for (int id = 0; id < count; id++) {
+            if (snakes.get(id).isAlive() && !dying[id] && isBlocked(next[id])) dying[id] = true;
+        }
+
+        for (int id = 0; id < count; id++) {
+            ArenaSnake snake = snakes.get(id);
+            if (snake.isAlive() && dying[id]) kill(snake);
+        }
+
+        for (int id = 0; id < count; id++) {
+            ArenaSnake snake = snakes.get(id);
+            if (!snake.isAlive()) continue;
+
+            int vacated = snake.advanceTail();
+            if (vacated >= 0) {
+                owner[vacated] = 0;
+                freeCells.add(vacated);
+            }
+        }
+
+        for (int id = 0; id < count; id++) {
+            ArenaSnake snake = snakes.get(id);
+            if (!snake.isAlive() || dying[id]) continue;
+
+            int cell = next[id];
+            int occupant = owner[cell];
+            if (occupant < 0) {
+                int apple = -occupant - 1;
+                apples[apple] = -1;
+                pendingApples[pendingAppleCount++] = apple;
+                snake.eat();
+                applesEaten++;
+            } else {
+                freeCells.remove(cell);
+            }
+
+            owner[cell] = id + 1;
+            snake.addHead(cell);
+        }
+
+        placeApples();
+
+        if (respawning) {
+            for (int id = 0; id < count; id++) {
+                ArenaSnake snake = snakes.get(id);
+                if (!snake.isAlive() && !freeCells.isEmpty()) spawn(snake);
+            }
+        }
+    }
+
+    /**
+     * Returns the cell next to the given one in the given direction.
+     *
+     * @param cell the packed cell index
+     * @param direction the direction to look in
+     * @return the packed index of the neighbor, or -1 if it is off the board
+     */
+    public int neighbor(int cell, Direction direction) {
+        int x = cell % width;
+        return switch (direction) {
+            case UP -> cell >= width ? cell - width : -1;
+            case DOWN -> cell < (height - 1) * width ? cell + width : -1;
+            case LEFT -> x > 0 ? cell - 1 : -1;
+            case RIGHT -> x < width - 1 ? cell + 1 : -1;
+        };
+    }
+
+    /**
+     * Checks if a head entering the cell on this tick would hit a body.
+     * The tail of a snake that is not growing is not blocking, since it moves away during the same tick.
+     *
+     * @param cell the packed cell index
+     * @return true if the cell is covered by a segment that stays in place
+     */
+    public boolean isBlocked(int cell) {
+        int occupant = owner[cell];
+        if (occupant <= 0) return false;
+
+        ArenaSnake snake = snakes.get(occupant - 1);
+        return cell != snake.tailCell() || snake.isGrowing();
+    }
+
+    /**
+     * Returns the id of the snake covering the cell.
+     *
+     * @param cell the packed cell index
+     * @return the snake id, or -1 if no snake covers the cell
+     */
+    public int snakeAt(int cell) {
+        int occupant = owner[cell];
+        return occupant > 0 ? occupant - 1 : -1;
+    }
+
+    /**
+     * Returns the cell of the i-th apple.
+     *
+     * @param i the apple index
+     * @return the packed cell index, or -1 if the apple could not be placed because the board is full
+     */
+    public int getAppleCell(int i) {
+        return apples[i];
+    }
+
+    /**
+     * Returns the number of apples kept on the board.
+     *
+     * @return the apple count
+     */
+    public int getAppleCount() {
+        return apples.length;
+    }
+
+    /**
+     * Returns the snake with the given id.
+     *
+     * @param id the snake id
+     * @return the snake
+     */
+    public ArenaSnake getSnake(int id) {
+        return snakes.get(id);
+    }
+
+    /**
+     * Returns the number of snakes, alive or dead.
+     *
+     * @return the snake count
+     */
+    public int getSnakeCount() {
+        return snakes.size();
+    }
+
+    /**
+     * Returns the number of snakes on the board.
+     *
+     * @return the living snake count
+     */
+    public int getLivingCount() {
+        int living = 0;
+        for (ArenaSnake snake : snakes) {
+            if (snake.isAlive()) living++;
+        }
+        return living;
+    }
+
+    /**
+     * Sets whether dead snakes come back at a random free cell at the end of the tick.
+     *
+     * @param respawning true to respawn dead snakes
+     */
+    public void setRespawning(boolean respawning) {
+        this.respawning = respawning;
+    }
+
+    /**
+     * Returns the number of ticks played.
+     *
+     * @return the tick count
+     */
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns the number of deaths since the arena was created.
+     *
+     * @return the death count
+     */
+    public long getDeaths() {
+        return deaths;
+    }
+
+    /**
+     * Returns the number of apples eaten since the arena was created.
+     *
+     * @return the eaten apple count
+     */
+    public long getApplesEaten() {
+        return applesEaten;
+    }
+
+    /**
+     * Returns the number of columns of the arena.
+     *
+     * @return the width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of rows of the arena.
+     *
+     * @return the height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Places a snake at a random free cell, facing a random direction.
+     *
+     * @param snake the snake to place
+     * @throws IllegalStateException if there is no free cell left
+     */
+    private void spawn(ArenaSnake snake) {
+        int cell = freeCells.random(random);
+        freeCells.remove(cell);
+        owner[cell] = snake.getId() + 1;
+        snake.spawn(cell, INITIAL_LENGTH, DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+    }
+
+    /**
+     * Removes a snake from the board, freeing every cell of its body.
+     *
+     * @param snake the snake that died
+     */
+    private void kill(ArenaSnake snake) {
+        for (int i = 0; i < snake.size(); i++) {
+            int cell = snake.cellAt(i);
+            owner[cell] = 0;
+            freeCells.add(cell);
+        }
+        snake.die();
+        deaths++;
+    }
+
+    /**
+     * Places the apples eaten during the tick at random free cells, as long as there are any.
+     */
+    private void placeApples() {
+        while (pendingAppleCount > 0 && !freeCells.isEmpty()) {
+            int apple = pendingApples[--pendingAppleCount];
+            int cell = freeCells.random(random);
+            freeCells.remove(cell);
+            owner[cell] = -(apple + 1);
+            apples[apple] = cell;
+        }
+    }
+}
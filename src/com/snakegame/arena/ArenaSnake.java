@@ -0,0 +1,217 @@
+package com.snakegame.arena;
+
+import com.snakegame.model.Direction;
+
+/**
+ * One of the snakes of an Arena, with the strategy steering it.
+ * The body is a circular buffer of packed cell indices, head first; which cells are taken
+ * is tracked by the arena's shared ownership grid rather than by the snake.
+ *
+ * @author Alessandro Sorbara
+ */
+public class ArenaSnake {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final int id;
+    private final ArenaStrategy strategy;
+
+    private int[] cells = new int[INITIAL_CAPACITY];
+    private int headIndex;
+    private int size;
+    private int pendingGrowth;
+    private boolean alive;
+    private Direction direction = Direction.LEFT;
+    private int score;
+    private int deaths;
+
+    /**
+     * Creates a snake with no body; the arena spawns it.
+     *
+     * @param id the index of the snake in the arena
+     * @param strategy the strategy steering the snake
+     */
+    ArenaSnake(int id, ArenaStrategy strategy) {
+        this.id = id;
+        this.strategy = strategy;
+    }
+
+    /**
+     * Returns the index of the snake in the arena.
+     *
+     * @return the snake id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the strategy steering the snake.
+     *
+     * @return the strategy
+     */
+    public ArenaStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Checks if the snake is on the board.
+     *
+     * @return true if the snake is alive
+     */
+    public boolean isAlive() {
+        return alive;
+    }
+
+    /**
+     * Returns the number of segments of the snake.
+     *
+     * @return the length of the snake
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the packed cell index of the i-th segment, counting from the head.
+     *
+     * @param i the segment index, 0 being the head
+     * @return the cell of the segment
+     */
+    public int cellAt(int i) {
+        return cells[(headIndex + i) & (cells.length - 1)];
+    }
+
+    /**
+     * Returns the packed cell index of the head.
+     *
+     * @return the head cell
+     */
+    public int headCell() {
+        return cells[headIndex];
+    }
+
+    /**
+     * Returns the packed cell index of the tail.
+     *
+     * @return the tail cell
+     */
+    public int tailCell() {
+        return cellAt(size - 1);
+    }
+
+    /**
+     * Checks if the snake keeps its tail on its next move.
+     *
+     * @return true if the snake is growing
+     */
+    public boolean isGrowing() {
+        return pendingGrowth > 0;
+    }
+
+    /**
+     * Returns the direction of the last move.
+     *
+     * @return the current direction
+     */
+    public Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * Returns the number of apples eaten since the snake last spawned.
+     *
+     * @return the score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the number of times the snake died.
+     *
+     * @return the death count
+     */
+    public int getDeaths() {
+        return deaths;
+    }
+
+    /**
+     * Places a new one-segment body that grows to the given length over the next moves.
+     *
+     * @param cell the cell of the head
+     * @param length the length to grow to
+     * @param direction the initial direction
+     */
+    void spawn(int cell, int length, Direction direction) {
+        headIndex = 0;
+        size = 1;
+        cells[0] = cell;
+        pendingGrowth = length - 1;
+        this.direction = direction;
+        score = 0;
+        alive = true;
+    }
+
+    /**
+     * Marks the snake as dead. The arena frees its cells.
+     */
+    void die() {
+        alive = false;
+        deaths++;
+    }
+
+    /**
+     * Sets the direction of the current move.
+     *
+     * @param direction the direction
+     */
+    void setDirection(Direction direction) {
+        this.direction = direction;
+    }
+
+    /**
+     * Consumes one move of pending growth, or drops the tail if there is none.
+     *
+     * @return the vacated cell, or -1 if the snake grew
+     */
+    int advanceTail() {
+        if (pendingGrowth > 0) {
+            pendingGrowth--;
+            return -1;
+        }
+        int tail = tailCell();
+        size--;
+        return tail;
+    }
+
+    /**
+     * Pushes a new head in front of the body.
+     *
+     * @param cell the new head cell
+     */
+    void addHead(int cell) {
+        if (size == cells.length) grow();
+        headIndex = (headIndex - 1) & (cells.length - 1);
+        cells[headIndex] = cell;
+        size++;
+    }
+
+    /**
+     * Counts an eaten apple and schedules one segment of growth.
+     */
+    void eat() {
+        score++;
+        pendingGrowth++;
+    }
+
+    /**
+     * Doubles the ring buffer, unrolling it so that the head sits at index 0.
+     */
+    private void grow() {
+        int[] grown = new int[cells.length * 2];
+        for (int i = 0; i < size; i++) grown[i] = cellAt(i);
+        cells = grown;
+        headIndex = 0;
+    }
+}
@@ -0,0 +1,22 @@
+package com.snakegame.arena;
+
+import com.snakegame.model.Direction;
+
+/**
+ * Chooses the next move of a snake in an Arena, either computed by an AI or read from a player's input.
+ * Strategies are called once per tick for every living snake, before any snake moves.
+ *
+ * @author Alessandro Sorbara
+ */
+@FunctionalInterface
+public interface ArenaStrategy {
+
+    /**
+     * Returns the direction the snake should move in on this tick.
+     *
+     * @param arena the arena the snake lives in
+     * @param snake the snake to steer
+     * @return the direction of the next move
+     */
+    Direction nextDirection(Arena arena, ArenaSnake snake);
+}
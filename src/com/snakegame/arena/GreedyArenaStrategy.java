@@ -0,0 +1,48 @@
+package com.snakegame.arena;
+
+import com.snakegame.model.Direction;
+
+/**
+ * Arena counterpart of the GreedyStrategy: heads for one apple, picking the move that brings the head closest to it
+ * among those that do not enter a body. Each snake targets the apple with its id modulo the apple count,
+ * so that snakes spread over the apples instead of all chasing the same one.
+ * Head-on collisions are not anticipated, since the other heads have not chosen their moves yet.
+ *
+ * @author Alessandro Sorbara
+ */
+public class GreedyArenaStrategy implements ArenaStrategy {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Returns the safe direction closest to the target apple, or the current direction if every move is fatal.
+     *
+     * @param arena the arena the snake lives in
+     * @param snake the snake to steer
+     * @return the direction of the next move
+     */
+    @Override
+    public Direction nextDirection(Arena arena, ArenaSnake snake) {
+        int width = arena.getWidth();
+        int head = snake.headCell();
+        int apple = arena.getAppleCell(snake.getId() % arena.getAppleCount());
+        int appleX = apple < 0 ? head % width : apple % width;
+        int appleY = apple < 0 ? head / width : apple / width;
+
+        Direction best = snake.getDirection();
+        int bestDistance = Integer.MAX_VALUE;
+
+        for (Direction direction : DIRECTIONS) {
+            int next = arena.neighbor(head, direction);
+            if (next < 0 || arena.isBlocked(next)) continue;
+
+            int distance = Math.abs(next % width - appleX) + Math.abs(next / width - appleY);
+            if (distance < bestDistance) {
+                best = direction;
+                bestDistance = distance;
+            }
+        }
+
+        return best;
+    }
+}
@@ -1,115 +1,442 @@
 package com.snakegame.controller;
 
+import com.snakegame.ai.DirectionStrategy;
+import com.snakegame.diagnostics.GameEvents;
+import com.snakegame.diagnostics.KeyPressEvent;
+import com.snakegame.metrics.Counter;
+import com.snakegame.metrics.LatencyHistogram;
+import com.snakegame.metrics.MetricsRegistry;
 import com.snakegame.model.Board;
 import com.snakegame.model.Direction;
+import com.snakegame.model.GameListener;
 import com.snakegame.model.Snake;
+import com.snakegame.replay.ReplayRecorder;
+import com.snakegame.save.Checkpointer;
+import com.snakegame.save.SaveGame;
+import com.snakegame.scores.ScoreLog;
 import com.snakegame.view.GameFrame;
+import com.snakegame.view.GamePanel;
 import com.snakegame.view.utils.SoundManager;
-import javax.swing.*;
+import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
 
 /**
- * Controller class that handles keyboard input and updates the game loop for the Snake game.
- * It listens for key presses to change the snake's direction and uses a timer to move the snake periodically.
+ * Controller class that handles keyboard input and drives the game loop for the Snake game.
+ * It listens for key presses to change the snake's direction and runs a fixed-timestep GameLoop
+ * that moves the snake on its own thread and requests interpolated frames at the display refresh rate.
+ * Key presses reach the loop through a lock-free InputQueue, which buffers quick successive turns
+ * so that each one is applied on its own tick.
+ * It also subscribes to the model's game events to play the sound effects and stop the loop when the game ends.
+ * The model is only changed while holding its monitor, by the loop thread on each tick and by the key handler
+ * when a game starts or restarts; the view draws the snapshots the model publishes and never locks it.
+ * Every game starts from a fresh seed and its moves are recorded, so that it can be saved as a replay when it ends,
+ * and its result can be appended to a persistent ScoreLog.
+ * With a save file, the game in progress is checkpointed in the background and resumed, paused, on the next launch;
+ * P pauses and resumes the game, checkpointing it as it pauses.
+ * An autopilot DirectionStrategy can take the place of the keyboard: the loop then polls it once per tick,
+ * while keys still start and restart games.
+ * Tick times, apple spawns, input latencies, sound triggers and frames are recorded into a MetricsRegistry,
+ * shown by the diagnostics overlay of the panel, which F3 toggles.
  *
  * @author Alessandro Sorbara
  */
-public class Controller implements KeyListener, ActionListener {
+public class Controller implements KeyListener, GameListener {
 
-    private static final int DELAY = 100;
-    private final Timer timer;
+    public static final double DEFAULT_TICKS_PER_SECOND = 10;
+    private static final int DEFAULT_REFRESH_RATE = 60;
+
+    private final GameLoop loop;
 
     private final SoundManager soundManager;
 
     private final Board model;
     private final GameFrame view;
 
-    private Direction inputDirection;
-    private boolean directionChanged = false;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final LatencyHistogram tickTimes = metrics.histogram(MetricsRegistry.TICK_TIME);
+    private final LatencyHistogram soundTimes = metrics.histogram(MetricsRegistry.SOUND_TIME);
+    private final Counter ticks = metrics.counter(MetricsRegistry.TICKS);
+
+    private final InputQueue input;
+    private Direction direction;
+    private volatile DirectionStrategy autopilot;
+
+    private final SplittableRandom seeds = new SplittableRandom();
+    private final ReplayRecorder recorder;
+    private volatile Path replayFile;
+    private volatile ScoreLog scoreLog;
+    private long gameSeed;
+    private boolean resumed;
+
+    private volatile Checkpointer checkpointer;
+    private boolean paused;
 
     /**
-     * Creates a new Controller with the given game model and view.
-     * Initializes key listeners and prepares the game timer.
+     * Creates a new Controller with the given game model and view, ticking at the default rate.
      *
      * @param model the game model containing logic and state
      * @param view the game view responsible for rendering
      */
     public Controller(Board model, GameFrame view) {
+        this(model, view, DEFAULT_TICKS_PER_SECOND);
+    }
+
+    /**
+     * Creates a new Controller with the given game model and view.
+     * Initializes key listeners and prepares the game loop.
+     *
+     * @param model the game model containing logic and state
+     * @param view the game view responsible for rendering
+     * @param ticksPerSecond the number of times per second the snake moves
+     */
+    public Controller(Board model, GameFrame view, double ticksPerSecond) {
         this.model = model;
         this.view = view;
-        inputDirection = null;
+        direction = Direction.LEFT;
+        input = new InputQueue(InputQueue.DEFAULT_CAPACITY, direction);
+        input.setLatencyHistogram(metrics.histogram(MetricsRegistry.INPUT_LATENCY));
+        model.setMetrics(metrics);
 
         view.addKeyListener(this);
-        JPanel panel = view.getGamePanel();
+        GamePanel panel = view.getGamePanel();
         panel.addKeyListener(this);
         panel.setFocusable(true);
+        panel.setMetrics(metrics);
         panel.requestFocusInWindow();
 
-        timer = new Timer(DELAY, this);
-        soundManager = new SoundManager();
+        loop = new GameLoop(this::tick, this::render, ticksPerSecond, refreshRate());
+        panel.setFrameListener(loop::frameDone);
+        soundManager = new SoundManager(view.getAssets());
+        model.addListener(this);
+
+        recorder = new ReplayRecorder(model.getWidth(), model.getHeight(), 0);
+        synchronized (model) {
+            newGame();
+        }
+    }
+
+    /**
+     * Sets the file the replay of each game is saved to when it ends, overwriting the previous one.
+     *
+     * @param replayFile the replay file, or null not to save replays
+     */
+    public void setReplayFile(Path replayFile) {
+        this.replayFile = replayFile;
     }
 
     /**
-     * Called periodically by the timer to advance the game state.
-     * Moves the snake and repaints the game view.
-     * Also checks if the game ended, producing a sound effect.
+     * Resumes the game saved in a file, if it holds an unfinished game on a board of this size, paused until a key
+     * is pressed, then checkpoints the game in progress to that file every second on a background thread.
+     * A resumed game has no seed, so no replay is saved when it ends and its score is recorded as resumed.
      *
-     * @param e the ActionEvent triggered by the timer
+     * @param saveFile the save file
      */
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        if (model.getGameState().isGameOver()) {
-            timer.stop();
-            soundManager.playSound("game_over.wav", false);
+    public void setSaveFile(Path saveFile) {
+        if (Files.exists(saveFile)) {
+            try {
+                SaveGame save = SaveGame.load(saveFile);
+                if (!save.isGameOver() && !save.isGameWon()) {
+                    synchronized (model) {
+                        save.restore(model);
+                        direction = heading();
+                        input.reset(direction);
+                        resumed = true;
+                        paused = true;
+                    }
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Cannot resume game from " + saveFile + ": " + e.getMessage());
+            }
+        }
+        checkpointer = new Checkpointer(model, saveFile);
+    }
+
+    /**
+     * Returns the checkpointer saving the game in progress, which must be closed when the game exits.
+     *
+     * @return the checkpointer, or null if no save file is set
+     */
+    public Checkpointer getCheckpointer() {
+        return checkpointer;
+    }
+
+    /**
+     * Returns the direction the snake last moved in, from the segment behind the head to the head.
+     * Must be called with the board locked.
+     *
+     * @return the heading of the snake, LEFT if it has a single segment
+     */
+    private Direction heading() {
+        Snake snake = model.getSnake();
+        if (snake.size() < 2) return Direction.LEFT;
+        int step = snake.headCell() - snake.cellAt(1);
+        if (step == 1) return Direction.RIGHT;
+        if (step == -1) return Direction.LEFT;
+        return step > 0 ? Direction.DOWN : Direction.UP;
+    }
+
+    /**
+     * Sets the log the result of each game is appended to when it ends.
+     *
+     * @param scoreLog the score log, or null not to record scores
+     */
+    public void setScoreLog(ScoreLog scoreLog) {
+        this.scoreLog = scoreLog;
+    }
+
+    /**
+     * Sets the strategy steering the snake in place of the keyboard.
+     *
+     * @param autopilot the strategy polled on every tick, or null to steer with the keyboard
+     */
+    public void setAutopilot(DirectionStrategy autopilot) {
+        this.autopilot = autopilot;
+    }
+
+    /**
+     * Returns the registry the game records its metrics into, which can be dumped as CSV or JSON.
+     *
+     * @return the metrics registry
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the game loop, which exposes the tick jitter and dropped frame counters.
+     *
+     * @return the game loop
+     */
+    public GameLoop getLoop() {
+        return loop;
+    }
+
+    /**
+     * Returns the queue of direction changes, which exposes the input latency counters.
+     *
+     * @return the input queue
+     */
+    public InputQueue getInputQueue() {
+        return input;
+    }
+
+    /**
+     * Called by the game loop once per tick to advance the game state.
+     * Asks the autopilot for the next move or takes the next buffered turn, if any, and moves the snake in the resulting direction.
+     * The whole tick, including waiting for the board's monitor, is timed.
+     */
+    private void tick() {
+        long start = System.nanoTime();
+        synchronized (model) {
+            DirectionStrategy pilot = autopilot;
+            direction = pilot != null ? pilot.nextDirection(model) : input.poll(direction);
+            recorder.record(direction);
+            model.moveSnake(direction);
+        }
+        tickTimes.record(System.nanoTime() - start);
+        ticks.increment();
+    }
+
+    /**
+     * Resets the board with a new seed and starts recording the new game.
+     * Must be called with the board locked.
+     */
+    private void newGame() {
+        long seed = seeds.nextLong();
+        gameSeed = seed;
+        resumed = false;
+        model.resetBoard(seed);
+        recorder.start(model.getWidth(), model.getHeight(), seed);
+    }
+
+    /**
+     * Stops the loop and checkpoints the paused game, if a save file is set.
+     * Must be called with the board locked.
+     */
+    private void pause() {
+        loop.stop();
+        paused = true;
+        Checkpointer saver = checkpointer;
+        if (saver != null) saver.requestCheckpoint();
+    }
+
+    /**
+     * Saves the replay of the game that just ended, if a replay file is set.
+     */
+    private void saveReplay() {
+        Path file = replayFile;
+        if (file == null || resumed) return;
+
+        try {
+            recorder.toReplay(model.getGameState().getScore()).save(file);
+        } catch (IOException e) {
+            System.err.println("Cannot save replay to " + file + ": " + e.getMessage());
         }
+    }
+
+    /**
+     * Appends the result of the game that just ended to the score log, if one is set.
+     * A game resumed from a save is recorded as such, since its seed and the moves played before the save are unknown.
+     * Must be called with the board locked.
+     *
+     * @param won true if the game was won
+     */
+    private void recordScore(boolean won) {
+        ScoreLog log = scoreLog;
+        if (log == null) return;
+
+        try {
+            if (resumed) {
+                log.appendResumed(System.currentTimeMillis(), model.getWidth(), model.getHeight(), model.getGameState().getScore(), won);
+            } else {
+                log.append(System.currentTimeMillis(), gameSeed, model.getWidth(), model.getHeight(),
+                        model.getGameState().getScore(), recorder.getTicks(), won);
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot record score: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Called by the game loop to request a frame.
+     *
+     * @param alpha the fraction of the next tick already elapsed, used to interpolate the snake
+     */
+    private void render(double alpha) {
+        view.getGamePanel().requestFrame(alpha);
+    }
+
+    /**
+     * Returns the refresh rate of the default screen, falling back to 60 Hz when it is unknown.
+     *
+     * @return the refresh rate, in frames per second
+     */
+    private static int refreshRate() {
+        if (GraphicsEnvironment.isHeadless()) return DEFAULT_REFRESH_RATE;
+        int rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+        return rate == DisplayMode.REFRESH_RATE_UNKNOWN ? DEFAULT_REFRESH_RATE : rate;
+    }
+
+    /**
+     * Triggers a sound, timing the call.
+     *
+     * @param soundName the filename of the sound to play
+     * @param brainrot activates brainrot sounds if true
+     */
+    private void playSound(String soundName, boolean brainrot) {
+        long start = System.nanoTime();
+        soundManager.playSound(soundName, brainrot);
+        soundTimes.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Plays the crunch sound when the snake eats an apple.
+     *
+     * @param board the board on which the apple was eaten
+     */
+    @Override
+    public void appleEaten(Board board) {
+        playSound("crunch.wav", true);
+    }
+
+    /**
+     * Stops the loop, which shows the restart prompt, saves the replay and the score and plays the game over sound
+     * when the game is lost.
+     *
+     * @param board the board on which the game was lost
+     */
+    @Override
+    public void gameLost(Board board) {
+        loop.stop();
+        saveReplay();
+        recordScore(false);
+        playSound("game_over.wav", false);
+    }
 
-        view.repaint();
-        model.moveSnake(inputDirection);
-        directionChanged = false;
+    /**
+     * Stops the loop, which shows the restart prompt, and saves the replay and the score when the game is won.
+     *
+     * @param board the board on which the game was won
+     */
+    @Override
+    public void gameWon(Board board) {
+        loop.stop();
+        saveReplay();
+        recordScore(true);
     }
 
     /**
-     * Handles key presses to start the game or change the snake's direction.
-     * Prevents reversal into the opposite direction.
+     * Handles key presses to start the game or queue a change of the snake's direction.
+     * Repeating or reversing the last queued direction is ignored by the queue.
+     * F3 toggles the diagnostics overlay without starting the game.
+     * While GameEvents are enabled, the handling of the key is recorded as a KeyPressEvent.
      *
      * @param e the KeyEvent representing the key press
      */
     @Override
     public void keyPressed(KeyEvent e) {
-        if (model.getGameState().isGameOver()) {
-            model.resetBoard();
-            inputDirection = Direction.LEFT;
-            timer.start();
+        if (!GameEvents.isEnabled()) {
+            handleKey(e.getKeyCode());
             return;
         }
 
-        if (!model.getGameState().isGameStarted()) {
-            timer.start();
-            model.getGameState().start();
+        KeyPressEvent event = new KeyPressEvent();
+        event.begin();
+        boolean queued = handleKey(e.getKeyCode());
+        event.end();
+        if (event.shouldCommit()) {
+            event.key = KeyEvent.getKeyText(e.getKeyCode());
+            event.queued = queued;
+            event.commit();
         }
+    }
 
-        if (directionChanged) return;
-        Direction newDirection = inputDirection;
-
-        switch (e.getKeyCode()) {
-            case KeyEvent.VK_W, KeyEvent.VK_UP:
-                if (inputDirection != Direction.DOWN) newDirection = Direction.UP;
-                break;
-            case KeyEvent.VK_S, KeyEvent.VK_DOWN:
-                if (inputDirection != Direction.UP) newDirection = Direction.DOWN;
-                break;
-            case KeyEvent.VK_A, KeyEvent.VK_LEFT:
-                if (inputDirection != Direction.RIGHT) newDirection = Direction.LEFT;
-                break;
-            case KeyEvent.VK_D, KeyEvent.VK_RIGHT:
-                if (inputDirection != Direction.LEFT) newDirection = Direction.RIGHT;
-                break;
+    /**
+     * Starts, restarts, pauses, resumes or steers the game, or toggles the overlay, according to the key pressed.
+     * P pauses a running game; any key resumes a paused one, and steers it if it is a direction key.
+     *
+     * @param keyCode the code of the key
+     * @return true if the key queued a turn
+     */
+    private boolean handleKey(int keyCode) {
+        if (keyCode == KeyEvent.VK_F3) {
+            view.getGamePanel().toggleHud();
+            return false;
         }
 
-        if (newDirection != inputDirection) {
-            inputDirection = newDirection;
-            directionChanged = true;
+        synchronized (model) {
+            if (model.getGameState().isGameOver() || model.getGameState().isGameWon()) {
+                newGame();
+                direction = Direction.LEFT;
+                input.reset(direction);
+                loop.start();
+                return false;
+            }
+
+            if (!model.getGameState().isGameStarted()) {
+                loop.start();
+                model.getGameState().start();
+            } else if (paused) {
+                paused = false;
+                loop.start();
+                if (keyCode == KeyEvent.VK_P) return false;
+            } else if (keyCode == KeyEvent.VK_P) {
+                pause();
+                return false;
+            }
         }
+
+        return switch (keyCode) {
+            case KeyEvent.VK_W, KeyEvent.VK_UP -> input.offer(Direction.UP);
+            case KeyEvent.VK_S, KeyEvent.VK_DOWN -> input.offer(Direction.DOWN);
+            case KeyEvent.VK_A, KeyEvent.VK_LEFT -> input.offer(Direction.LEFT);
+            case KeyEvent.VK_D, KeyEvent.VK_RIGHT -> input.offer(Direction.RIGHT);
+            default -> false;
+        };
     }
 
     /**
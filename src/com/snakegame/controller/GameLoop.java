@@ -0,0 +1,244 @@
+package com.snakegame.controller;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * Fixed-timestep game loop running on its own thread.
+ * Simulation ticks are accumulated from the elapsed time and run at a constant rate, catching up after a stall,
+ * while frames are requested separately at the display refresh rate together with the fraction of the next tick
+ * already elapsed, so the view can interpolate between the last two ticks.
+ * The loop also counts tick jitter (how late each tick runs compared to its schedule) and dropped frames
+ * (frames requested while the previous one had not been painted yet).
+ *
+ * @author Alessandro Sorbara
+ */
+public class GameLoop implements Runnable {
+
+    private static final int MAX_CATCH_UP_TICKS = 5;
+
+    private final Runnable tick;
+    private final DoubleConsumer render;
+    private final long tickNanos;
+    private final long frameNanos;
+    private final Thread thread;
+
+    private boolean running;
+    private volatile boolean framePending;
+
+    private volatile long ticks;
+    private volatile long skippedTicks;
+    private volatile long frames;
+    private volatile long droppedFrames;
+    private volatile long totalJitterNanos;
+    private volatile long maxJitterNanos;
+
+    /**
+     * Creates a paused loop. The thread is started immediately but does not tick until start() is called.
+     *
+     * @param tick the action advancing the simulation by one tick, called on the loop thread
+     * @param render the action requesting a frame, called on the loop thread with the interpolation factor in [0, 1]
+     * @param ticksPerSecond the simulation rate
+     * @param framesPerSecond the rendering rate, usually the display refresh rate
+     */
+    public GameLoop(Runnable tick, DoubleConsumer render, double ticksPerSecond, double framesPerSecond) {
+        if (ticksPerSecond <= 0 || framesPerSecond <= 0) throw new IllegalArgumentException("Rates must be positive");
+        this.tick = tick;
+        this.render = render;
+        this.tickNanos = (long) (1e9 / ticksPerSecond);
+        this.frameNanos = (long) (1e9 / framesPerSecond);
+
+        thread = new Thread(this, "game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts or resumes ticking, with the first tick one full period from now.
+     */
+    public synchronized void start() {
+        running = true;
+        notifyAll();
+    }
+
+    /**
+     * Pauses ticking. A final frame is requested with the interpolation factor set to 1.
+     */
+    public synchronized void stop() {
+        running = false;
+    }
+
+    /**
+     * Checks if the loop is ticking.
+     *
+     * @return true if the loop is running, false if it is paused
+     */
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Signals that the last requested frame has been painted. Called by the view.
+     */
+    public void frameDone() {
+        framePending = false;
+    }
+
+    /**
+     * Returns the duration of a tick.
+     *
+     * @return the tick period, in nanoseconds
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Returns the number of ticks run so far.
+     *
+     * @return the tick count
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns the number of ticks dropped because the loop fell more than MAX_CATCH_UP_TICKS behind.
+     *
+     * @return the skipped tick count
+     */
+    public long getSkippedTicks() {
+        return skippedTicks;
+    }
+
+    /**
+     * Returns the number of frames requested so far.
+     *
+     * @return the frame count
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Returns the number of frames requested while the previous one was still waiting to be painted.
+     *
+     * @return the dropped frame count
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * Returns the mean delay between the scheduled and actual start of a tick.
+     *
+     * @return the mean tick jitter, in nanoseconds
+     */
+    public long getMeanTickJitterNanos() {
+        long count = ticks;
+        return count == 0 ? 0 : totalJitterNanos / count;
+    }
+
+    /**
+     * Returns the largest delay between the scheduled and actual start of a tick.
+     *
+     * @return the maximum tick jitter, in nanoseconds
+     */
+    public long getMaxTickJitterNanos() {
+        return maxJitterNanos;
+    }
+
+    /**
+     * Runs the loop: waits while paused, then accumulates elapsed time into ticks and requests frames,
+     * sleeping until the next tick or frame is due.
+     */
+    @Override
+    public void run() {
+        while (true) {
+            if (!awaitRunning()) return;
+
+            long scheduled = System.nanoTime() + tickNanos;
+            long nextFrame = System.nanoTime();
+
+            while (isRunning()) {
+                long now = System.nanoTime();
+
+                int caughtUp = 0;
+                while (now >= scheduled && caughtUp < MAX_CATCH_UP_TICKS && isRunning()) {
+                    recordJitter(now - scheduled);
+                    tick.run();
+                    ticks++;
+                    scheduled += tickNanos;
+                    caughtUp++;
+                    now = System.nanoTime();
+                }
+
+                if (now >= scheduled) {
+                    long behind = (now - scheduled) / tickNanos + 1;
+                    skippedTicks += behind;
+                    scheduled += behind * tickNanos;
+                }
+
+                if (now >= nextFrame) {
+                    requestFrame(1.0 - (double) (scheduled - now) / tickNanos);
+                    nextFrame = now + frameNanos;
+                }
+
+                sleepUntil(Math.min(scheduled, nextFrame));
+            }
+
+            requestFrame(1.0);
+        }
+    }
+
+    /**
+     * Blocks while the loop is paused.
+     *
+     * @return false if the thread was interrupted, true once the loop is running
+     */
+    private synchronized boolean awaitRunning() {
+        try {
+            while (!running) wait();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Requests a frame, counting it as dropped if the previous one has not been painted yet.
+     *
+     * @param alpha the fraction of the current tick already elapsed
+     */
+    private void requestFrame(double alpha) {
+        if (framePending) droppedFrames++;
+        framePending = true;
+        frames++;
+        render.accept(Math.max(0.0, Math.min(1.0, alpha)));
+    }
+
+    /**
+     * Adds the lateness of a tick to the jitter counters.
+     *
+     * @param jitter the delay of the tick, in nanoseconds
+     */
+    private void recordJitter(long jitter) {
+        totalJitterNanos += jitter;
+        if (jitter > maxJitterNanos) maxJitterNanos = jitter;
+    }
+
+    /**
+     * Sleeps until the given instant.
+     *
+     * @param deadline the instant to wake up at, as given by System.nanoTime()
+     */
+    private void sleepUntil(long deadline) {
+        long nanos = deadline - System.nanoTime();
+        if (nanos <= 0) return;
+        try {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.snakegame.controller;
+
+import com.snakegame.metrics.LatencyHistogram;
+import com.snakegame.model.Direction;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock-free single-producer single-consumer queue of direction changes,
+ * filled by the input listener and drained by the game loop one command per tick.
+ * Turns pressed faster than the tick rate are buffered instead of dropped, up to the capacity.
+ * A command is rejected if it repeats or reverses the last queued direction, so a quick double turn
+ * such as UP then LEFT is validated against UP and not against the direction the snake is still moving in.
+ * The queue also measures the latency from each key press to the tick that applies it,
+ * and can record each one into a LatencyHistogram.
+ *
+ * @author Alessandro Sorbara
+ */
+public class InputQueue {
+
+    public static final int DEFAULT_CAPACITY = 3;
+
+    private final int capacity;
+    private final Direction[] directions;
+    private final long[] timestamps;
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private Direction lastQueued;
+
+    private volatile long rejected;
+    private volatile long consumed;
+    private volatile long totalLatencyNanos;
+    private volatile long maxLatencyNanos;
+    private volatile LatencyHistogram latencies;
+
+    /**
+     * Creates an empty queue.
+     *
+     * @param capacity the maximum number of buffered turns
+     * @param initial the direction the snake starts moving in
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public InputQueue(int capacity, Direction initial) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+
+        this.capacity = capacity;
+        this.directions = new Direction[size];
+        this.timestamps = new long[size];
+        this.mask = size - 1;
+        this.lastQueued = initial;
+    }
+
+    /**
+     * Queues a direction change. Called by the producer only.
+     *
+     * @param direction the requested direction
+     * @return true if the command was queued, false if it repeats or reverses the last queued direction
+     *         or the queue is full
+     */
+    public boolean offer(Direction direction) {
+        if (direction == lastQueued || direction == lastQueued.opposite()) return false;
+
+        long t = tail.get();
+        if (t - head.get() >= capacity) {
+            rejected++;
+            return false;
+        }
+
+        int slot = (int) t & mask;
+        directions[slot] = direction;
+        timestamps[slot] = System.nanoTime();
+        tail.lazySet(t + 1);
+        lastQueued = direction;
+        return true;
+    }
+
+    /**
+     * Takes the oldest queued direction, recording how long it waited. Called by the consumer only.
+     *
+     * @param current the direction to keep if nothing is queued
+     * @return the oldest queued direction, or current if the queue is empty
+     */
+    public Direction poll(Direction current) {
+        long h = head.get();
+        if (h == tail.get()) return current;
+
+        int slot = (int) h & mask;
+        Direction direction = directions[slot];
+        long latency = System.nanoTime() - timestamps[slot];
+        head.lazySet(h + 1);
+
+        consumed++;
+        totalLatencyNanos += latency;
+        if (latency > maxLatencyNanos) maxLatencyNanos = latency;
+        LatencyHistogram histogram = latencies;
+        if (histogram != null) histogram.record(latency);
+        return direction;
+    }
+
+    /**
+     * Sets the histogram the latency of every applied command is recorded into.
+     *
+     * @param latencies the histogram, or null to stop recording
+     */
+    public void setLatencyHistogram(LatencyHistogram latencies) {
+        this.latencies = latencies;
+    }
+
+    /**
+     * Discards the queued commands and sets the direction new commands are validated against.
+     * Must not run concurrently with offer or poll.
+     *
+     * @param initial the direction the snake starts moving in
+     */
+    public void reset(Direction initial) {
+        head.set(tail.get());
+        lastQueued = initial;
+    }
+
+    /**
+     * Returns the number of commands rejected because the queue was full.
+     *
+     * @return the rejected command count
+     */
+    public long getRejectedCount() {
+        return rejected;
+    }
+
+    /**
+     * Returns the number of commands applied by a tick.
+     *
+     * @return the consumed command count
+     */
+    public long getConsumedCount() {
+        return consumed;
+    }
+
+    /**
+     * Returns the mean delay between a key press and the tick applying it.
+     *
+     * @return the mean input latency, in nanoseconds
+     */
+    public long getMeanLatencyNanos() {
+        long count = consumed;
+        return count == 0 ? 0 : totalLatencyNanos / count;
+    }
+
+    /**
+     * Returns the largest delay between a key press and the tick applying it.
+     *
+     * @return the maximum input latency, in nanoseconds
+     */
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+}
@@ -0,0 +1,37 @@
+package com.snakegame.controller;
+
+import com.snakegame.arena.Arena;
+import com.snakegame.arena.ArenaSnake;
+import com.snakegame.arena.ArenaStrategy;
+import com.snakegame.model.Direction;
+
+/**
+ * Steers an arena snake from a player's input, taking one buffered turn per tick from an InputQueue.
+ *
+ * @author Alessandro Sorbara
+ */
+public class QueuedArenaStrategy implements ArenaStrategy {
+
+    private final InputQueue input;
+
+    /**
+     * Creates a strategy reading the given queue.
+     *
+     * @param input the queue filled by the player's key listener
+     */
+    public QueuedArenaStrategy(InputQueue input) {
+        this.input = input;
+    }
+
+    /**
+     * Returns the oldest queued turn, or the current direction if the player queued none.
+     *
+     * @param arena the arena the snake lives in
+     * @param snake the snake to steer
+     * @return the direction of the next move
+     */
+    @Override
+    public Direction nextDirection(Arena arena, ArenaSnake snake) {
+        return input.poll(snake.getDirection());
+    }
+}
@@ -0,0 +1,31 @@
+package com.snakegame.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning a slow audio operation kept off the game threads: decoding a sound
+ * or opening the output line.
+ *
+ * @author Alessandro Sorbara
+ */
+@Name("com.snakegame.AudioSetup")
+@Label("Audio Setup")
+@Category({"Snake Game", "Audio"})
+@Description("Decoding a sound or opening the audio output line")
+public class AudioSetupEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Resource")
+    public String resource;
+
+    @Label("Samples")
+    public int samples;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
@@ -0,0 +1,70 @@
+package com.snakegame.diagnostics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+/**
+ * Switch and entry point for the game's JDK Flight Recorder events.
+ * The game only creates events once a recording has been started through this class, so that the events
+ * cost a single flag check when the game runs without the flag. The recording uses the snake.jfc profile
+ * shipped with the game, which enables the game events along with the JDK events that explain a hitch:
+ * garbage collections, safepoints, lock contention, long parks and sleeps, and method samples.
+ *
+ * @author Alessandro Sorbara
+ */
+public final class GameEvents {
+
+    public static final String CONFIGURATION = "/jfr/snake.jfc";
+
+    private static volatile boolean enabled;
+
+    /**
+     * Not instantiable.
+     */
+    private GameEvents() {
+    }
+
+    /**
+     * Checks if the game emits its events.
+     *
+     * @return true once a recording has been started
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts a recording with the game's profile, written to the given file when the JVM exits, and turns the game events on.
+     *
+     * @param destination the file the recording is written to
+     * @return the running recording
+     * @throws IOException if the profile cannot be read or the destination cannot be written
+     * @throws ParseException if the profile is malformed
+     */
+    public static Recording startRecording(Path destination) throws IOException, ParseException {
+        Configuration configuration;
+        try (InputStream stream = GameEvents.class.getResourceAsStream(CONFIGURATION)) {
+            if (stream == null) throw new IOException("Profile not found: " + CONFIGURATION);
+            try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+                configuration = Configuration.create(reader);
+            }
+        }
+
+        Recording recording = new Recording(configuration);
+        recording.setName("snake");
+        recording.setToDisk(true);
+        recording.setDestination(destination);
+        recording.setDumpOnExit(true);
+        recording.start();
+        enabled = true;
+        return recording;
+    }
+}
@@ -0,0 +1,26 @@
+package com.snakegame.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning the handling of a key press by the controller.
+ *
+ * @author Alessandro Sorbara
+ */
+@Name("com.snakegame.KeyPress")
+@Label("Key Press")
+@Category({"Snake Game", "Controller"})
+@StackTrace(false)
+public class KeyPressEvent extends jdk.jfr.Event {
+
+    @Label("Key")
+    public String key;
+
+    @Label("Queued")
+    @Description("True if the key queued a turn, false if it was ignored, rejected or started a game")
+    public boolean queued;
+}
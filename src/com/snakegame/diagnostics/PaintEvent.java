@@ -0,0 +1,34 @@
+package com.snakegame.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning one call of GamePanel.paintComponent, which paints either a single tile
+ * changed between frames or a whole area.
+ *
+ * @author Alessandro Sorbara
+ */
+@Name("com.snakegame.Paint")
+@Label("Paint")
+@Category({"Snake Game", "View"})
+@Description("A paint of the game panel, for one changed tile or a whole area")
+@StackTrace(false)
+public class PaintEvent extends jdk.jfr.Event {
+
+    @Label("Segments Drawn")
+    public int segmentsDrawn;
+
+    @Label("Clip Width")
+    public int clipWidth;
+
+    @Label("Clip Height")
+    public int clipHeight;
+
+    @Label("Incremental")
+    @Description("True if only a tile changed since the last frame was painted")
+    public boolean incremental;
+}
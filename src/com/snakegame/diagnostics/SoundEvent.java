@@ -0,0 +1,27 @@
+package com.snakegame.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning one call of SoundManager.playSound, which hands the sound to the mixer thread.
+ *
+ * @author Alessandro Sorbara
+ */
+@Name("com.snakegame.Sound")
+@Label("Sound Trigger")
+@Category({"Snake Game", "Audio"})
+@StackTrace(false)
+public class SoundEvent extends jdk.jfr.Event {
+
+    @Label("Sound")
+    public String sound;
+
+    @Label("Brainrot")
+    public boolean brainrot;
+
+    @Label("Triggered")
+    public boolean triggered;
+}
@@ -0,0 +1,36 @@
+package com.snakegame.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning one move of the snake on the board, including the apple spawn it triggers.
+ *
+ * @author Alessandro Sorbara
+ */
+@Name("com.snakegame.Tick")
+@Label("Tick")
+@Category({"Snake Game", "Model"})
+@Description("A move of the snake, with the apple spawn it triggers")
+@StackTrace(false)
+public class TickEvent extends jdk.jfr.Event {
+
+    @Label("Snake Length")
+    public int length;
+
+    @Label("Apple Eaten")
+    public boolean appleEaten;
+
+    @Label("Spawn Attempts")
+    @Description("Random cells drawn to place the new apple, 0 if none was spawned")
+    public int spawnAttempts;
+
+    @Label("Game Over")
+    public boolean gameOver;
+
+    @Label("Game Won")
+    public boolean gameWon;
+}
@@ -0,0 +1,38 @@
+package com.snakegame.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free event counter, safe to increment from any thread without allocating.
+ *
+ * @author Alessandro Sorbara
+ */
+public class Counter {
+
+    private final AtomicLong value = new AtomicLong();
+
+    /**
+     * Adds one to the counter.
+     */
+    public void increment() {
+        value.incrementAndGet();
+    }
+
+    /**
+     * Adds the given amount to the counter.
+     *
+     * @param amount the amount to add
+     */
+    public void add(long amount) {
+        value.addAndGet(amount);
+    }
+
+    /**
+     * Returns the current value of the counter.
+     *
+     * @return the number of events counted so far
+     */
+    public long get() {
+        return value.get();
+    }
+}
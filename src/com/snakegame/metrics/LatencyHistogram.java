@@ -0,0 +1,148 @@
+package com.snakegame.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds, with a fixed set of log-linear buckets:
+ * values below 8 get a bucket each, and every power of two above is split into 8 equal buckets,
+ * so a value is reported with at most 12.5% error over the whole range of a long.
+ * Recording is a few atomic increments into preallocated arrays, so it never locks and never allocates;
+ * percentiles are read from the live counts while other threads keep recording.
+ * Windowed percentiles, such as those of the last second, are computed by copying the counts
+ * and subtracting an earlier copy.
+ *
+ * @author Alessandro Sorbara
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    public static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration. Negative durations, from a clock going backwards, count as zero.
+     *
+     * @param nanos the duration, in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) current = max.get();
+    }
+
+    /**
+     * Returns the number of durations recorded.
+     *
+     * @return the number of durations
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the sum of the durations recorded.
+     *
+     * @return the total, in nanoseconds
+     */
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * Returns the longest duration recorded.
+     *
+     * @return the maximum, in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the durations recorded.
+     *
+     * @return the mean, in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / n;
+    }
+
+    /**
+     * Returns the given percentile of every duration recorded so far, as the upper bound of its bucket
+     * capped by the maximum. Copies the counts into a new array, so callers polling it repeatedly
+     * should keep their own array and use copyCounts instead.
+     *
+     * @param percentile the percentile, in [0, 100]
+     * @return the duration, in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long[] copy = new long[BUCKETS];
+        copyCounts(copy);
+        return Math.min(percentile(copy, percentile), getMax());
+    }
+
+    /**
+     * Copies the count of every bucket into the given array, without allocating.
+     *
+     * @param into an array of at least BUCKETS longs
+     */
+    public void copyCounts(long[] into) {
+        for (int i = 0; i < BUCKETS; i++) into[i] = counts.get(i);
+    }
+
+    /**
+     * Returns the given percentile of a set of bucket counts, as copied by copyCounts or subtracted from two copies.
+     *
+     * @param bucketCounts the count of every bucket
+     * @param percentile the percentile, in [0, 100]
+     * @return the upper bound of the bucket holding the percentile, in nanoseconds, or 0 if the counts are all zero
+     */
+    public static long percentile(long[] bucketCounts, double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += bucketCounts[i];
+        if (total == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank) return upperBound(i);
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    /**
+     * Returns the bucket of a duration.
+     *
+     * @param value the duration, non-negative
+     * @return the index of its bucket
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + (int) ((value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Returns the largest duration falling into a bucket.
+     *
+     * @param bucket the index of the bucket
+     * @return the upper bound of the bucket, inclusive
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+}
@@ -0,0 +1,147 @@
+package com.snakegame.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Named set of the counters and latency histograms of a game, created once when the components are wired
+ * and then recorded into without locking or allocating.
+ * The registry exports the same data the diagnostics overlay shows, plus the garbage collector counts,
+ * as CSV or JSON, so that headless runs can be compared from their dumps.
+ *
+ * @author Alessandro Sorbara
+ */
+public class MetricsRegistry {
+
+    public static final String TICK_TIME = "tick.time";
+    public static final String FRAME_TIME = "frame.time";
+    public static final String SPAWN_TIME = "spawn.time";
+    public static final String INPUT_LATENCY = "input.latency";
+    public static final String SOUND_TIME = "sound.time";
+    public static final String TICKS = "ticks";
+    public static final String FRAMES = "frames";
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_LABELS = {"p50", "p90", "p99", "p999"};
+
+    private final Map<String, Counter> counters = new LinkedHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+
+    /**
+     * Returns the counter with the given name, creating it on first use.
+     *
+     * @param name the name of the counter
+     * @return the counter
+     */
+    public synchronized Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /**
+     * Returns the histogram with the given name, creating it on first use.
+     *
+     * @param name the name of the histogram
+     * @return the histogram
+     */
+    public synchronized LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /**
+     * Returns the number of garbage collections run by the JVM so far, over every collector.
+     *
+     * @return the number of collections
+     */
+    public static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) total += Math.max(0, gc.getCollectionCount());
+        return total;
+    }
+
+    /**
+     * Returns the time the JVM spent collecting garbage so far, over every collector.
+     *
+     * @return the collection time, in milliseconds
+     */
+    public static long gcTimeMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) total += Math.max(0, gc.getCollectionTime());
+        return total;
+    }
+
+    /**
+     * Writes every metric as CSV, one row per counter or histogram followed by the garbage collector counts.
+     * Counters only fill the count column; durations are in nanoseconds.
+     *
+     * @param out the writer to write to
+     * @throws IOException if writing fails
+     */
+    public synchronized void writeCsv(Writer out) throws IOException {
+        out.write("metric,type,count,sum_ns,mean_ns,p50_ns,p90_ns,p99_ns,p999_ns,max_ns\n");
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            out.write(entry.getKey() + ",counter," + entry.getValue().get() + ",,,,,,,\n");
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            StringBuilder row = new StringBuilder(entry.getKey()).append(",histogram,")
+                    .append(histogram.getCount()).append(',').append(histogram.getSum()).append(',').append(histogram.getMean());
+            for (double percentile : PERCENTILES) row.append(',').append(histogram.getPercentile(percentile));
+            out.write(row.append(',').append(histogram.getMax()).append('\n').toString());
+        }
+        out.write("gc.count,counter," + gcCount() + ",,,,,,,\n");
+        out.write("gc.time_ms,counter," + gcTimeMillis() + ",,,,,,,\n");
+    }
+
+    /**
+     * Writes every metric as a JSON object with a counters and a histograms section and the garbage collector counts.
+     * Durations are in nanoseconds.
+     *
+     * @param out the writer to write to
+     * @throws IOException if writing fails
+     */
+    public synchronized void writeJson(Writer out) throws IOException {
+        StringBuilder json = new StringBuilder("{\n  \"counters\": {");
+        String separator = "\n";
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            json.append(separator).append("    \"").append(entry.getKey()).append("\": ").append(entry.getValue().get());
+            separator = ",\n";
+        }
+
+        json.append("\n  },\n  \"histograms\": {");
+        separator = "\n";
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            json.append(separator).append("    \"").append(entry.getKey()).append("\": {")
+                    .append("\"count\": ").append(histogram.getCount())
+                    .append(", \"sum_ns\": ").append(histogram.getSum())
+                    .append(", \"mean_ns\": ").append(histogram.getMean());
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                json.append(", \"").append(PERCENTILE_LABELS[i]).append("_ns\": ").append(histogram.getPercentile(PERCENTILES[i]));
+            }
+            json.append(", \"max_ns\": ").append(histogram.getMax()).append('}');
+            separator = ",\n";
+        }
+
+        json.append("\n  },\n  \"gc\": {\"count\": ").append(gcCount()).append(", \"time_ms\": ").append(gcTimeMillis()).append("}\n}\n");
+        out.write(json.toString());
+    }
+
+    /**
+     * Writes every metric to a file, as JSON if its name ends with .json and as CSV otherwise.
+     *
+     * @param file the file to write, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void dump(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file)) {
+            if (file.getFileName().toString().endsWith(".json")) writeJson(out);
+            else writeCsv(out);
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package com.snakegame.model;
 
-import java.util.Random;
-
 /**
  * Represents an apple on the game board.
  * The apple can be eaten by the snake, and its position is tracked using a Point.
@@ -10,15 +8,42 @@ import java.util.Random;
  */
 public class Apple {
 
+    private final PointTable points;
     private Point position;
 
-    private static final Random RANDOM = new Random();
-
     /**
-     * Constructs the first apple in a default position.
+     * Constructs the first apple in the default position of the default board.
      */
     public Apple() {
-        this.position = new Point(2,7);
+        this(Board.DEFAULT_WIDTH, Board.DEFAULT_HEIGHT);
+    }
+
+    /**
+     * Constructs the first apple in the default position of a board of the given size,
+     * on the snake's row, in front of its head.
+     *
+     * @param width the number of columns of the board
+     * @param height the number of rows of the board
+     */
+    public Apple(int width, int height) {
+        this(new PointTable(width, height));
+    }
+
+    /**
+     * Constructs the first apple in the default position of the board of the given point table.
+     *
+     * @param points the point table of the board
+     */
+    public Apple(PointTable points) {
+        this.points = points;
+        reset();
+    }
+
+    /**
+     * Moves the apple back to its default position, on the snake's row, in front of its head.
+     */
+    public void reset() {
+        position = points.get(2, points.getHeight() / 2);
     }
 
     /**
@@ -1,37 +1,223 @@
 package com.snakegame.model;
 
-import com.snakegame.view.utils.SoundManager;
+import com.snakegame.diagnostics.GameEvents;
+import com.snakegame.diagnostics.TickEvent;
+import com.snakegame.metrics.LatencyHistogram;
+import com.snakegame.metrics.MetricsRegistry;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 /**
  * Represents the game board for the Snake game.
  * It handles the snake's movement, apple spawning, boundary checks, and game state management.
  * The board ensures the game logic runs smoothly, including collision detection, scoring, and resetting the game.
+ * It has no GUI or audio dependencies: side effects are published to the registered GameListeners.
+ * Its only source of randomness is the generator it is given, so a seed and the sequence of moves
+ * fully determine a game.
+ * When enabled, the board publishes an immutable BoardSnapshot through a volatile reference after every tick or reset,
+ * so that other threads can read a consistent state without locking the board. Headless runs leave it disabled,
+ * saving an allocation per tick.
+ * Cells and points are converted through a PointTable owned by the board, which hands out one interned point per cell,
+ * so ticks do not allocate points.
+ * When given a MetricsRegistry, the board times every apple spawn; otherwise it reads no clock.
+ * While GameEvents are enabled, every move is also reported to the Flight Recorder as a TickEvent.
  *
  * @author Alessandro Sorbara
  */
 public class Board {
 
-    public static final int HEIGHT = 15;
-    public static final int WIDTH = 17;
+    public static final int DEFAULT_HEIGHT = 15;
+    public static final int DEFAULT_WIDTH = 17;
+    public static final int MIN_SIZE = 8;
+    public static final int MAX_SIZE = 4096;
 
+    private final int width;
+    private final int height;
+
+    private final PointTable points;
     private Snake snake;
     private Apple apple;
     private GameState gameState;
+    private final FreeCells freeCells;
+    private final Random random;
+
+    private final List<GameListener> listeners;
 
-    private SoundManager soundManager;
+    private boolean publishing;
+    private volatile BoardSnapshot snapshot;
+
+    private LatencyHistogram spawnTimes;
 
     /**
-     * Constructs a new Board object.
+     * Constructs a new Board object of the default size with an unseeded random number generator.
      * Initializes the snake, apple, and game state.
      */
     public Board() {
-        this.snake = new Snake();
-        this.apple = new Apple();
+        this(DEFAULT_WIDTH, DEFAULT_HEIGHT, new GameRandom());
+    }
+
+    /**
+     * Constructs a new Board object of the default size whose apples are placed by a generator
+     * seeded with the given value, so that the same seed and moves always reproduce the same game.
+     *
+     * @param seed the seed of the random number generator
+     */
+    public Board(long seed) {
+        this(DEFAULT_WIDTH, DEFAULT_HEIGHT, new GameRandom(seed));
+    }
+
+    /**
+     * Constructs a new Board object of the default size drawing apple positions from the given random number generator.
+     *
+     * @param random the random number generator used to spawn apples
+     */
+    public Board(Random random) {
+        this(DEFAULT_WIDTH, DEFAULT_HEIGHT, random);
+    }
+
+    /**
+     * Constructs a new Board object of the given size drawing apple positions from the given random number generator.
+     * Initializes the snake, apple, and game state.
+     *
+     * @param width the number of columns of the board
+     * @param height the number of rows of the board
+     * @param random the random number generator used to spawn apples
+     * @throws IllegalArgumentException if a dimension is outside [MIN_SIZE, MAX_SIZE]
+     */
+    public Board(int width, int height, Random random) {
+        if (width < MIN_SIZE || width > MAX_SIZE || height < MIN_SIZE || height > MAX_SIZE) {
+            throw new IllegalArgumentException("Board size must be between " + MIN_SIZE + " and " + MAX_SIZE + ": " + width + "x" + height);
+        }
+
+        this.width = width;
+        this.height = height;
+        this.random = random;
+        this.points = new PointTable(width, height);
+        this.snake = new Snake(points);
+        this.apple = new Apple(points);
         this.gameState = new GameState();
+        this.freeCells = new FreeCells(width * height);
+        syncFreeCells();
+
+        this.listeners = new ArrayList<>();
+    }
+
+    /**
+     * Registers a listener to be notified of the game events.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(GameListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a previously added listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(GameListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Enables or disables publishing a snapshot after every tick or reset. Enabling publishes one right away.
+     * While publishing, the snake keeps its body in an append-only log that snapshots share; otherwise it moves
+     * in a circular buffer without allocating.
+     * Must be called while the board is not ticking, or by the thread that ticks it.
+     *
+     * @param publishing true to publish snapshots
+     */
+    public void setPublishingSnapshots(boolean publishing) {
+        this.publishing = publishing;
+        snake.setLogging(publishing);
+        publish();
+    }
+
+    /**
+     * Records the time taken by every apple spawn into the SPAWN_TIME histogram of the given registry.
+     * Must be called while the board is not ticking, or by the thread that ticks it.
+     *
+     * @param metrics the registry to record into, or null to stop recording
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        this.spawnTimes = metrics == null ? null : metrics.histogram(MetricsRegistry.SPAWN_TIME);
+    }
+
+    /**
+     * Returns the snapshot published after the last tick or reset.
+     * Safe to call from any thread.
+     *
+     * @return the latest snapshot, or null if publishing was never enabled
+     */
+    public BoardSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Captures the current state, whether or not publishing is enabled. Without publishing, the body of the snake is copied.
+     * Must be called by the thread that ticks the board, or with the board locked.
+     *
+     * @return a new snapshot
+     */
+    public BoardSnapshot takeSnapshot() {
+        return new BoardSnapshot(this);
+    }
+
+    /**
+     * Returns the state of the random number generator, which decides where the next apples spawn.
+     *
+     * @return the 48-bit state, or -1 if the generator is not a GameRandom
+     */
+    public long getRandomState() {
+        return random instanceof GameRandom gameRandom ? gameRandom.getState() : -1;
+    }
+
+    /**
+     * Restores the state of the random number generator, so that the apples to come are the ones of a saved game.
+     *
+     * @param state a state returned by getRandomState
+     * @throws IllegalStateException if the generator is not a GameRandom
+     */
+    public void setRandomState(long state) {
+        if (!(random instanceof GameRandom gameRandom)) throw new IllegalStateException("The random number generator cannot be restored");
+        gameRandom.setState(state);
+    }
+
+    /**
+     * Publishes a snapshot of the current state, if publishing is enabled.
+     */
+    private void publish() {
+        if (publishing) snapshot = new BoardSnapshot(this);
+    }
+
+    /**
+     * Returns the number of columns of the board.
+     *
+     * @return the width of the board
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of rows of the board.
+     *
+     * @return the height of the board
+     */
+    public int getHeight() {
+        return height;
+    }
 
-        soundManager = new SoundManager();
+    /**
+     * Returns the table of the interned points of the board, which also converts cells and directions without allocating.
+     *
+     * @return the point table
+     */
+    public PointTable getPoints() {
+        return points;
     }
 
     /**
@@ -62,40 +248,41 @@ public class Board {
     }
 
     /**
-     * Checks if the head of the snake hits the body or if it
-     * is out of the game boundaries, ending the game.
+     * Checks if the head of the snake, entering the given cell, would leave the game
+     * boundaries or hit the body, ending the game.
+     * The check runs against the snake's occupancy grid, so it takes constant time.
+     * The tail cell does not count as a hit unless the snake is growing, since it is vacated on the same tick.
+     *
+     * @param next the cell the head is about to enter, or -1 if it is out of the board
+     * @return true if the move ends the game, false otherwise
      */
-    private void checkFail() {
-        if (snake.head().getX() < 0 || snake.head().getX() >= WIDTH || snake.head().getY() < 0 || snake.head().getY() >= HEIGHT) gameState.lose();
-        for (int i = 1; i < snake.getBody().size(); i++) if (snake.getBody().get(i).equals(snake.head())) gameState.lose();
+    private boolean checkFail(int next) {
+        if (next < 0) return true;
+        if (!snake.occupies(next)) return false;
+        return snake.isGrowing() || next != snake.tailCell();
     }
 
     /**
-     * Checks if a given position is occupied by either the snake or the apple.
-     *
-     * @param position the position to check
-     * @return true if the position is occupied, false otherwise
+     * Rebuilds the free-cell index from scratch, taking out every cell covered by the snake.
      */
-    private boolean isPositionOccupied(Point position) {
-        if (position.equals(apple.getPosition())) return true;
-        for (Point s : snake) if (position.equals(s)) return true;
-        return false;
+    private void syncFreeCells() {
+        freeCells.reset();
+        for (int i = 0; i < snake.size(); i++) freeCells.remove(snake.cellAt(i));
     }
 
     /**
-     * Spawns a new apple at a random position on the board that is not occupied.
+     * Spawns a new apple at a random cell of the board that is not covered by the snake.
+     * The cell is picked from the free-cell index without retrying on taken cells.
+     * If no free cell is left, the snake covers the whole board and the game is won.
      */
     private void spawnApple() {
-        Random random = new Random();
-        Point newPosition;
-
-        do {
-            int x = random.nextInt(Board.WIDTH);
-            int y = random.nextInt(Board.HEIGHT);
-            newPosition = new Point(x, y);
-        } while(isPositionOccupied(newPosition));
+        if (freeCells.isEmpty()) {
+            gameState.win();
+            for (int i = 0; i < listeners.size(); i++) listeners.get(i).gameWon(this);
+            return;
+        }
 
-        apple.setPosition(newPosition);
+        apple.setPosition(points.get(freeCells.random(random)));
     }
 
     /**
@@ -104,20 +291,69 @@ public class Board {
      * If the snake eats an apple, it grows and the score is incremented.
      * If the snake collides with itself or the boundary, the game ends.
      * If the snake covers all the board, the game has been won.
+     * While GameEvents are enabled, the move is recorded as a TickEvent.
      *
      * @param direction the direction to move the snake
      */
     public void moveSnake(Direction direction) {
-        snake.move(direction);
+        if (!GameEvents.isEnabled()) {
+            applyMove(direction);
+            return;
+        }
+
+        TickEvent event = new TickEvent();
+        event.begin();
+        boolean ate = applyMove(direction);
+        event.end();
+        if (event.shouldCommit()) {
+            event.length = snake.size();
+            event.appleEaten = ate;
+            event.spawnAttempts = ate && !gameState.isGameWon() ? freeCells.getLastAttempts() : 0;
+            event.gameOver = gameState.isGameOver();
+            event.gameWon = gameState.isGameWon();
+            event.commit();
+        }
+    }
+
+    /**
+     * Applies a move of the snake: checks the collisions, moves the snake and, if it eats the apple,
+     * grows it, increments the score and spawns a new apple.
+     *
+     * @param direction the direction to move the snake
+     * @return true if the snake ate the apple
+     */
+    private boolean applyMove(Direction direction) {
+        if (gameState.isGameOver() || gameState.isGameWon()) return false;
+
+        int next = snake.nextCell(direction);
+        if (checkFail(next)) {
+            gameState.lose();
+            publish();
+            for (int i = 0; i < listeners.size(); i++) listeners.get(i).gameLost(this);
+            return false;
+        }
+
+        int vacated = snake.move(direction);
+        if (vacated >= 0) freeCells.add(vacated);
+        freeCells.remove(next);
 
-        if (snake.head().equals(apple.getPosition())) {
-            soundManager.playSound("crunch.wav", true);
+        Point applePosition = apple.getPosition();
+        boolean ate = next == points.cellOf(applePosition);
+        if (ate) {
             snake.grow();
             gameState.incrementScore();
-            spawnApple();
+            for (int i = 0; i < listeners.size(); i++) listeners.get(i).appleEaten(this);
+            LatencyHistogram spawns = spawnTimes;
+            if (spawns == null) {
+                spawnApple();
+            } else {
+                long start = System.nanoTime();
+                spawnApple();
+                spawns.record(System.nanoTime() - start);
+            }
         }
-
-        checkFail();
+        publish();
+        return ate;
     }
 
     /**
@@ -125,7 +361,83 @@ public class Board {
      */
     public void resetBoard() {
         snake.initializeSnake();
-        apple = new Apple();
+        apple.reset();
+        gameState.reset();
+        syncFreeCells();
+        publish();
+    }
+
+    /**
+     * Reseeds the random number generator and resets the board, so that the new game
+     * is reproduced by the same seed and moves.
+     *
+     * @param seed the seed of the new game
+     */
+    public void resetBoard(long seed) {
+        random.setSeed(seed);
+        resetBoard();
+    }
+
+    /**
+     * Restores a position saved from a running game: the snake laid on the given cells, head first,
+     * the apple on the given cell and the given score. Nothing is drawn from the random number generator.
+     *
+     * @param snakeCells the packed cell indices of the snake's segments, head first
+     * @param length the number of segments to take from the array
+     * @param growing true if the snake had just eaten and keeps its tail on the next move
+     * @param appleCell the packed cell index of the apple
+     * @param score the score of the game
+     * @throws IllegalArgumentException if the snake is not a valid body on this board, or the apple is off the board
+     *                                  or under the snake
+     */
+    public void restoreBoard(int[] snakeCells, int length, boolean growing, int appleCell, int score) {
+        restoreBoard(snakeCells, length, growing, appleCell, score, false, false);
+    }
+
+    /**
+     * Restores a position saved from a game, running or finished: the snake laid on the given cells, head first,
+     * the apple on the given cell, the given score and end of game flags. Nothing is drawn from the random number generator.
+     *
+     * @param snakeCells the packed cell indices of the snake's segments, head first
+     * @param length the number of segments to take from the array
+     * @param growing true if the snake had just eaten and keeps its tail on the next move
+     * @param appleCell the packed cell index of the apple
+     * @param score the score of the game
+     * @param gameOver true if the game was lost
+     * @param gameWon true if the game was won
+     * @throws IllegalArgumentException if the snake is not a valid body on this board, or the apple is off the board
+     *                                  or, unless the game was won, under the snake
+     */
+    public void restoreBoard(int[] snakeCells, int length, boolean growing, int appleCell, int score, boolean gameOver, boolean gameWon) {
+        if (appleCell < 0 || appleCell >= width * height) throw new IllegalArgumentException("Apple outside the board: " + appleCell);
+        for (int i = 0; i < Math.min(length, snakeCells.length) && !gameWon; i++) {
+            if (snakeCells[i] == appleCell) throw new IllegalArgumentException("Apple under segment " + i + ": " + appleCell);
+        }
+        snake.initializeSnake(snakeCells, length);
+        if (growing) snake.grow();
+        apple.setPosition(points.get(appleCell));
+        gameState.reset();
+        gameState.setScore(score);
+        gameState.start();
+        if (gameOver) gameState.lose();
+        if (gameWon) gameState.win();
+        syncFreeCells();
+        publish();
+    }
+
+    /**
+     * Resets the board with the snake laid on the given cells, head first, and the apple on a random free cell.
+     * Used to set up arbitrary positions, such as for benchmarks or restored games.
+     *
+     * @param snakeCells the packed cell indices of the snake's segments, head first
+     * @param length the number of segments to take from the array
+     * @throws IllegalArgumentException if the snake is not a valid body on this board
+     */
+    public void resetBoard(int[] snakeCells, int length) {
+        snake.initializeSnake(snakeCells, length);
         gameState.reset();
+        syncFreeCells();
+        spawnApple();
+        publish();
     }
 }
\ No newline at end of file
@@ -0,0 +1,232 @@
+package com.snakegame.model;
+
+/**
+ * Immutable view of the board after a tick, published by the Board for threads that must not lock it, such as the renderer.
+ * While the board publishes snapshots, the snake keeps an append-only log of head cells and a snapshot holds a window
+ * over it, which is shared rather than copied: the slots inside the window are never written again, so taking a snapshot
+ * costs the same whatever the length of the snake. Otherwise the snake reuses its slots, and the body is copied.
+ * Every cell the head entered since the snake was initialized has a sequence number, so two snapshots of the same
+ * generation can be compared to find the cells entered and vacated in between.
+ *
+ * @author Alessandro Sorbara
+ */
+public final class BoardSnapshot {
+
+    private final int width;
+    private final int height;
+    private final int[] cells;
+    private final int headIndex;
+    private final int size;
+    private final long base;
+    private final int generation;
+    private final int previousHead;
+    private final int previousTail;
+    private final int appleCell;
+    private final int score;
+    private final boolean growing;
+    private final long randomState;
+    private final boolean gameOver;
+    private final boolean gameWon;
+
+    /**
+     * Captures the current state of a board, sharing the snake's log if it keeps one and copying the body otherwise.
+     * Must be called by the thread that moves the snake.
+     *
+     * @param board the board to capture
+     */
+    BoardSnapshot(Board board) {
+        Snake snake = board.getSnake();
+        GameState state = board.getGameState();
+        Point apple = board.getApple().getPosition();
+
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+        this.size = snake.size();
+        if (snake.isLogging()) {
+            this.cells = snake.log();
+            this.headIndex = snake.logHead();
+        } else {
+            this.cells = new int[size];
+            for (int i = 0; i < size; i++) cells[size - 1 - i] = snake.cellAt(i);
+            this.headIndex = size - 1;
+        }
+        this.base = snake.headSequence() - headIndex;
+        this.generation = snake.generation();
+        this.previousHead = snake.previousCellAt(0);
+        this.previousTail = snake.previousCellAt(size - 1);
+        this.appleCell = snake.cellOf(apple.getX(), apple.getY());
+        this.score = state.getScore();
+        this.growing = snake.isGrowing();
+        this.randomState = board.getRandomState();
+        this.gameOver = state.isGameOver();
+        this.gameWon = state.isGameWon();
+    }
+
+    /**
+     * Returns the number of columns of the board.
+     *
+     * @return the width of the board
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of rows of the board.
+     *
+     * @return the height of the board
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the number of segments of the snake.
+     *
+     * @return the length of the snake
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the packed cell index of the i-th segment, counting from the head.
+     *
+     * @param i the segment index, 0 being the head
+     * @return the cell of the segment
+     */
+    public int cellAt(int i) {
+        return cells[headIndex - i];
+    }
+
+    /**
+     * Returns the packed cell index of the head.
+     *
+     * @return the head cell
+     */
+    public int headCell() {
+        return cells[headIndex];
+    }
+
+    /**
+     * Returns the packed cell index of the tail.
+     *
+     * @return the tail cell
+     */
+    public int tailCell() {
+        return cells[headIndex - size + 1];
+    }
+
+    /**
+     * Returns the cell the head occupied before the last move, or the head cell if the snake has not moved yet.
+     *
+     * @return the previous head cell
+     */
+    public int previousHeadCell() {
+        return previousHead;
+    }
+
+    /**
+     * Returns the cell the tail occupied before the last move, or the tail cell if it did not move.
+     *
+     * @return the previous tail cell
+     */
+    public int previousTailCell() {
+        return previousTail;
+    }
+
+    /**
+     * Returns the sequence number of the head, which grows by one every move.
+     *
+     * @return the sequence number of the head cell
+     */
+    public long getHeadSequence() {
+        return base + headIndex;
+    }
+
+    /**
+     * Returns the sequence number of the tail.
+     *
+     * @return the sequence number of the tail cell
+     */
+    public long getTailSequence() {
+        return base + headIndex - size + 1;
+    }
+
+    /**
+     * Returns the cell the head entered at the given sequence number, if this snapshot still holds it.
+     * Every segment is available, as well as the cell of any later head, and a few cells vacated just behind the tail.
+     *
+     * @param sequence the sequence number of the cell
+     * @return the packed cell index, or -1 if the cell is not held
+     */
+    public int cellAtSequence(long sequence) {
+        long index = sequence - base;
+        if (index < 0 || index > headIndex) return -1;
+        return cells[(int) index];
+    }
+
+    /**
+     * Returns a counter that changes whenever the snake is reset or restored.
+     * Sequence numbers of snapshots of different generations are unrelated.
+     *
+     * @return the generation of the snake
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the packed cell index of the apple.
+     *
+     * @return the apple cell
+     */
+    public int getAppleCell() {
+        return appleCell;
+    }
+
+    /**
+     * Returns the score.
+     *
+     * @return the score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Checks if the snake had just eaten and keeps its tail on the next move.
+     *
+     * @return true if the snake is growing
+     */
+    public boolean isGrowing() {
+        return growing;
+    }
+
+    /**
+     * Returns the state of the board's random number generator, which decides where the next apples spawn.
+     *
+     * @return the 48-bit state, or -1 if the board's generator is not a GameRandom
+     */
+    public long getRandomState() {
+        return randomState;
+    }
+
+    /**
+     * Checks if the game was lost.
+     *
+     * @return true if the game is over
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * Checks if the game was won.
+     *
+     * @return true if the snake covers the whole board
+     */
+    public boolean isGameWon() {
+        return gameWon;
+    }
+}
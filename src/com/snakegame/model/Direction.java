@@ -7,4 +7,18 @@ package com.snakegame.model;
  */
 public enum Direction {
     UP, DOWN, LEFT, RIGHT;
-}
\ No newline at end of file
+
+    /**
+     * Returns the direction pointing the other way.
+     *
+     * @return the opposite direction
+     */
+    public Direction opposite() {
+        return switch (this) {
+            case UP -> DOWN;
+            case DOWN -> UP;
+            case LEFT -> RIGHT;
+            case RIGHT -> LEFT;
+        };
+    }
+}
@@ -0,0 +1,169 @@
+package com.snakegame.model;
+
+import java.util.Random;
+
+/**
+ * Indexed set of the board cells that are not covered by the snake.
+ * Cells are kept in a bitset, one bit per cell, with a Fenwick tree counting the free cells of each 64-bit word,
+ * so that the whole index stays around 1.5 bits per cell even on the largest boards.
+ * Adding and removing a cell take O(log(cells / 64)) time; picking a uniformly random free cell takes
+ * expected constant time while at least half of the board is free, and O(log(cells / 64)) time otherwise.
+ *
+ * @author Alessandro Sorbara
+ */
+public class FreeCells {
+
+    private final int capacity;
+    private final long[] words;
+    private final int[] tree;
+    private int size;
+    private int lastAttempts;
+
+    /**
+     * Constructs a set in which every cell of the board is free.
+     *
+     * @param capacity the number of cells of the board
+     */
+    public FreeCells(int capacity) {
+        this.capacity = capacity;
+        this.words = new long[(capacity + 63) >>> 6];
+        this.tree = new int[words.length + 1];
+        reset();
+    }
+
+    /**
+     * Marks every cell of the board as free again.
+     */
+    public void reset() {
+        for (int w = 0; w < words.length; w++) {
+            int bits = Math.min(64, capacity - (w << 6));
+            words[w] = bits == 64 ? -1L : (1L << bits) - 1;
+        }
+
+        for (int i = 1; i < tree.length; i++) tree[i] = Long.bitCount(words[i - 1]);
+        for (int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < tree.length) tree[parent] += tree[i];
+        }
+
+        size = capacity;
+    }
+
+    /**
+     * Returns the number of free cells.
+     *
+     * @return the number of free cells
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if no free cell is left.
+     *
+     * @return true if every cell is taken, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Checks if a cell is free.
+     *
+     * @param cell the packed cell index
+     * @return true if the cell is free, false otherwise
+     */
+    public boolean contains(int cell) {
+        return (words[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Marks a cell as free. Does nothing if it already is.
+     *
+     * @param cell the packed cell index
+     */
+    public void add(int cell) {
+        if (contains(cell)) return;
+        words[cell >>> 6] |= 1L << cell;
+        update(cell >>> 6, 1);
+        size++;
+    }
+
+    /**
+     * Marks a cell as taken. Does nothing if it already is.
+     *
+     * @param cell the packed cell index
+     */
+    public void remove(int cell) {
+        if (!contains(cell)) return;
+        words[cell >>> 6] &= ~(1L << cell);
+        update(cell >>> 6, -1);
+        size--;
+    }
+
+    /**
+     * Picks a uniformly random free cell.
+     * While the board is at least half free, random cells are drawn until a free one comes up,
+     * which takes two draws on average; past that, a random rank is drawn and located through the Fenwick tree.
+     *
+     * @param random the random number generator to draw from
+     * @return the packed index of a free cell
+     * @throws IllegalStateException if there is no free cell
+     */
+    public int random(Random random) {
+        if (size == 0) throw new IllegalStateException("No free cell left");
+
+        if (size >= capacity - size) {
+            for (int attempts = 1; ; attempts++) {
+                int cell = random.nextInt(capacity);
+                if (contains(cell)) {
+                    lastAttempts = attempts;
+                    return cell;
+                }
+            }
+        }
+
+        lastAttempts = 1;
+        return select(random.nextInt(size));
+    }
+
+    /**
+     * Returns the number of random numbers drawn by the last call to random.
+     *
+     * @return the number of draws, at least 1 once a cell has been picked
+     */
+    public int getLastAttempts() {
+        return lastAttempts;
+    }
+
+    /**
+     * Returns the free cell with the given rank, in increasing cell order.
+     *
+     * @param rank the number of free cells preceding the one to return
+     * @return the packed index of the free cell
+     */
+    private int select(int rank) {
+        int word = 0;
+        for (int step = Integer.highestOneBit(words.length); step > 0; step >>= 1) {
+            int next = word + step;
+            if (next < tree.length && tree[next] <= rank) {
+                word = next;
+                rank -= tree[next];
+            }
+        }
+
+        long bits = words[word];
+        for (int i = 0; i < rank; i++) bits &= bits - 1;
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Adds a delta to the free-cell count of a word in the Fenwick tree.
+     *
+     * @param word the index of the word
+     * @param delta the change in free cells
+     */
+    private void update(int word, int delta) {
+        for (int i = word + 1; i < tree.length; i += i & -i) tree[i] += delta;
+    }
+}
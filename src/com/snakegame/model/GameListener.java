@@ -0,0 +1,32 @@
+package com.snakegame.model;
+
+/**
+ * Receives the side effects of the game emitted by the Board, such as an apple being eaten or the game ending.
+ * The model never plays sounds or touches the GUI itself; front ends subscribe to these events instead.
+ * Every method has an empty default implementation, so listeners only override what they need.
+ *
+ * @author Alessandro Sorbara
+ */
+public interface GameListener {
+
+    /**
+     * Called after the snake eats an apple and the score is incremented.
+     *
+     * @param board the board on which the apple was eaten
+     */
+    default void appleEaten(Board board) {}
+
+    /**
+     * Called when the snake hits a wall or itself and the game is lost.
+     *
+     * @param board the board on which the game was lost
+     */
+    default void gameLost(Board board) {}
+
+    /**
+     * Called when the snake covers the whole board and the game is won.
+     *
+     * @param board the board on which the game was won
+     */
+    default void gameWon(Board board) {}
+}
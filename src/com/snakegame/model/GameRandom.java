@@ -0,0 +1,78 @@
+package com.snakegame.model;
+
+import java.util.Random;
+
+/**
+ * Random number generator of the game model.
+ * It produces exactly the same sequence as java.util.Random for the same seed, but keeps its state
+ * in a plain field that can be read and restored, so that a game can be snapshotted and resumed
+ * with the same apples to come. Unlike java.util.Random it is not thread-safe, since every board
+ * owns its generator.
+ *
+ * @author Alessandro Sorbara
+ */
+public class GameRandom extends Random {
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    /**
+     * Creates a generator with a seed that is very likely to differ from any other invocation.
+     */
+    public GameRandom() {
+        super();
+    }
+
+    /**
+     * Creates a generator with the given seed.
+     *
+     * @param seed the initial seed
+     */
+    public GameRandom(long seed) {
+        super(seed);
+    }
+
+    /**
+     * Sets the seed of the generator, scrambling it the same way java.util.Random does.
+     *
+     * @param seed the new seed
+     */
+    @Override
+    public void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    /**
+     * Returns the internal 48-bit state of the generator.
+     *
+     * @return the current state
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Restores a state previously returned by getState, resuming the sequence from that point.
+     *
+     * @param state the state to restore
+     */
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+
+    /**
+     * Advances the linear congruential generator and returns its top bits.
+     *
+     * @param bits the number of random bits to return
+     * @return the next pseudorandom value
+     */
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+}
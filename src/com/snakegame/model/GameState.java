@@ -11,6 +11,7 @@ public class GameState {
     private int score;
     private boolean gameStarted;
     private boolean gameOver;
+    private boolean gameWon;
 
     /**
      * Constructs a new GameState with an initial score of 0 and gameOver set to false.
@@ -19,6 +20,7 @@ public class GameState {
         this.score = 0;
         this.gameStarted = false;
         this.gameOver = false;
+        this.gameWon = false;
     }
 
     /**
@@ -38,6 +40,15 @@ public class GameState {
         score++;
     }
 
+    /**
+     * Sets the score, as when a saved game is restored.
+     *
+     * @param score the new score
+     */
+    public void setScore(int score) {
+        this.score = score;
+    }
+
     /**
      * Checks if the game is over.
      *
@@ -47,6 +58,15 @@ public class GameState {
         return gameOver;
     }
 
+    /**
+     * Checks if the game has been won.
+     *
+     * @return true if the snake covers the whole board, false otherwise
+     */
+    public boolean isGameWon() {
+        return gameWon;
+    }
+
     /**
      * Checks if the game is started.
      *
@@ -70,6 +90,13 @@ public class GameState {
         gameOver = true;
     }
 
+    /**
+     * Sets the game won flag to true, indicating that the snake covers the whole board.
+     */
+    public void win() {
+        gameWon = true;
+    }
+
     /**
      * Resets the game state, setting the score to 0, gameOver and gameWon to false.
      * This method is useful for starting a new game.
@@ -77,5 +104,6 @@ public class GameState {
     public void reset() {
         this.score = 0;
         this.gameOver = false;
+        this.gameWon = false;
     }
 }
\ No newline at end of file
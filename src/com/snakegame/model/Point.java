@@ -3,13 +3,15 @@ package com.snakegame.model;
 /**
  * Represents a 2D point or position on the game board.
  * Used for storing the position of segments, apples, or any object in the game world.
+ * Points are immutable; the model hands out the canonical instance of each cell from its PointTable
+ * rather than creating new ones, while equal points from any source still compare and hash alike.
  *
  * @author Alessandro Sorbara
  */
 public class Point {
 
-    private int x;
-    private int y;
+    private final int x;
+    private final int y;
 
     /**
      * Constructs a new point with the given x and y coordinates.
@@ -44,6 +46,7 @@ public class Point {
      * Utility method that returns a new point that represents
      * the sum of two given points given in input.
      * Very usefull in determining snake movement.
+     * Allocates a new point: code moving on the board should use PointTable.neighbor instead.
      *
      * @param p1 first point
      * @param p2 second point
@@ -57,6 +60,7 @@ public class Point {
      * Utility method that returns a new point that represents
      * the subtraction of two given points given in input.
      * Very usefull in determining snake segments direction.
+     * Allocates a new point: code working on the board should compare packed cells instead.
      *
      * @param p1 first point
      * @param p2 second point
@@ -79,4 +83,14 @@ public class Point {
         if (!(obj instanceof Point p)) return false;
         return x == p.getX() && y == p.getY();
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns a hash code consistent with equals, computed from the coordinates.
+     *
+     * @return the hash code of the point
+     */
+    @Override
+    public int hashCode() {
+        return 31 * x + y;
+    }
+}
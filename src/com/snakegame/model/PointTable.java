@@ -0,0 +1,150 @@
+package com.snakegame.model;
+
+/**
+ * Table of the canonical Point of every cell of a board, indexed by packed cell index (y * width + x),
+ * together with the primitive cell arithmetic the model uses instead of creating points.
+ * Points are created the first time their cell is asked for and handed out again on every later request,
+ * so that once a game has touched its cells, converting cells to points no longer allocates.
+ * The table is split into pages allocated on demand, so that the largest boards only pay for the cells in use.
+ * Lookups may race from several threads: two threads may then both create the point of a cell, and one of them
+ * is kept; since points are immutable, either one is a valid, equal instance.
+ *
+ * @author Alessandro Sorbara
+ */
+public class PointTable {
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private final int width;
+    private final int height;
+    private final Point[][] pages;
+
+    /**
+     * Constructs an empty table for a board of the given size.
+     *
+     * @param width the number of columns of the board
+     * @param height the number of rows of the board
+     */
+    public PointTable(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.pages = new Point[(width * height + PAGE_SIZE - 1) >>> PAGE_BITS][];
+    }
+
+    /**
+     * Returns the number of columns of the board.
+     *
+     * @return the width of the board
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of rows of the board.
+     *
+     * @return the height of the board
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the canonical point of a cell.
+     *
+     * @param cell the packed cell index
+     * @return the point with the coordinates of the cell, the same instance on every call
+     * @throws ArrayIndexOutOfBoundsException if the cell is outside the board
+     */
+    public Point get(int cell) {
+        if (cell < 0 || cell >= width * height) throw new ArrayIndexOutOfBoundsException("Cell outside the board: " + cell);
+
+        Point[] page = pages[cell >>> PAGE_BITS];
+        if (page == null) {
+            page = new Point[PAGE_SIZE];
+            pages[cell >>> PAGE_BITS] = page;
+        }
+
+        Point point = page[cell & (PAGE_SIZE - 1)];
+        if (point == null) {
+            point = new Point(cell % width, cell / width);
+            page[cell & (PAGE_SIZE - 1)] = point;
+        }
+        return point;
+    }
+
+    /**
+     * Returns the canonical point of the given coordinates.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @return the point with the given coordinates, the same instance on every call
+     * @throws ArrayIndexOutOfBoundsException if the coordinates are outside the board
+     */
+    public Point get(int x, int y) {
+        if (!contains(x, y)) throw new ArrayIndexOutOfBoundsException("Point outside the board: " + x + ", " + y);
+        return get(cellOf(x, y));
+    }
+
+    /**
+     * Checks if the given coordinates lie on the board.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @return true if the coordinates are on the board
+     */
+    public boolean contains(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /**
+     * Returns the packed cell index of the given coordinates.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @return the cell index
+     */
+    public int cellOf(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * Returns the packed cell index of a point.
+     *
+     * @param point the point, interned or not
+     * @return the cell index
+     */
+    public int cellOf(Point point) {
+        return cellOf(point.getX(), point.getY());
+    }
+
+    /**
+     * Returns the neighbor of a cell in the given direction.
+     *
+     * @param cell the packed cell index
+     * @param direction the direction of the neighbor
+     * @return the packed index of the neighbor, or -1 if it is off the board
+     */
+    public int neighbor(int cell, Direction direction) {
+        return switch (direction) {
+            case UP -> cell >= width ? cell - width : -1;
+            case DOWN -> cell < (height - 1) * width ? cell + width : -1;
+            case LEFT -> cell % width > 0 ? cell - 1 : -1;
+            case RIGHT -> cell % width < width - 1 ? cell + 1 : -1;
+        };
+    }
+
+    /**
+     * Returns the canonical point next to the given one in the given direction, the allocation-free
+     * counterpart of adding a unit vector with Point.add.
+     *
+     * @param point the point to move from, on the board
+     * @param direction the direction of the neighbor
+     * @return the neighboring point, or null if it is off the board
+     */
+    public Point neighbor(Point point, Direction direction) {
+        int next = neighbor(cellOf(point), direction);
+        return next < 0 ? null : get(next);
+    }
+}
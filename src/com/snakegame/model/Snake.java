@@ -1,46 +1,182 @@
 package com.snakegame.model;
 
+import java.util.AbstractList;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * Represents the snake.
  * It handles the snake's movement, growth, direction changes, and collision checks.
+ * The body is stored as the packed cell indices (y * width + x) the head has entered, in an array whose length is
+ * a power of two, together with an occupancy bitset, so that moving and occupancy checks never depend on the snake's length.
+ * By default the array is a circular buffer: moving overwrites the vacated tail slot and only growing past
+ * the capacity allocates. While logging, as when the board publishes snapshots, the array is instead an append-only log:
+ * a slot is never written twice and, when the log is full, the live body is copied into a new array, keeping a few
+ * vacated cells behind the tail. This lets a BoardSnapshot share the log with the snake instead of copying the body,
+ * while the snake keeps moving on another thread.
+ * Cells are turned into points, and back, through the board's PointTable, so the point views of the body
+ * hand out interned points instead of allocating.
  *
  * @author Alessandro Sorbara
  */
 public class Snake implements Iterable<Point> {
 
-    private List<Point> body;
+    private static final int INITIAL_CAPACITY = 16;
+    static final int VACATED_MARGIN = 16;
+
+    private final int width;
+    private final int height;
+    private final PointTable points;
+
+    private int[] cells;
+    private int mask;
+    private int headIndex;
+    private int size;
+    private long sequence;
+    private int generation;
+    private boolean logging;
+    private final long[] occupied;
     private boolean grows;
+    private boolean moved;
+    private int lastVacated;
 
     /**
-     * Constructs a new Snake object and initializes its body.
+     * Constructs a new Snake object on the default board and initializes its body.
      */
     public Snake() {
-        this.body = new LinkedList<Point>();
+        this(Board.DEFAULT_WIDTH, Board.DEFAULT_HEIGHT);
+    }
+
+    /**
+     * Constructs a new Snake object on a board of the given size and initializes its body.
+     * The occupancy bitset takes one bit per cell, while the body buffer grows with the snake.
+     *
+     * @param width the number of columns of the board
+     * @param height the number of rows of the board
+     */
+    public Snake(int width, int height) {
+        this(new PointTable(width, height));
+    }
+
+    /**
+     * Constructs a new Snake object on the board of the given point table and initializes its body.
+     *
+     * @param points the point table of the board
+     */
+    public Snake(PointTable points) {
+        this.width = points.getWidth();
+        this.height = points.getHeight();
+        this.points = points;
+        this.occupied = new long[(width * height + 63) >>> 6];
         initializeSnake();
         grows = false;
     }
 
     /**
-     * Initializes the snake's body clearing it and then adding three points.
+     * Initializes the snake's body clearing it and then adding three points
+     * on the middle row, facing left, a few cells away from the right edge.
      */
     public void initializeSnake() {
-        body.clear();
-        body.add(new Point(12, 7));
-        body.add(new Point(13, 7));
-        body.add(new Point(14, 7));
+        int x = width - 5;
+        int y = height / 2;
+        clear(3);
+        addHead(cellOf(x + 2, y));
+        addHead(cellOf(x + 1, y));
+        addHead(cellOf(x, y));
+    }
+
+    /**
+     * Initializes the snake's body clearing it and then laying it on the given cells, head first.
+     * Used to set up arbitrary positions, such as for benchmarks or restored games.
+     * The body is checked against the occupancy bitset, with the current body cleared from it, before anything changes,
+     * so a rejected body leaves the snake as it was.
+     *
+     * @param bodyCells the packed cell indices of the segments, head first
+     * @param length the number of segments to take from the array
+     * @throws IllegalArgumentException if the body has fewer than two segments, leaves the board, is not contiguous
+     *                                  or crosses itself
+     */
+    public void initializeSnake(int[] bodyCells, int length) {
+        if (length < 2 || length > bodyCells.length) throw new IllegalArgumentException("Invalid snake length: " + length);
+        for (int i = 0; i < length; i++) {
+            int cell = bodyCells[i];
+            if (cell < 0 || cell >= width * height) throw new IllegalArgumentException("Segment outside the board: " + cell);
+            if (i > 0 && Math.abs(cell % width - bodyCells[i - 1] % width) + Math.abs(cell / width - bodyCells[i - 1] / width) != 1) {
+                throw new IllegalArgumentException("Segments " + (i - 1) + " and " + i + " are not adjacent");
+            }
+        }
+
+        for (int i = 0; i < size; i++) unmark(cellAt(i));
+        for (int i = 0; i < length; i++) {
+            if (occupies(bodyCells[i])) {
+                for (int j = 0; j < i; j++) unmark(bodyCells[j]);
+                for (int j = 0; j < size; j++) mark(cellAt(j));
+                throw new IllegalArgumentException("Segment " + i + " overlaps an earlier segment: " + bodyCells[i]);
+            }
+            mark(bodyCells[i]);
+        }
+        for (int i = 0; i < length; i++) unmark(bodyCells[i]);
+
+        clear(length);
+        for (int i = length - 1; i >= 0; i--) addHead(bodyCells[i]);
+    }
+
+    /**
+     * Returns the number of columns of the board the snake lives on.
+     *
+     * @return the width of the board
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of rows of the board the snake lives on.
+     *
+     * @return the height of the board
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the point table of the board the snake lives on.
+     *
+     * @return the point table
+     */
+    public PointTable getPoints() {
+        return points;
     }
 
     /**
-     * Returns the body of the snake as a linked list of points.
+     * Returns a read-only view of the body of the snake, head first.
+     * Random access into the view is constant time.
      *
      * @return the body of the snake
      */
     public List<Point> getBody() {
-        return body;
+        return new AbstractList<Point>() {
+            @Override
+            public Point get(int index) {
+                if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+                return pointOf(cellAt(index));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Returns the number of segments of the snake.
+     *
+     * @return the length of the snake
+     */
+    public int size() {
+        return size;
     }
 
     /**
@@ -49,7 +185,7 @@ public class Snake implements Iterable<Point> {
      * @return The head point of the snake.
      */
     public Point head() {
-        return body.get(0);
+        return pointOf(headCell());
     }
 
     /**
@@ -58,7 +194,117 @@ public class Snake implements Iterable<Point> {
      * @return The tail segment of the snake.
      */
     public Point tail() {
-        return body.get(body.size() - 1);
+        return pointOf(tailCell());
+    }
+
+    /**
+     * Returns the packed cell index of the head.
+     *
+     * @return the head cell
+     */
+    public int headCell() {
+        return cells[headIndex];
+    }
+
+    /**
+     * Returns the packed cell index of the tail.
+     *
+     * @return the tail cell
+     */
+    public int tailCell() {
+        return cellAt(size - 1);
+    }
+
+    /**
+     * Returns the packed cell index of the i-th segment, counting from the head.
+     *
+     * @param i the segment index, 0 being the head
+     * @return the cell of the segment
+     */
+    public int cellAt(int i) {
+        return cells[(headIndex - i) & mask];
+    }
+
+    /**
+     * Returns the cell the i-th segment occupied before the last move, for interpolating between two ticks.
+     * Every segment took the place of the one in front of it, and the tail came from the vacated cell;
+     * a tail added by growing did not move. Before the first move, every segment returns its current cell.
+     *
+     * @param i the segment index, 0 being the head
+     * @return the previous cell of the segment
+     */
+    public int previousCellAt(int i) {
+        if (!moved) return cellAt(i);
+        if (i < size - 1) return cellAt(i + 1);
+        return lastVacated >= 0 ? lastVacated : cellAt(i);
+    }
+
+    /**
+     * Checks if a cell is covered by the snake.
+     *
+     * @param cell the packed cell index to check
+     * @return true if a segment of the snake lies on the cell, false otherwise
+     */
+    public boolean occupies(int cell) {
+        return (occupied[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Sets the bit of a cell in the occupancy bitset.
+     *
+     * @param cell the packed cell index
+     */
+    private void mark(int cell) {
+        occupied[cell >>> 6] |= 1L << cell;
+    }
+
+    /**
+     * Clears the bit of a cell in the occupancy bitset.
+     *
+     * @param cell the packed cell index
+     */
+    private void unmark(int cell) {
+        occupied[cell >>> 6] &= ~(1L << cell);
+    }
+
+    /**
+     * Returns true if the snake will keep its tail on the next move.
+     *
+     * @return true if the snake is growing
+     */
+    public boolean isGrowing() {
+        return grows;
+    }
+
+    /**
+     * Returns the packed cell index of the given coordinates.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @return the cell index
+     */
+    public int cellOf(int x, int y) {
+        return points.cellOf(x, y);
+    }
+
+    /**
+     * Returns the point corresponding to a packed cell index.
+     *
+     * @param cell the cell index
+     * @return the interned point with the coordinates of the cell
+     */
+    public Point pointOf(int cell) {
+        return points.get(cell);
+    }
+
+    /**
+     * Returns the cell the head would enter moving in the given direction.
+     *
+     * @param direction the direction of the move
+     * @return the packed cell index, or -1 if the move leaves the board
+     */
+    public int nextCell(Direction direction) {
+        return points.neighbor(headCell(), direction);
     }
 
     /**
@@ -67,21 +313,21 @@ public class Snake implements Iterable<Point> {
      * without removing the tail. Otherwise, it removes the tail to maintain the same length.
      *
      * @param direction the direction in which to move the snake.
+     * @return the cell vacated by the tail, or -1 if the snake grew
+     * @throws IllegalStateException if the move would leave the board
      */
-    public void move(Direction direction) {
-        Point delta = switch (direction) {
-            case UP -> new Point(0, -1);
-            case DOWN -> new Point(0, 1);
-            case LEFT -> new Point(-1, 0);
-            case RIGHT -> new Point(1, 0);
-        };
+    public int move(Direction direction) {
+        int newHead = nextCell(direction);
+        if (newHead < 0) throw new IllegalStateException("Snake cannot move outside the board");
 
-        Point newHead = Point.add(head(), delta);
-
-        if (!grows) body.remove(tail());
+        int vacated = -1;
+        if (!grows) vacated = removeTail();
         else grows = false;
 
-        body.add(0, newHead);
+        addHead(newHead);
+        moved = true;
+        lastVacated = vacated;
+        return vacated;
     }
 
     /**
@@ -92,6 +338,65 @@ public class Snake implements Iterable<Point> {
         grows = true;
     }
 
+    /**
+     * Switches between the circular buffer and the append-only log. The body is copied into a new array either way,
+     * so snapshots sharing the previous log keep it intact, and the generation changes.
+     *
+     * @param logging true to store the body as an append-only log that snapshots can share
+     */
+    void setLogging(boolean logging) {
+        if (this.logging == logging) return;
+        this.logging = logging;
+        relocate(logging ? 2 * size + VACATED_MARGIN : size, 0);
+        generation++;
+    }
+
+    /**
+     * Checks if the body is stored as an append-only log.
+     *
+     * @return true if logging
+     */
+    boolean isLogging() {
+        return logging;
+    }
+
+    /**
+     * Returns the log array the body is stored in. While logging, slots up to the head index are never written again.
+     *
+     * @return the current log array
+     */
+    int[] log() {
+        return cells;
+    }
+
+    /**
+     * Returns the index of the head in the log array.
+     *
+     * @return the head index
+     */
+    int logHead() {
+        return headIndex;
+    }
+
+    /**
+     * Returns the sequence number of the head: the number of cells the head entered since the snake was initialized,
+     * minus one. While logging, the cell at log index j has sequence number headSequence() - logHead() + j.
+     *
+     * @return the sequence number of the head cell
+     */
+    long headSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns a counter increased every time the snake is initialized or switches storage, which starts a new log.
+     *
+     * @return the generation of the log
+     */
+    int generation() {
+        return generation;
+    }
+
     /**
      * Returns an iterator over the segments of the snake's body.
      * This allows the snake to be used in enhanced for-loops.
@@ -100,6 +405,98 @@ public class Snake implements Iterable<Point> {
      */
     @Override
     public Iterator<Point> iterator() {
-        return body.iterator();
+        return new Iterator<Point>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < size;
+            }
+
+            @Override
+            public Point next() {
+                if (i >= size) throw new NoSuchElementException();
+                return pointOf(cellAt(i++));
+            }
+        };
+    }
+
+    /**
+     * Empties the snake, ready for the given number of segments. While logging, a new log is started and the old one
+     * is left untouched, since snapshots may still read it; otherwise the buffer is reused if it is large enough.
+     *
+     * @param length the number of segments about to be added
+     */
+    private void clear(int length) {
+        for (int i = 0; i < size; i++) unmark(cellAt(i));
+        if (logging || cells == null || cells.length < length) allocate(logging ? 2 * length + VACATED_MARGIN : length);
+        headIndex = -1;
+        size = 0;
+        sequence = -1;
+        generation++;
+        grows = false;
+        moved = false;
+    }
+
+    /**
+     * Adds a new head, marking its cell as occupied. While logging, the head is appended to the log, which is compacted
+     * when full; otherwise it takes the next slot of the circular buffer, which only grows when the body fills it.
+     *
+     * @param cell the new head cell
+     */
+    private void addHead(int cell) {
+        if (logging) {
+            if (headIndex + 1 == cells.length) relocate(2 * size + VACATED_MARGIN, VACATED_MARGIN);
+            headIndex++;
+        } else {
+            if (size == cells.length) relocate(2 * size, 0);
+            headIndex = (headIndex + 1) & mask;
+        }
+        cells[headIndex] = cell;
+        size++;
+        sequence++;
+        mark(cell);
+    }
+
+    /**
+     * Drops the tail segment and clears its cell from the occupancy bitset. The cell stays in the log.
+     *
+     * @return the vacated cell
+     */
+    private int removeTail() {
+        int cell = tailCell();
+        size--;
+        unmark(cell);
+        return cell;
+    }
+
+    /**
+     * Copies the body, tail first, and up to the given number of vacated cells behind it, into a new array
+     * at the start of it, so that appending to a log or growing the buffer stays amortized constant time.
+     * Vacated cells may only be kept when compacting a log, where they are still in order behind the tail.
+     *
+     * @param capacity the minimum length of the new array
+     * @param vacated the maximum number of vacated cells to keep behind the tail
+     */
+    private void relocate(int capacity, int vacated) {
+        int kept = vacated == 0 ? 0 : Math.min(vacated, headIndex + 1 - size);
+        int[] old = cells;
+        int oldHead = headIndex, oldMask = mask;
+
+        allocate(capacity);
+        int length = size + kept;
+        for (int j = 0; j < length; j++) cells[j] = old[(oldHead - length + 1 + j) & oldMask];
+        headIndex = length - 1;
+    }
+
+    /**
+     * Allocates an array of the smallest power of two length holding the given number of cells.
+     *
+     * @param capacity the number of cells to hold
+     */
+    private void allocate(int capacity) {
+        int length = Integer.highestOneBit(Math.max(INITIAL_CAPACITY, capacity) - 1) << 1;
+        cells = new int[length];
+        mask = length - 1;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,346 @@
+package com.snakegame.net;
+
+import com.snakegame.model.Direction;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Client-side replica of a room's arena, rebuilt from the server's keyframes and deltas.
+ * It holds no game logic: moves are applied as sent, with the new head derived from the direction
+ * and the tail dropped unless the snake grew. Each keyframe is compared with the replica before replacing it,
+ * which checks that the deltas received since the previous keyframe reproduced the server's state.
+ *
+ * @author Alessandro Sorbara
+ */
+public class ArenaMirror {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private int width;
+    private int height;
+    private int tick = -1;
+    private boolean synced;
+
+    private int count;
+    private Body[] bodies = new Body[0];
+    private int[] scores = new int[0];
+    private int[] apples = new int[0];
+
+    private long keyframes;
+    private long mismatches;
+
+    /**
+     * Applies a keyframe or delta payload, starting at its type byte.
+     * Deltas received before the first keyframe are skipped.
+     *
+     * @param frame the frame, without its length prefix
+     * @return the type of the frame
+     * @throws IllegalArgumentException if the frame type is unknown
+     */
+    public byte apply(ByteBuffer frame) {
+        byte type = frame.get();
+        switch (type) {
+            case Protocol.KEYFRAME -> applyKeyframe(frame);
+            case Protocol.DELTA -> {
+                if (synced) applyDelta(frame);
+            }
+            case Protocol.WELCOME -> {
+            }
+            default -> throw new IllegalArgumentException("Unknown frame type: " + type);
+        }
+        return type;
+    }
+
+    /**
+     * Returns the tick of the last frame applied.
+     *
+     * @return the tick number, or -1 before the first keyframe
+     */
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns the number of columns of the arena.
+     *
+     * @return the width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of rows of the arena.
+     *
+     * @return the height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the cell of the i-th apple.
+     *
+     * @param i the apple index
+     * @return the packed cell index, or -1 if the apple is not on the board
+     */
+    public int getAppleCell(int i) {
+        return apples[i];
+    }
+
+    /**
+     * Returns the number of snakes.
+     *
+     * @return the snake count
+     */
+    public int getSnakeCount() {
+        return count;
+    }
+
+    /**
+     * Checks if a snake is on the board.
+     *
+     * @param id the snake id
+     * @return true if the snake is alive
+     */
+    public boolean isAlive(int id) {
+        return bodies[id].size > 0;
+    }
+
+    /**
+     * Returns the packed cell of the head of a snake.
+     *
+     * @param id the snake id
+     * @return the head cell
+     */
+    public int headCell(int id) {
+        return bodies[id].cellAt(0);
+    }
+
+    /**
+     * Returns the number of segments of a snake.
+     *
+     * @param id the snake id
+     * @return the length of the snake, 0 if it is dead
+     */
+    public int size(int id) {
+        return bodies[id].size;
+    }
+
+    /**
+     * Returns the score of a snake.
+     *
+     * @param id the snake id
+     * @return the score
+     */
+    public int getScore(int id) {
+        return scores[id];
+    }
+
+    /**
+     * Returns the number of keyframes received.
+     *
+     * @return the keyframe count
+     */
+    public long getKeyframes() {
+        return keyframes;
+    }
+
+    /**
+     * Returns the number of keyframes that did not match the state rebuilt from the deltas.
+     *
+     * @return the mismatch count
+     */
+    public long getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * Compares the keyframe with the replica, then replaces the replica with it.
+     *
+     * @param frame the keyframe payload
+     */
+    private void applyKeyframe(ByteBuffer frame) {
+        int frameTick = frame.getInt();
+        frame.getLong();
+        width = Protocol.getVarInt(frame);
+        height = Protocol.getVarInt(frame);
+        boolean matches = synced && frameTick == tick;
+
+        int snakes = Protocol.getVarInt(frame);
+        matches &= snakes == count;
+        ensureCapacity(snakes);
+        for (int id = 0; id < snakes; id++) {
+            boolean alive = frame.get() != 0;
+            int score = Protocol.getVarInt(frame);
+            matches &= score == scores[id] && alive == (id < count && bodies[id].size > 0);
+            scores[id] = score;
+
+            Body body = bodies[id];
+            if (!alive) {
+                body.size = 0;
+                continue;
+            }
+            int size = Protocol.getVarInt(frame);
+            matches &= size == body.size;
+            int[] cells = new int[size];
+            for (int i = 0; i < size; i++) {
+                cells[i] = Protocol.getVarInt(frame);
+                matches &= i < body.size && cells[i] == body.cellAt(i);
+            }
+            body.reset(cells, size);
+        }
+        count = snakes;
+
+        int appleCount = Protocol.getVarInt(frame);
+        if (apples.length != appleCount) {
+            apples = new int[appleCount];
+            matches = false;
+        }
+        for (int i = 0; i < appleCount; i++) {
+            int cell = Protocol.getVarInt(frame) - 1;
+            matches &= cell == apples[i];
+            apples[i] = cell;
+        }
+
+        if (synced) {
+            keyframes++;
+            if (!matches) mismatches++;
+        }
+        tick = frameTick;
+        synced = true;
+    }
+
+    /**
+     * Applies deaths, moves, spawns, apple moves and score changes, in the order the server wrote them.
+     *
+     * @param frame the delta payload
+     */
+    private void applyDelta(ByteBuffer frame) {
+        tick = frame.getInt();
+        frame.getLong();
+        int snakes = Protocol.getVarInt(frame);
+        ensureCapacity(snakes);
+        int previousCount = count;
+        count = snakes;
+
+        int deaths = Protocol.getVarInt(frame);
+        for (int i = 0; i < deaths; i++) {
+            int id = Protocol.getVarInt(frame);
+            bodies[id].size = 0;
+            scores[id] = 0;
+        }
+
+        for (int id = 0; id < previousCount; id++) {
+            Body body = bodies[id];
+            if (body.size == 0) continue;
+            int move = frame.get();
+            int head = neighbor(body.cellAt(0), DIRECTIONS[move & 3]);
+            body.move(head, (move & 4) != 0);
+        }
+
+        int spawns = Protocol.getVarInt(frame);
+        for (int i = 0; i < spawns; i++) {
+            int id = Protocol.getVarInt(frame);
+            int size = Protocol.getVarInt(frame);
+            int[] cells = new int[size];
+            for (int j = 0; j < size; j++) cells[j] = Protocol.getVarInt(frame);
+            bodies[id].reset(cells, size);
+            scores[id] = 0;
+        }
+
+        int appleChanges = Protocol.getVarInt(frame);
+        for (int i = 0; i < appleChanges; i++) {
+            int apple = Protocol.getVarInt(frame);
+            apples[apple] = Protocol.getVarInt(frame) - 1;
+        }
+
+        int scoreChanges = Protocol.getVarInt(frame);
+        for (int i = 0; i < scoreChanges; i++) {
+            int id = Protocol.getVarInt(frame);
+            scores[id] = Protocol.getVarInt(frame);
+        }
+    }
+
+    /**
+     * Returns the cell next to the given one, without bounds checks since the server only sends legal moves.
+     *
+     * @param cell the packed cell index
+     * @param direction the direction of the move
+     * @return the packed index of the neighbor
+     */
+    private int neighbor(int cell, Direction direction) {
+        return switch (direction) {
+            case UP -> cell - width;
+            case DOWN -> cell + width;
+            case LEFT -> cell - 1;
+            case RIGHT -> cell + 1;
+        };
+    }
+
+    /**
+     * Grows the per-snake arrays to hold the given number of snakes, new snakes being dead.
+     *
+     * @param snakes the number of snakes
+     */
+    private void ensureCapacity(int snakes) {
+        if (snakes <= bodies.length) return;
+        int previous = bodies.length;
+        bodies = Arrays.copyOf(bodies, Math.max(snakes, previous * 2));
+        scores = Arrays.copyOf(scores, bodies.length);
+        for (int i = previous; i < bodies.length; i++) bodies[i] = new Body();
+    }
+
+    /**
+     * Circular buffer of the cells of one snake, head first.
+     */
+    private static final class Body {
+
+        private int[] cells = new int[8];
+        private int headIndex;
+        private int size;
+
+        /**
+         * Returns the i-th segment from the head.
+         *
+         * @param i the segment index
+         * @return the packed cell index
+         */
+        int cellAt(int i) {
+            return cells[(headIndex + i) & (cells.length - 1)];
+        }
+
+        /**
+         * Replaces the body.
+         *
+         * @param body the cells from the head
+         * @param length the number of cells
+         */
+        void reset(int[] body, int length) {
+            if (cells.length < length) cells = new int[Integer.highestOneBit(length) << 1];
+            System.arraycopy(body, 0, cells, 0, length);
+            headIndex = 0;
+            size = length;
+        }
+
+        /**
+         * Pushes a new head, dropping the tail unless the snake grew.
+         *
+         * @param head the new head cell
+         * @param grew true if the tail stays
+         */
+        void move(int head, boolean grew) {
+            if (!grew) size--;
+            if (size == cells.length) {
+                int[] grown = new int[cells.length * 2];
+                for (int i = 0; i < size; i++) grown[i] = cellAt(i);
+                cells = grown;
+                headIndex = 0;
+            }
+            headIndex = (headIndex - 1) & (cells.length - 1);
+            cells[headIndex] = head;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.snakegame.net;
+
+import com.snakegame.controller.InputQueue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Server side of one client connection, owned by the ServerLoop of its room.
+ * Frames are appended to an outbound buffer and written as far as the socket accepts;
+ * the rest waits for the channel to become writable. A client that falls MAX_OUTBOUND bytes behind is dropped.
+ *
+ * @author Alessandro Sorbara
+ */
+class Connection {
+
+    private static final int MAX_OUTBOUND = 4 << 20;
+    private static final int INITIAL_OUTBOUND = 4096;
+
+    private final SocketChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocate(64);
+    private ByteBuffer out = ByteBuffer.allocate(INITIAL_OUTBOUND);
+    private SelectionKey key;
+
+    private int requestedRoom = -1;
+    private Room room;
+    private int snakeId = -1;
+    private InputQueue input;
+    private boolean closed;
+    private long bytesSent;
+
+    /**
+     * Wraps an accepted channel.
+     *
+     * @param channel the channel, in non-blocking mode
+     */
+    Connection(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Returns the channel of the client.
+     *
+     * @return the socket channel
+     */
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Returns the buffer holding the bytes received and not parsed yet, in write mode.
+     *
+     * @return the inbound buffer
+     */
+    ByteBuffer getInbound() {
+        return in;
+    }
+
+    /**
+     * Sets the key of the channel in the selector of the loop owning the connection.
+     *
+     * @param key the selection key
+     */
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * Records the room the client asked to join.
+     *
+     * @param room the room number
+     */
+    void requestRoom(int room) {
+        this.requestedRoom = room;
+    }
+
+    /**
+     * Returns the room the client asked to join.
+     *
+     * @return the room number, or -1 before the JOIN message
+     */
+    int getRequestedRoom() {
+        return requestedRoom;
+    }
+
+    /**
+     * Detaches the connection from the selector of the accepting loop, before another loop adopts it.
+     */
+    void handOver() {
+        key.cancel();
+        key = null;
+    }
+
+    /**
+     * Returns the room the client joined.
+     *
+     * @return the room, or null before the client joined
+     */
+    Room getRoom() {
+        return room;
+    }
+
+    /**
+     * Binds the connection to the snake it steers.
+     *
+     * @param room the room joined
+     * @param snakeId the id of the snake of the client
+     * @param input the queue steering the snake
+     */
+    void bind(Room room, int snakeId, InputQueue input) {
+        this.room = room;
+        this.snakeId = snakeId;
+        this.input = input;
+    }
+
+    /**
+     * Returns the id of the snake of the client.
+     *
+     * @return the snake id, or -1 before the client joined
+     */
+    int getSnakeId() {
+        return snakeId;
+    }
+
+    /**
+     * Returns the queue steering the snake of the client.
+     *
+     * @return the input queue, or null before the client joined
+     */
+    InputQueue getInput() {
+        return input;
+    }
+
+    /**
+     * Queues a frame and writes as much of the outbound buffer as the socket accepts.
+     * The connection is closed if the client is too far behind or the write fails.
+     *
+     * @param frame the frame to send, whose position is left unchanged
+     * @return the number of bytes queued, 0 if the connection is closed
+     */
+    int send(ByteBuffer frame) {
+        if (closed) return 0;
+
+        int length = frame.remaining();
+        if (out.remaining() < length) {
+            int needed = out.position() + length;
+            if (needed > MAX_OUTBOUND) {
+                System.err.println("Dropping slow client " + describe() + ": " + out.position() + " bytes pending");
+                close();
+                return 0;
+            }
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(needed, Math.min(MAX_OUTBOUND, out.capacity() * 2)));
+            out.flip();
+            grown.put(out);
+            out = grown;
+        }
+
+        out.put(frame.duplicate());
+        bytesSent += length;
+        flush();
+        return length;
+    }
+
+    /**
+     * Writes as much of the outbound buffer as the socket accepts, and waits for writability if anything is left.
+     */
+    void flush() {
+        if (closed) return;
+        try {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            key.interestOps(out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /**
+     * Returns the number of bytes queued for the client since it connected.
+     *
+     * @return the bytes sent
+     */
+    long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * Checks if the connection was closed.
+     *
+     * @return true if the connection is closed
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes the channel. The room releases the snake on its next tick.
+     */
+    void close() {
+        if (closed) return;
+        closed = true;
+        if (key != null) key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the remote address of the client, for logging.
+     *
+     * @return a description of the client
+     */
+    private String describe() {
+        try {
+            return String.valueOf(channel.getRemoteAddress());
+        } catch (IOException e) {
+            return "(unknown)";
+        }
+    }
+}
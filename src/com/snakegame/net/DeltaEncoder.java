@@ -0,0 +1,218 @@
+package com.snakegame.net;
+
+import com.snakegame.arena.Arena;
+import com.snakegame.arena.ArenaSnake;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Encodes the state of an Arena for the clients of a room, either in full (keyframes)
+ * or as the changes since the previous encoding (deltas).
+ * The encoder remembers what it last sent for every snake and apple, so a delta costs O(snakes + apples + changed cells)
+ * and a surviving snake costs one byte: its direction and whether it grew, from which the client derives
+ * both the new head cell and the removed tail cell.
+ *
+ * @author Alessandro Sorbara
+ */
+class DeltaEncoder {
+
+    private static final int FRAME_OVERHEAD = 64;
+    private static final int MAX_VARINT_SIZE = 5;
+
+    private final Arena arena;
+
+    private int tracked;
+    private boolean[] alive = new boolean[0];
+    private int[] deaths = new int[0];
+    private int[] sizes = new int[0];
+    private int[] scores = new int[0];
+    private final int[] apples;
+
+    private int[] died = new int[0];
+    private int[] spawned = new int[0];
+
+    /**
+     * Creates an encoder for the arena, assuming clients start from a keyframe of its current state.
+     *
+     * @param arena the arena to encode
+     */
+    DeltaEncoder(Arena arena) {
+        this.arena = arena;
+        this.apples = new int[arena.getAppleCount()];
+        sync();
+    }
+
+    /**
+     * Returns an upper bound on the size of a frame describing the arena, length prefix included.
+     *
+     * @return the maximum frame size, in bytes
+     */
+    int maxFrameSize() {
+        long cells = 0;
+        for (int i = 0; i < arena.getSnakeCount(); i++) cells += arena.getSnake(i).size();
+        long size = FRAME_OVERHEAD + arena.getSnakeCount() * (long) (4 * MAX_VARINT_SIZE + 1)
+                + cells * MAX_VARINT_SIZE + apples.length * (long) (2 * MAX_VARINT_SIZE);
+        return (int) Math.min(Integer.MAX_VALUE - 8, size);
+    }
+
+    /**
+     * Writes a keyframe holding the whole state of the arena. Does not change what the next delta is relative to.
+     *
+     * @param buffer the buffer to write to, cleared beforehand and at least maxFrameSize() long
+     * @param tick the tick number
+     * @param stamp the time the tick was scheduled, from System.nanoTime()
+     */
+    void encodeKeyframe(ByteBuffer buffer, int tick, long stamp) {
+        Protocol.beginFrame(buffer, Protocol.KEYFRAME);
+        buffer.putInt(tick);
+        buffer.putLong(stamp);
+        Protocol.putVarInt(buffer, arena.getWidth());
+        Protocol.putVarInt(buffer, arena.getHeight());
+
+        int count = arena.getSnakeCount();
+        Protocol.putVarInt(buffer, count);
+        for (int id = 0; id < count; id++) {
+            ArenaSnake snake = arena.getSnake(id);
+            buffer.put((byte) (snake.isAlive() ? 1 : 0));
+            Protocol.putVarInt(buffer, scoreOf(snake));
+            if (snake.isAlive()) putBody(buffer, snake);
+        }
+
+        Protocol.putVarInt(buffer, apples.length);
+        for (int i = 0; i < apples.length; i++) Protocol.putVarInt(buffer, arena.getAppleCell(i) + 1);
+        Protocol.endFrame(buffer);
+    }
+
+    /**
+     * Writes the changes since the previous delta, or since the encoder was created, and remembers the new state.
+     *
+     * @param buffer the buffer to write to, cleared beforehand and at least maxFrameSize() long
+     * @param tick the tick number
+     * @param stamp the time the tick was scheduled, from System.nanoTime()
+     */
+    void encodeDelta(ByteBuffer buffer, int tick, long stamp) {
+        int count = arena.getSnakeCount();
+        ensureCapacity(count);
+
+        Protocol.beginFrame(buffer, Protocol.DELTA);
+        buffer.putInt(tick);
+        buffer.putLong(stamp);
+        Protocol.putVarInt(buffer, count);
+
+        int diedCount = 0;
+        for (int id = 0; id < tracked; id++) {
+            ArenaSnake snake = arena.getSnake(id);
+            if (alive[id] && (!snake.isAlive() || snake.getDeaths() != deaths[id])) {
+                died[diedCount++] = id;
+                alive[id] = false;
+                scores[id] = 0;
+            }
+        }
+        Protocol.putVarInt(buffer, diedCount);
+        for (int i = 0; i < diedCount; i++) Protocol.putVarInt(buffer, died[i]);
+
+        for (int id = 0; id < tracked; id++) {
+            if (!alive[id]) continue;
+            ArenaSnake snake = arena.getSnake(id);
+            boolean grew = snake.size() > sizes[id];
+            buffer.put((byte) (snake.getDirection().ordinal() | (grew ? 4 : 0)));
+            sizes[id] = snake.size();
+        }
+
+        int spawnedCount = 0;
+        for (int id = 0; id < count; id++) {
+            ArenaSnake snake = arena.getSnake(id);
+            if (snake.isAlive() && (id >= tracked || !alive[id])) spawned[spawnedCount++] = id;
+        }
+        Protocol.putVarInt(buffer, spawnedCount);
+        for (int i = 0; i < spawnedCount; i++) {
+            ArenaSnake snake = arena.getSnake(spawned[i]);
+            Protocol.putVarInt(buffer, spawned[i]);
+            putBody(buffer, snake);
+        }
+
+        int appleChanges = 0;
+        for (int i = 0; i < apples.length; i++) {
+            if (arena.getAppleCell(i) != apples[i]) appleChanges++;
+        }
+        Protocol.putVarInt(buffer, appleChanges);
+        for (int i = 0; i < apples.length && appleChanges > 0; i++) {
+            int cell = arena.getAppleCell(i);
+            if (cell == apples[i]) continue;
+            Protocol.putVarInt(buffer, i);
+            Protocol.putVarInt(buffer, cell + 1);
+            appleChanges--;
+        }
+
+        int scoreChanges = 0;
+        for (int id = 0; id < count; id++) {
+            if (scoreOf(arena.getSnake(id)) != scores[id]) scoreChanges++;
+        }
+        Protocol.putVarInt(buffer, scoreChanges);
+        for (int id = 0; id < count && scoreChanges > 0; id++) {
+            int score = scoreOf(arena.getSnake(id));
+            if (score == scores[id]) continue;
+            Protocol.putVarInt(buffer, id);
+            Protocol.putVarInt(buffer, score);
+            scoreChanges--;
+        }
+
+        Protocol.endFrame(buffer);
+        sync();
+    }
+
+    /**
+     * Remembers the current state of the arena as the one the next delta is relative to.
+     */
+    private void sync() {
+        int count = arena.getSnakeCount();
+        ensureCapacity(count);
+        for (int id = 0; id < count; id++) {
+            ArenaSnake snake = arena.getSnake(id);
+            alive[id] = snake.isAlive();
+            deaths[id] = snake.getDeaths();
+            sizes[id] = snake.size();
+            scores[id] = scoreOf(snake);
+        }
+        for (int i = 0; i < apples.length; i++) apples[i] = arena.getAppleCell(i);
+        tracked = count;
+    }
+
+    /**
+     * Grows the per-snake arrays to hold the given number of snakes. Snakes not tracked yet read as dead.
+     *
+     * @param count the number of snakes
+     */
+    private void ensureCapacity(int count) {
+        if (count <= alive.length) return;
+        int capacity = Math.max(count, alive.length * 2);
+        alive = Arrays.copyOf(alive, capacity);
+        deaths = Arrays.copyOf(deaths, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        scores = Arrays.copyOf(scores, capacity);
+        died = new int[capacity];
+        spawned = new int[capacity];
+    }
+
+    /**
+     * Returns the score sent for a snake, which is 0 while it is dead.
+     *
+     * @param snake the snake
+     * @return the score of the snake if it is alive, 0 otherwise
+     */
+    private static int scoreOf(ArenaSnake snake) {
+        return snake.isAlive() ? snake.getScore() : 0;
+    }
+
+    /**
+     * Writes the size of a snake and its cells from the head.
+     *
+     * @param buffer the buffer to write to
+     * @param snake the snake to write
+     */
+    private static void putBody(ByteBuffer buffer, ArenaSnake snake) {
+        Protocol.putVarInt(buffer, snake.size());
+        for (int i = 0; i < snake.size(); i++) Protocol.putVarInt(buffer, snake.cellAt(i));
+    }
+}
@@ -0,0 +1,206 @@
+package com.snakegame.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+
+/**
+ * Server-authoritative host of arena games over non-blocking java.nio.
+ * Rooms are spread over a fixed number of ServerLoops, one thread and one Selector each, by room number;
+ * every loop ticks its rooms at the same rate and sends each room's clients a delta per tick
+ * and a keyframe every Protocol.KEYFRAME_INTERVAL ticks. Clients join a room by number and steer one snake.
+ *
+ * @author Alessandro Sorbara
+ */
+public class GameServer {
+
+    private static final long STATS_INTERVAL_MILLIS = 5000;
+
+    private final int width;
+    private final int height;
+    private final int aiSnakes;
+    private final int apples;
+    private final long tickNanos;
+    private final ServerSocketChannel acceptor;
+    private final ServerLoop[] loops;
+
+    /**
+     * Binds the server and creates its loops, without starting them.
+     *
+     * @param port the port to listen on, 0 for any free port
+     * @param loopCount the number of event loop threads
+     * @param width the number of columns of each arena
+     * @param height the number of rows of each arena
+     * @param aiSnakes the number of AI snakes in each room
+     * @param apples the number of apples in each room
+     * @param ticksPerSecond the tick rate of every room
+     * @throws IOException if the port cannot be bound
+     * @throws IllegalArgumentException if the loop count or tick rate is not positive
+     */
+    public GameServer(int port, int loopCount, int width, int height, int aiSnakes, int apples, double ticksPerSecond) throws IOException {
+        if (loopCount < 1 || ticksPerSecond <= 0) throw new IllegalArgumentException("Loop count and tick rate must be positive");
+        this.width = width;
+        this.height = height;
+        this.aiSnakes = aiSnakes;
+        this.apples = apples;
+        this.tickNanos = (long) (1e9 / ticksPerSecond);
+
+        acceptor = ServerSocketChannel.open();
+        acceptor.bind(new InetSocketAddress(port), 1024);
+        acceptor.configureBlocking(false);
+
+        loops = new ServerLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) loops[i] = new ServerLoop(this, i);
+        loops[0].listen(acceptor);
+    }
+
+    /**
+     * Starts the loops.
+     */
+    public void start() {
+        for (ServerLoop loop : loops) loop.start();
+    }
+
+    /**
+     * Stops the loops, disconnecting every client, and releases the port.
+     *
+     * @throws IOException if the listening channel cannot be closed
+     */
+    public void close() throws IOException {
+        for (ServerLoop loop : loops) loop.close();
+        acceptor.close();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the local port
+     * @throws IOException if the address cannot be read
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) acceptor.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Prints the server load every few seconds, until the thread is interrupted.
+     * Rooms per core is the number of rooms divided by the number of cores kept busy,
+     * which is the load the server could sustain per core at the current room size and tick rate.
+     */
+    public void printStats() {
+        long lastTime = System.nanoTime();
+        long lastTicks = 0, lastBusy = 0, lastBytes = 0, lastSkipped = 0;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(STATS_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            int rooms = 0, clients = 0;
+            long ticks = 0, busy = 0, bytes = 0, skipped = 0;
+            for (ServerLoop loop : loops) {
+                rooms += loop.getRoomCount();
+                clients += loop.getClientCount();
+                ticks += loop.getRoomTicks();
+                busy += loop.getBusyNanos();
+                bytes += loop.getBytesOut();
+                skipped += loop.getSkippedTicks();
+            }
+
+            long now = System.nanoTime();
+            double seconds = (now - lastTime) / 1e9;
+            double cores = (busy - lastBusy) / 1e9 / seconds;
+            long roomTicks = ticks - lastTicks;
+            System.out.printf("%d rooms, %d clients: %,.0f room ticks/s, %.1f us per room tick, %.1f%% of a core busy, " +
+                            "%s rooms/core, %,.0f KB/s out, %d ticks skipped%n",
+                    rooms, clients, roomTicks / seconds, roomTicks == 0 ? 0 : (busy - lastBusy) / 1e3 / roomTicks, cores * 100,
+                    cores > 0 ? String.format("%.0f", rooms / cores) : "n/a", (bytes - lastBytes) / 1024.0 / seconds, skipped - lastSkipped);
+
+            lastTime = now;
+            lastTicks = ticks;
+            lastBusy = busy;
+            lastBytes = bytes;
+            lastSkipped = skipped;
+        }
+    }
+
+    /**
+     * Returns the loop owning the given room.
+     *
+     * @param room the room number
+     * @return the loop ticking the room
+     */
+    ServerLoop loopFor(int room) {
+        return loops[room % loops.length];
+    }
+
+    /**
+     * Returns the duration of a tick.
+     *
+     * @return the tick period, in nanoseconds
+     */
+    long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Returns the number of columns of each arena.
+     *
+     * @return the arena width
+     */
+    int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of rows of each arena.
+     *
+     * @return the arena height
+     */
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the number of AI snakes in each room.
+     *
+     * @return the AI snake count
+     */
+    int getAiSnakes() {
+        return aiSnakes;
+    }
+
+    /**
+     * Returns the number of apples in each room.
+     *
+     * @return the apple count
+     */
+    int getApples() {
+        return apples;
+    }
+
+    /**
+     * Runs a server until the process is killed, printing its load every few seconds.
+     * Arguments, all optional: port, loop count (default: one per core), arena width and height (default 64 64),
+     * AI snakes per room (default 8), apples per room (default 8), ticks per second (default 20).
+     *
+     * @param args the command line arguments
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length >= 1 ? Integer.parseInt(args[0]) : Protocol.DEFAULT_PORT;
+        int loops = args.length >= 2 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int width = args.length >= 4 ? Integer.parseInt(args[2]) : 64;
+        int height = args.length >= 4 ? Integer.parseInt(args[3]) : 64;
+        int aiSnakes = args.length >= 5 ? Integer.parseInt(args[4]) : 8;
+        int apples = args.length >= 6 ? Integer.parseInt(args[5]) : 8;
+        double tps = args.length >= 7 ? Double.parseDouble(args[6]) : 20;
+
+        GameServer server = new GameServer(port, loops, width, height, aiSnakes, apples, tps);
+        server.start();
+        System.out.printf("Serving %dx%d arenas (%d AI snakes, %d apples) at %.0f ticks/s on port %d with %d loops%n",
+                width, height, aiSnakes, apples, tps, server.getPort(), loops);
+        server.printStats();
+    }
+}
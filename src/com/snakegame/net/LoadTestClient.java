@@ -0,0 +1,254 @@
+package com.snakegame.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+/**
+ * Loopback load test for the GameServer: opens many client connections from one thread,
+ * joins them to a number of rooms, decodes every frame into an ArenaMirror as a real client would,
+ * sends random turns, and reports bytes per tick, keyframe mismatches and tick latency percentiles.
+ * The latency runs from the time the server scheduled the tick to the time the client decoded it,
+ * so it includes the tick, the encoding, the queueing and the network; it is only meaningful when both
+ * processes run on the same host, since it compares their System.nanoTime() clocks.
+ *
+ * @author Alessandro Sorbara
+ */
+public class LoadTestClient {
+
+    private static final long WARM_UP_NANOS = 1_000_000_000L;
+    private static final int INITIAL_INBOUND = 64 * 1024;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final double turnChance;
+    private final ByteBuffer turn = ByteBuffer.allocate(Protocol.TURN_SIZE);
+
+    private long measureFrom;
+    private long[] latencies = new long[1 << 16];
+    private int latencyCount;
+    private long deltas;
+    private long deltaBytes;
+    private long keyframes;
+    private long keyframeBytes;
+
+    /**
+     * Creates a load test.
+     *
+     * @param turnChance the probability that a client sends a turn after each delta
+     */
+    private LoadTestClient(double turnChance) {
+        this.turnChance = turnChance;
+    }
+
+    /**
+     * Runs the load test. Arguments, all optional: host (default localhost), port, rooms (default 100),
+     * clients per room (default 4), duration in seconds (default 20), turn chance per tick (default 0.1).
+     *
+     * @param args the command line arguments
+     * @throws IOException if the connections cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        String host = args.length >= 1 ? args[0] : "localhost";
+        int port = args.length >= 2 ? Integer.parseInt(args[1]) : Protocol.DEFAULT_PORT;
+        int rooms = args.length >= 3 ? Integer.parseInt(args[2]) : 100;
+        int clientsPerRoom = args.length >= 4 ? Integer.parseInt(args[3]) : 4;
+        int seconds = args.length >= 5 ? Integer.parseInt(args[4]) : 20;
+        double turnChance = args.length >= 6 ? Double.parseDouble(args[5]) : 0.1;
+
+        new LoadTestClient(turnChance).run(new InetSocketAddress(host, port), rooms, clientsPerRoom, seconds);
+    }
+
+    /**
+     * Connects the clients, serves them until the duration elapses, then prints the report.
+     *
+     * @param address the server address
+     * @param rooms the number of rooms
+     * @param clientsPerRoom the number of clients joining each room
+     * @param seconds the duration of the test
+     * @throws IOException if the connections cannot be opened
+     */
+    private void run(InetSocketAddress address, int rooms, int clientsPerRoom, int seconds) throws IOException {
+        Selector selector = Selector.open();
+        Client[] clients = new Client[rooms * clientsPerRoom];
+        for (int i = 0; i < clients.length; i++) {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(java.net.StandardSocketOptions.TCP_NODELAY, true);
+            clients[i] = new Client(channel, i / clientsPerRoom);
+            channel.connect(address);
+            channel.register(selector, SelectionKey.OP_CONNECT, clients[i]);
+        }
+
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        measureFrom = start + WARM_UP_NANOS;
+
+        while (System.nanoTime() < end) {
+            selector.select(100);
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Client client = (Client) key.attachment();
+                try {
+                    if (key.isConnectable()) client.connect(key);
+                    else if (key.isReadable()) client.read();
+                } catch (IOException e) {
+                    System.err.println("Client of room " + client.room + " failed: " + e.getMessage());
+                    key.cancel();
+                    client.channel.close();
+                }
+            }
+        }
+
+        for (Client client : clients) client.channel.close();
+        selector.close();
+        report(clients, rooms, (System.nanoTime() - measureFrom) / 1e9);
+    }
+
+    /**
+     * Prints the throughput, frame sizes, mirror checks and latency percentiles.
+     *
+     * @param clients the clients
+     * @param rooms the number of rooms
+     * @param seconds the measured duration
+     */
+    private void report(Client[] clients, int rooms, double seconds) {
+        long joined = 0, checked = 0, mismatches = 0;
+        for (Client client : clients) {
+            if (client.mirror.getTick() >= 0) joined++;
+            checked += client.mirror.getKeyframes();
+            mismatches += client.mirror.getMismatches();
+        }
+
+        System.out.printf("%d/%d clients in %d rooms received frames%n", joined, clients.length, rooms);
+        System.out.printf("deltas: %,.1f per client per second, %.1f bytes per tick per room%n",
+                deltas / seconds / Math.max(1, joined), deltas == 0 ? 0 : (double) deltaBytes / deltas);
+        System.out.printf("keyframes: %d received, %.0f bytes each, %d checked against the deltas, %d mismatches%n",
+                keyframes, keyframes == 0 ? 0 : (double) keyframeBytes / keyframes, checked, mismatches);
+        System.out.printf("inbound: %,.0f KB/s%n", (deltaBytes + keyframeBytes) / 1024.0 / seconds);
+
+        if (latencyCount == 0) return;
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        System.out.printf("tick latency (ms): p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f over %,d frames%n",
+                percentile(sorted, 0.5), percentile(sorted, 0.9), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                sorted[sorted.length - 1] / 1e6, sorted.length);
+    }
+
+    /**
+     * Returns a percentile of sorted latencies.
+     *
+     * @param sorted the latencies, in increasing order
+     * @param fraction the percentile, in [0, 1]
+     * @return the latency, in milliseconds
+     */
+    private static double percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))] / 1e6;
+    }
+
+    /**
+     * Records the size and latency of a delta once the warm-up is over.
+     *
+     * @param now the time the frame was decoded
+     * @param stamp the time the server scheduled the tick
+     * @param size the size of the frame, length prefix included
+     */
+    private void record(long now, long stamp, int size) {
+        if (now < measureFrom) return;
+        deltas++;
+        deltaBytes += size;
+        if (latencyCount == latencies.length) latencies = Arrays.copyOf(latencies, latencyCount * 2);
+        latencies[latencyCount++] = now - stamp;
+    }
+
+    /**
+     * One simulated player: a connection, its inbound buffer and its replica of the room.
+     */
+    private final class Client {
+
+        private final SocketChannel channel;
+        private final int room;
+        private final ArenaMirror mirror = new ArenaMirror();
+        private ByteBuffer in = ByteBuffer.allocate(INITIAL_INBOUND);
+
+        /**
+         * Creates a client that will join the given room.
+         *
+         * @param channel the channel, connecting
+         * @param room the room to join
+         */
+        Client(SocketChannel channel, int room) {
+            this.channel = channel;
+            this.room = room;
+        }
+
+        /**
+         * Completes the connection and sends the JOIN message.
+         *
+         * @param key the key of the channel
+         * @throws IOException if the connection failed
+         */
+        void connect(SelectionKey key) throws IOException {
+            if (!channel.finishConnect()) return;
+            ByteBuffer join = ByteBuffer.allocate(Protocol.JOIN_SIZE);
+            join.put(Protocol.JOIN).putInt(room).flip();
+            while (join.hasRemaining()) channel.write(join);
+            key.interestOps(SelectionKey.OP_READ);
+        }
+
+        /**
+         * Reads what the server sent and decodes every complete frame.
+         *
+         * @throws IOException if the connection failed or was closed
+         */
+        void read() throws IOException {
+            if (channel.read(in) < 0) throw new IOException("Connection closed by the server");
+            in.flip();
+            long now = System.nanoTime();
+
+            while (in.remaining() >= Protocol.HEADER_SIZE) {
+                int length = in.getInt(in.position());
+                if (in.remaining() < Protocol.HEADER_SIZE + length) {
+                    if (Protocol.HEADER_SIZE + length > in.capacity()) {
+                        ByteBuffer grown = ByteBuffer.allocate(Protocol.HEADER_SIZE + length);
+                        grown.put(in);
+                        in = grown;
+                        return;
+                    }
+                    break;
+                }
+
+                int start = in.position() + Protocol.HEADER_SIZE;
+                ByteBuffer frame = in.slice(start, length);
+                byte type = mirror.apply(frame);
+                if (type == Protocol.DELTA) {
+                    record(now, in.getLong(start + 5), Protocol.HEADER_SIZE + length);
+                    if (random.nextDouble() < turnChance) sendTurn();
+                } else if (type == Protocol.KEYFRAME && now >= measureFrom) {
+                    keyframes++;
+                    keyframeBytes += Protocol.HEADER_SIZE + length;
+                }
+                in.position(start + length);
+            }
+            in.compact();
+        }
+
+        /**
+         * Sends a turn in a random direction. It is dropped if the socket cannot take it right away.
+         *
+         * @throws IOException if the write fails
+         */
+        private void sendTurn() throws IOException {
+            turn.clear();
+            turn.put(Protocol.TURN).put((byte) random.nextInt(4)).flip();
+            channel.write(turn);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.snakegame.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format shared by the GameServer and its clients.
+ * Server frames are length-prefixed: an int holding the size of the rest of the frame, a type byte, then the payload.
+ * Client messages are a type byte followed by a fixed-size payload.
+ * <ul>
+ *     <li>WELCOME: varint room, varint snake id</li>
+ *     <li>KEYFRAME: int tick, long stamp, varint width, varint height, varint snake count,
+ *     then per snake a byte alive, varint score and, if alive, varint size and the cells from the head;
+ *     varint apple count, then per apple varint (cell + 1)</li>
+ *     <li>DELTA: int tick, long stamp, varint snake count, varint death count and the ids of the dead snakes,
+ *     one move byte (direction ordinal | grew &lt;&lt; 2) per snake that was alive and did not die, in id order,
+ *     varint spawn count and per spawn varint id, varint size and the cells from the head,
+ *     varint apple change count and per change varint apple, varint (cell + 1),
+ *     varint score change count and per change varint id, varint score</li>
+ * </ul>
+ * The stamp is the System.nanoTime() at which the tick was scheduled on the server,
+ * only comparable with the client's clock when both run on the same host.
+ * Cells are packed as y * width + x and written as varints, so most fit in two or three bytes.
+ *
+ * @author Alessandro Sorbara
+ */
+public final class Protocol {
+
+    public static final int DEFAULT_PORT = 7777;
+    public static final int KEYFRAME_INTERVAL = 100;
+
+    public static final byte WELCOME = 1;
+    public static final byte KEYFRAME = 2;
+    public static final byte DELTA = 3;
+
+    public static final byte JOIN = 1;
+    public static final byte TURN = 2;
+
+    public static final int JOIN_SIZE = 5;
+    public static final int TURN_SIZE = 2;
+    public static final int HEADER_SIZE = 4;
+
+    /**
+     * Not instantiable.
+     */
+    private Protocol() {
+    }
+
+    /**
+     * Writes a non-negative int in 7-bit groups, least significant first, using one to five bytes.
+     *
+     * @param buffer the buffer to write to
+     * @param value the value to write
+     */
+    public static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads an int written by putVarInt.
+     *
+     * @param buffer the buffer to read from
+     * @return the value read
+     */
+    public static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    /**
+     * Starts a server frame, leaving room for the length prefix.
+     *
+     * @param buffer the buffer to write to, cleared beforehand
+     * @param type the frame type
+     */
+    static void beginFrame(ByteBuffer buffer, byte type) {
+        buffer.position(HEADER_SIZE);
+        buffer.put(type);
+    }
+
+    /**
+     * Fills in the length prefix of a frame started by beginFrame and flips the buffer for reading.
+     *
+     * @param buffer the buffer holding the frame
+     */
+    static void endFrame(ByteBuffer buffer) {
+        buffer.putInt(0, buffer.position() - HEADER_SIZE);
+        buffer.flip();
+    }
+}
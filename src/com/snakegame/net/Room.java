@@ -0,0 +1,185 @@
+package com.snakegame.net;
+
+import com.snakegame.arena.Arena;
+import com.snakegame.arena.GreedyArenaStrategy;
+import com.snakegame.controller.InputQueue;
+import com.snakegame.controller.QueuedArenaStrategy;
+import com.snakegame.model.Direction;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * One arena game hosted by the server, with its AI snakes and one snake per connected client.
+ * Each tick is encoded once, as a delta, and the same bytes are queued to every client;
+ * a keyframe follows every KEYFRAME_INTERVAL ticks, and clients that joined since the last tick
+ * receive a keyframe instead of the delta.
+ * A client leaving hands its snake over to the next client joining, so the arena never removes snakes.
+ *
+ * @author Alessandro Sorbara
+ */
+class Room {
+
+    private final int id;
+    private final Arena arena;
+    private final DeltaEncoder encoder;
+
+    private final List<Connection> members = new ArrayList<>();
+    private final List<Connection> joiners = new ArrayList<>();
+    private final Deque<Integer> freeSnakes = new ArrayDeque<>();
+    private InputQueue[] inputs = new InputQueue[0];
+
+    private ByteBuffer frame = ByteBuffer.allocate(4096);
+    private int tick;
+    private long deltaBytes;
+    private long deltaCount;
+
+    /**
+     * Creates a room and fills its arena with AI snakes.
+     *
+     * @param id the room number
+     * @param width the number of columns of the arena
+     * @param height the number of rows of the arena
+     * @param aiSnakes the number of AI snakes
+     * @param apples the number of apples
+     * @param random the random number generator of the arena
+     */
+    Room(int id, int width, int height, int aiSnakes, int apples, Random random) {
+        this.id = id;
+        this.arena = new Arena(width, height, apples, random);
+        GreedyArenaStrategy strategy = new GreedyArenaStrategy();
+        for (int i = 0; i < aiSnakes; i++) arena.addSnake(strategy);
+        this.encoder = new DeltaEncoder(arena);
+    }
+
+    /**
+     * Returns the room number.
+     *
+     * @return the room id
+     */
+    int getId() {
+        return id;
+    }
+
+    /**
+     * Adds a client to the room, giving it a snake. The client receives a welcome frame now
+     * and a keyframe after the next tick.
+     *
+     * @param connection the client joining
+     */
+    void join(Connection connection) {
+        int snakeId;
+        InputQueue input;
+        if (!freeSnakes.isEmpty()) {
+            snakeId = freeSnakes.pop();
+            input = inputs[snakeId];
+        } else {
+            input = new InputQueue(InputQueue.DEFAULT_CAPACITY, Direction.LEFT);
+            snakeId = arena.addSnake(new QueuedArenaStrategy(input));
+            if (snakeId >= inputs.length) inputs = Arrays.copyOf(inputs, Math.max(snakeId + 1, inputs.length * 2));
+            inputs[snakeId] = input;
+        }
+        input.reset(arena.getSnake(snakeId).getDirection());
+        connection.bind(this, snakeId, input);
+        joiners.add(connection);
+
+        ensureFrameCapacity(32);
+        Protocol.beginFrame(frame, Protocol.WELCOME);
+        Protocol.putVarInt(frame, id);
+        Protocol.putVarInt(frame, snakeId);
+        Protocol.endFrame(frame);
+        connection.send(frame);
+    }
+
+    /**
+     * Checks if any client is in the room.
+     *
+     * @return true if the room has no client
+     */
+    boolean isEmpty() {
+        return members.isEmpty() && joiners.isEmpty();
+    }
+
+    /**
+     * Returns the number of clients in the room.
+     *
+     * @return the client count
+     */
+    int getClientCount() {
+        return members.size() + joiners.size();
+    }
+
+    /**
+     * Advances the arena by one tick and queues the resulting frames to the clients.
+     * Clients whose connection was closed are removed first.
+     *
+     * @param stamp the time the tick was scheduled, from System.nanoTime()
+     * @return the number of bytes queued to all clients
+     */
+    long tick(long stamp) {
+        release(members);
+        release(joiners);
+
+        arena.tick();
+        tick++;
+
+        ensureFrameCapacity(encoder.maxFrameSize());
+        encoder.encodeDelta(frame, tick, stamp);
+        deltaBytes += frame.remaining();
+        deltaCount++;
+
+        long sent = 0;
+        for (Connection member : members) sent += member.send(frame);
+
+        boolean periodic = tick % Protocol.KEYFRAME_INTERVAL == 0;
+        if (periodic || !joiners.isEmpty()) {
+            frame.clear();
+            encoder.encodeKeyframe(frame, tick, stamp);
+            if (periodic) {
+                for (Connection member : members) sent += member.send(frame);
+            }
+            for (Connection joiner : joiners) sent += joiner.send(frame);
+            members.addAll(joiners);
+            joiners.clear();
+        }
+        return sent;
+    }
+
+    /**
+     * Returns the mean size of the deltas encoded so far, length prefix included.
+     *
+     * @return the mean delta size, in bytes
+     */
+    double getMeanDeltaBytes() {
+        return deltaCount == 0 ? 0 : (double) deltaBytes / deltaCount;
+    }
+
+    /**
+     * Removes the closed connections from the list, freeing their snakes for the next clients.
+     *
+     * @param connections the members or joiners
+     */
+    private void release(List<Connection> connections) {
+        for (int i = connections.size() - 1; i >= 0; i--) {
+            Connection connection = connections.get(i);
+            if (!connection.isClosed()) continue;
+            connections.remove(i);
+            freeSnakes.push(connection.getSnakeId());
+        }
+    }
+
+    /**
+     * Makes sure the frame buffer can hold the given number of bytes, and clears it.
+     *
+     * @param size the number of bytes needed
+     */
+    private void ensureFrameCapacity(int size) {
+        if (frame.capacity() < size) frame = ByteBuffer.allocate(Math.max(size, frame.capacity() * 2));
+        frame.clear();
+    }
+}
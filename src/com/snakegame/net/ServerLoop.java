@@ -0,0 +1,365 @@
+package com.snakegame.net;
+
+import com.snakegame.model.Direction;
+import com.snakegame.model.GameRandom;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Event loop of the GameServer: one thread with its own Selector, serving the rooms assigned to it
+ * and the connections of their clients, and ticking those rooms at the server's rate.
+ * The first loop also accepts connections and reads their JOIN message, then hands each connection
+ * over to the loop owning the requested room, so that a room and its clients are only ever touched by one thread.
+ *
+ * @author Alessandro Sorbara
+ */
+class ServerLoop implements Runnable {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final GameServer server;
+    private final Selector selector;
+    private final Thread thread;
+    private final Map<Integer, Room> rooms = new HashMap<>();
+    private final List<Room> tickOrder = new ArrayList<>();
+    private final Queue<Connection> arrivals = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean open = true;
+    private volatile int roomCount;
+    private volatile int clientCount;
+    private volatile long roomTicks;
+    private volatile long busyNanos;
+    private volatile long bytesOut;
+    private volatile long skippedTicks;
+
+    /**
+     * Creates a loop and its thread, not started yet.
+     *
+     * @param server the server the loop belongs to
+     * @param index the index of the loop, used to name its thread
+     * @throws IOException if the selector cannot be opened
+     */
+    ServerLoop(GameServer server, int index) throws IOException {
+        this.server = server;
+        this.selector = Selector.open();
+        this.thread = new Thread(this, "server-loop-" + index);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Registers the listening channel with this loop, which then accepts every connection.
+     *
+     * @param acceptor the server channel, in non-blocking mode
+     * @throws IOException if the channel cannot be registered
+     */
+    void listen(ServerSocketChannel acceptor) throws IOException {
+        acceptor.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Starts the loop thread.
+     */
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Hands a connection over to this loop, which registers it and adds it to the room it asked for.
+     * Called by the accepting loop.
+     *
+     * @param connection the connection, whose room number was parsed already
+     */
+    void adopt(Connection connection) {
+        arrivals.add(connection);
+        selector.wakeup();
+    }
+
+    /**
+     * Stops the loop and closes its selector and connections.
+     */
+    void close() {
+        open = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs the loop: ticks the rooms when a tick is due, otherwise waits for I/O until then.
+     */
+    @Override
+    public void run() {
+        long tickNanos = server.getTickNanos();
+        long scheduled = System.nanoTime() + tickNanos;
+
+        try {
+            while (open) {
+                long start = System.nanoTime();
+                if (start >= scheduled) {
+                    tickRooms(scheduled);
+                    scheduled += tickNanos;
+                    long now = System.nanoTime();
+                    if (now >= scheduled) {
+                        long behind = (now - scheduled) / tickNanos + 1;
+                        skippedTicks += behind;
+                        scheduled += behind * tickNanos;
+                    }
+                }
+
+                processArrivals();
+                busyNanos += System.nanoTime() - start;
+
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) selector.select((wait + 999_999) / 1_000_000);
+                else selector.selectNow();
+
+                start = System.nanoTime();
+                processKeys();
+                busyNanos += System.nanoTime() - start;
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (open) e.printStackTrace();
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection connection) connection.close();
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of rooms with at least one client.
+     *
+     * @return the room count
+     */
+    int getRoomCount() {
+        return roomCount;
+    }
+
+    /**
+     * Returns the number of clients in the rooms of this loop.
+     *
+     * @return the client count
+     */
+    int getClientCount() {
+        return clientCount;
+    }
+
+    /**
+     * Returns the number of room ticks run, summed over the rooms.
+     *
+     * @return the room tick count
+     */
+    long getRoomTicks() {
+        return roomTicks;
+    }
+
+    /**
+     * Returns the time spent ticking rooms and serving I/O, as opposed to waiting in the selector.
+     *
+     * @return the busy time, in nanoseconds
+     */
+    long getBusyNanos() {
+        return busyNanos;
+    }
+
+    /**
+     * Returns the number of bytes queued to the clients.
+     *
+     * @return the bytes sent
+     */
+    long getBytesOut() {
+        return bytesOut;
+    }
+
+    /**
+     * Returns the number of ticks dropped because the loop fell a full period behind.
+     *
+     * @return the skipped tick count
+     */
+    long getSkippedTicks() {
+        return skippedTicks;
+    }
+
+    /**
+     * Ticks every room with a client and drops the rooms left empty.
+     *
+     * @param stamp the time the tick was scheduled
+     */
+    private void tickRooms(long stamp) {
+        long sent = 0;
+        int clients = 0;
+        for (int i = tickOrder.size() - 1; i >= 0; i--) {
+            Room room = tickOrder.get(i);
+            sent += room.tick(stamp);
+            if (room.isEmpty()) {
+                rooms.remove(room.getId());
+                tickOrder.remove(i);
+            } else {
+                clients += room.getClientCount();
+            }
+        }
+
+        roomTicks += tickOrder.size();
+        bytesOut += sent;
+        roomCount = tickOrder.size();
+        clientCount = clients;
+    }
+
+    /**
+     * Registers the connections handed over by the accepting loop and adds them to their rooms.
+     *
+     * @throws IOException if a channel cannot be registered
+     */
+    private void processArrivals() throws IOException {
+        Connection connection;
+        while ((connection = arrivals.poll()) != null) {
+            if (connection.isClosed()) continue;
+            connection.setKey(connection.getChannel().register(selector, SelectionKey.OP_READ, connection));
+            room(connection.getRequestedRoom()).join(connection);
+            parse(connection);
+        }
+    }
+
+    /**
+     * Handles the ready keys: accepts connections, reads client messages and flushes pending frames.
+     *
+     * @throws IOException if a connection cannot be accepted
+     */
+    private void processKeys() throws IOException {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) continue;
+
+            if (key.isAcceptable()) {
+                accept((ServerSocketChannel) key.channel());
+                continue;
+            }
+
+            Connection connection = (Connection) key.attachment();
+            if (key.isWritable()) connection.flush();
+            if (key.isValid() && key.isReadable()) read(connection);
+        }
+    }
+
+    /**
+     * Accepts every pending connection and waits for their JOIN message.
+     *
+     * @param acceptor the listening channel
+     * @throws IOException if a connection cannot be accepted
+     */
+    private void accept(ServerSocketChannel acceptor) throws IOException {
+        SocketChannel channel;
+        while ((channel = acceptor.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+        }
+    }
+
+    /**
+     * Reads what the client sent and handles its complete messages.
+     *
+     * @param connection the connection to read
+     */
+    private void read(Connection connection) {
+        try {
+            if (connection.getChannel().read(connection.getInbound()) < 0) {
+                connection.close();
+                return;
+            }
+        } catch (IOException e) {
+            connection.close();
+            return;
+        }
+        parse(connection);
+    }
+
+    /**
+     * Handles the complete messages in the inbound buffer: a JOIN hands the connection over to the loop of the room,
+     * a TURN is queued for the snake of the client. An unknown message closes the connection.
+     *
+     * @param connection the connection whose messages to handle
+     */
+    private void parse(Connection connection) {
+        ByteBuffer in = connection.getInbound();
+        ServerLoop owner = this;
+        in.flip();
+        try {
+            while (in.hasRemaining()) {
+                byte type = in.get(in.position());
+                int size = type == Protocol.JOIN ? Protocol.JOIN_SIZE : type == Protocol.TURN ? Protocol.TURN_SIZE : -1;
+                if (size < 0) {
+                    System.err.println("Closing client sending unknown message " + type);
+                    connection.close();
+                    return;
+                }
+                if (in.remaining() < size) break;
+                in.get();
+
+                if (type == Protocol.JOIN) {
+                    int room = in.getInt();
+                    if (connection.getRoom() != null || room < 0) {
+                        connection.close();
+                        return;
+                    }
+                    connection.requestRoom(room);
+                    owner = server.loopFor(room);
+                    if (owner != this) break;
+                    room(room).join(connection);
+                } else {
+                    int direction = in.get();
+                    if (connection.getInput() != null && direction >= 0 && direction < DIRECTIONS.length) {
+                        connection.getInput().offer(DIRECTIONS[direction]);
+                    }
+                }
+            }
+        } finally {
+            in.compact();
+        }
+
+        if (owner != this) {
+            connection.handOver();
+            owner.adopt(connection);
+        }
+    }
+
+    /**
+     * Returns the room with the given number, creating it if no client is in it yet.
+     *
+     * @param id the room number
+     * @return the room
+     */
+    private Room room(int id) {
+        Room room = rooms.get(id);
+        if (room == null) {
+            room = new Room(id, server.getWidth(), server.getHeight(), server.getAiSnakes(), server.getApples(), new GameRandom());
+            rooms.put(id, room);
+            tickOrder.add(room);
+        }
+        return room;
+    }
+}
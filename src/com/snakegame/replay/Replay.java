@@ -0,0 +1,210 @@
+package com.snakegame.replay;
+
+import com.snakegame.model.Direction;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A recorded game, stored as the board size, the seed of its random number generator and the moves played.
+ * Since the model draws every random number from the seeded generator, these are enough to re-simulate the game.
+ * Moves are run-length encoded one byte per run: the top two bits hold the direction ordinal
+ * and the low six bits the run length minus one, so runs longer than 64 ticks take several bytes.
+ * <p>
+ * The binary file holds a header (magic, version, width, height, seed, ticks, final score, run bytes)
+ * followed by the run bytes, all in big-endian order.
+ *
+ * @author Alessandro Sorbara
+ */
+public class Replay {
+
+    static final int MAX_RUN = 64;
+    private static final int MAGIC = 0x534E4B52;
+    private static final int VERSION = 1;
+
+    private final int width;
+    private final int height;
+    private final long seed;
+    private final int ticks;
+    private final int finalScore;
+    private final byte[] runs;
+
+    /**
+     * Creates a replay from its encoded moves.
+     *
+     * @param width the number of columns of the board
+     * @param height the number of rows of the board
+     * @param seed the seed the board's generator was reset with
+     * @param ticks the number of moves played
+     * @param finalScore the score at the end of the recording, used to verify re-simulations
+     * @param runs the run-length encoded moves
+     */
+    Replay(int width, int height, long seed, int ticks, int finalScore, byte[] runs) {
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+        this.ticks = ticks;
+        this.finalScore = finalScore;
+        this.runs = runs;
+    }
+
+    /**
+     * Returns the number of columns of the board.
+     *
+     * @return the width of the board
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of rows of the board.
+     *
+     * @return the height of the board
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the seed the board's generator was reset with.
+     *
+     * @return the seed of the game
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the number of moves recorded.
+     *
+     * @return the number of ticks
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns the score at the end of the recording.
+     *
+     * @return the final score
+     */
+    public int getFinalScore() {
+        return finalScore;
+    }
+
+    /**
+     * Returns the size of the encoded moves.
+     *
+     * @return the number of run bytes
+     */
+    public int getEncodedSize() {
+        return runs.length;
+    }
+
+    /**
+     * Returns the direction of a run byte.
+     *
+     * @param run the run byte
+     * @return the direction of the run
+     */
+    static Direction runDirection(byte run) {
+        return Direction.values()[(run >> 6) & 3];
+    }
+
+    /**
+     * Returns the number of ticks of a run byte.
+     *
+     * @param run the run byte
+     * @return the length of the run, between 1 and MAX_RUN
+     */
+    static int runLength(byte run) {
+        return (run & 0x3F) + 1;
+    }
+
+    /**
+     * Returns the run bytes, without copying them.
+     *
+     * @return the encoded moves
+     */
+    byte[] runs() {
+        return runs;
+    }
+
+    /**
+     * Writes the replay in its binary format.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeInt(width);
+        data.writeInt(height);
+        data.writeLong(seed);
+        data.writeInt(ticks);
+        data.writeInt(finalScore);
+        data.writeInt(runs.length);
+        data.write(runs);
+        data.flush();
+    }
+
+    /**
+     * Writes the replay to a file, replacing it if it exists.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            write(out);
+        }
+    }
+
+    /**
+     * Reads a replay written by write.
+     *
+     * @param in the stream to read from
+     * @return the replay
+     * @throws IOException if the stream cannot be read or does not hold a valid replay
+     */
+    public static Replay read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) throw new IOException("Not a replay file");
+        int version = data.readUnsignedByte();
+        if (version != VERSION) throw new IOException("Unsupported replay version: " + version);
+
+        int width = data.readInt();
+        int height = data.readInt();
+        long seed = data.readLong();
+        int ticks = data.readInt();
+        int finalScore = data.readInt();
+        int length = data.readInt();
+        if (ticks < 0 || length < 0 || length > ticks) throw new IOException("Corrupted replay header");
+
+        byte[] runs = new byte[length];
+        data.readFully(runs);
+
+        long total = 0;
+        for (byte run : runs) total += runLength(run);
+        if (total != ticks) throw new IOException("Replay runs cover " + total + " ticks instead of " + ticks);
+
+        return new Replay(width, height, seed, ticks, finalScore, runs);
+    }
+
+    /**
+     * Reads a replay from a file.
+     *
+     * @param file the file to read
+     * @return the replay
+     * @throws IOException if the file cannot be read or does not hold a valid replay
+     */
+    public static Replay load(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            return read(in);
+        }
+    }
+}
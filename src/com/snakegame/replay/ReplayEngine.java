@@ -0,0 +1,184 @@
+package com.snakegame.replay;
+
+import com.snakegame.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Re-simulates a recorded game on a headless board, as fast as the model can tick.
+ * While the game advances, the engine saves a snapshot of the board every snapshotInterval ticks,
+ * so that seeking backwards restores the nearest earlier snapshot and only replays the ticks after it.
+ * Snapshots copy the snake's cells, so their memory grows with the length of the snake and of the game
+ * divided by the interval.
+ *
+ * @author Alessandro Sorbara
+ */
+public class ReplayEngine {
+
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 1024;
+
+    private final Replay replay;
+    private final byte[] runs;
+    private final int snapshotInterval;
+    private final GameRandom random;
+    private final Board board;
+    private final List<Snapshot> snapshots = new ArrayList<>();
+
+    private int tick;
+    private int runIndex;
+    private int runOffset;
+
+    /**
+     * Saved position of the replay at a tick, including the generator state and the position in the runs.
+     */
+    private record Snapshot(int tick, int[] cells, boolean growing, int appleCell, int score,
+                            long randomState, int runIndex, int runOffset) {}
+
+    /**
+     * Creates an engine snapshotting every DEFAULT_SNAPSHOT_INTERVAL ticks, positioned at the start of the game.
+     *
+     * @param replay the game to re-simulate
+     */
+    public ReplayEngine(Replay replay) {
+        this(replay, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Creates an engine positioned at the start of the game.
+     *
+     * @param replay the game to re-simulate
+     * @param snapshotInterval the number of ticks between two snapshots
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public ReplayEngine(Replay replay, int snapshotInterval) {
+        if (snapshotInterval < 1) throw new IllegalArgumentException("Snapshot interval must be positive: " + snapshotInterval);
+        this.replay = replay;
+        this.runs = replay.runs();
+        this.snapshotInterval = snapshotInterval;
+        this.random = new GameRandom(replay.getSeed());
+        this.board = new Board(replay.getWidth(), replay.getHeight(), random);
+        rewind();
+    }
+
+    /**
+     * Returns the board the game is re-simulated on.
+     *
+     * @return the board
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Returns the replay being re-simulated.
+     *
+     * @return the replay
+     */
+    public Replay getReplay() {
+        return replay;
+    }
+
+    /**
+     * Returns the number of ticks played so far.
+     *
+     * @return the current tick
+     */
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * Checks if every recorded tick has been played.
+     *
+     * @return true if the replay is over
+     */
+    public boolean isFinished() {
+        return tick == replay.getTicks();
+    }
+
+    /**
+     * Goes back to the start of the game, keeping the snapshots taken so far.
+     */
+    public void rewind() {
+        board.resetBoard(replay.getSeed());
+        board.getGameState().start();
+        tick = 0;
+        runIndex = 0;
+        runOffset = 0;
+    }
+
+    /**
+     * Plays the next recorded tick.
+     *
+     * @return false if the replay was already over, true otherwise
+     */
+    public boolean step() {
+        if (tick == replay.getTicks()) return false;
+        if (tick % snapshotInterval == 0 && tick / snapshotInterval == snapshots.size()) snapshots.add(snapshot());
+
+        byte run = runs[runIndex];
+        board.moveSnake(Replay.runDirection(run));
+        if (++runOffset == Replay.runLength(run)) {
+            runIndex++;
+            runOffset = 0;
+        }
+        tick++;
+        return true;
+    }
+
+    /**
+     * Plays every remaining tick.
+     */
+    public void runToEnd() {
+        while (step()) {}
+    }
+
+    /**
+     * Moves to the given tick, restoring the nearest snapshot at or before it when that is closer
+     * than the current position, then playing forward.
+     *
+     * @param target the tick to move to
+     * @throws IllegalArgumentException if the tick is outside [0, ticks]
+     */
+    public void seek(int target) {
+        if (target < 0 || target > replay.getTicks()) throw new IllegalArgumentException("Tick outside the replay: " + target);
+
+        int index = Math.min(target / snapshotInterval, snapshots.size() - 1);
+        if (index >= 0 && (target < tick || snapshots.get(index).tick() > tick)) {
+            restore(snapshots.get(index));
+        } else if (target < tick) {
+            rewind();
+        }
+
+        while (tick < target) step();
+    }
+
+    /**
+     * Saves the current position.
+     *
+     * @return the snapshot
+     */
+    private Snapshot snapshot() {
+        Snake snake = board.getSnake();
+        int[] cells = new int[snake.size()];
+        for (int i = 0; i < cells.length; i++) cells[i] = snake.cellAt(i);
+        Point apple = board.getApple().getPosition();
+
+        return new Snapshot(tick, cells, snake.isGrowing(), snake.cellOf(apple.getX(), apple.getY()),
+                board.getGameState().getScore(), random.getState(), runIndex, runOffset);
+    }
+
+    /**
+     * Restores a saved position.
+     *
+     * @param snapshot the snapshot to restore
+     */
+    private void restore(Snapshot snapshot) {
+        board.restoreBoard(snapshot.cells(), snapshot.cells().length, snapshot.growing(), snapshot.appleCell(), snapshot.score());
+        random.setState(snapshot.randomState());
+        tick = snapshot.tick();
+        runIndex = snapshot.runIndex();
+        runOffset = snapshot.runOffset();
+    }
+}
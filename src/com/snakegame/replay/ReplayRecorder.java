@@ -0,0 +1,109 @@
+package com.snakegame.replay;
+
+import com.snakegame.model.Direction;
+
+import java.util.Arrays;
+
+/**
+ * Records the moves of a game into a Replay.
+ * Recording a move takes constant time and only allocates when the run buffer doubles.
+ *
+ * @author Alessandro Sorbara
+ */
+public class ReplayRecorder {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int width;
+    private int height;
+    private long seed;
+    private int ticks;
+    private byte[] runs = new byte[INITIAL_CAPACITY];
+    private int runCount;
+    private Direction runDirection;
+    private int runLength;
+
+    /**
+     * Creates a recorder for a game on a board of the given size, reset with the given seed.
+     *
+     * @param width the number of columns of the board
+     * @param height the number of rows of the board
+     * @param seed the seed the board was reset with
+     */
+    public ReplayRecorder(int width, int height, long seed) {
+        start(width, height, seed);
+    }
+
+    /**
+     * Discards the recorded moves and starts recording a new game.
+     *
+     * @param width the number of columns of the board
+     * @param height the number of rows of the board
+     * @param seed the seed the board was reset with
+     */
+    public void start(int width, int height, long seed) {
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+        ticks = 0;
+        runCount = 0;
+        runDirection = null;
+        runLength = 0;
+    }
+
+    /**
+     * Records the move played on a tick, extending the current run if it goes the same way.
+     *
+     * @param direction the direction the snake was moved in
+     */
+    public void record(Direction direction) {
+        if (direction != runDirection || runLength == Replay.MAX_RUN) {
+            flushRun();
+            runDirection = direction;
+        }
+        runLength++;
+        ticks++;
+    }
+
+    /**
+     * Returns the number of moves recorded so far.
+     *
+     * @return the number of ticks
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Builds a replay of the moves recorded so far. Recording can continue afterwards.
+     *
+     * @param finalScore the score of the game after the last recorded move
+     * @return the replay
+     */
+    public Replay toReplay(int finalScore) {
+        byte[] encoded = Arrays.copyOf(runs, runCount + (runLength > 0 ? 1 : 0));
+        if (runLength > 0) encoded[runCount] = encode(runDirection, runLength);
+        return new Replay(width, height, seed, ticks, finalScore, encoded);
+    }
+
+    /**
+     * Appends the current run, if any, to the run buffer.
+     */
+    private void flushRun() {
+        if (runLength == 0) return;
+        if (runCount == runs.length) runs = Arrays.copyOf(runs, runs.length * 2);
+        runs[runCount++] = encode(runDirection, runLength);
+        runLength = 0;
+    }
+
+    /**
+     * Packs a run into its byte.
+     *
+     * @param direction the direction of the run
+     * @param length the number of ticks of the run, between 1 and MAX_RUN
+     * @return the run byte
+     */
+    private static byte encode(Direction direction, int length) {
+        return (byte) ((direction.ordinal() << 6) | (length - 1));
+    }
+}
@@ -0,0 +1,126 @@
+package com.snakegame.replay;
+
+import com.snakegame.ai.DirectionStrategy;
+import com.snakegame.ai.GreedyStrategy;
+import com.snakegame.model.Board;
+import com.snakegame.model.Direction;
+import com.snakegame.model.GameRandom;
+import com.snakegame.model.GameState;
+import com.snakegame.model.Point;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Command line entry point to record, re-simulate and seek replays.
+ *
+ * @author Alessandro Sorbara
+ */
+public class ReplayTool {
+
+    /**
+     * Runs one of the commands:
+     * <ul>
+     *     <li>{@code record <file> [width height [seed]]} plays a game with the GreedyStrategy and saves its replay</li>
+     *     <li>{@code play <file> [repeats]} re-simulates the replay the given number of times (default 1000),
+     *     checks the final score and prints ticks/sec</li>
+     *     <li>{@code seek <file> <tick>...} seeks to each tick in turn and prints the position and the time taken</li>
+     * </ul>
+     *
+     * @param args the command and its arguments
+     * @throws IOException if the replay cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ReplayTool record <file> [width height [seed]] | play <file> [repeats] | seek <file> <tick>...");
+            System.exit(1);
+        }
+
+        Path file = Path.of(args[1]);
+        switch (args[0]) {
+            case "record" -> record(file, args);
+            case "play" -> play(file, args.length >= 3 ? Integer.parseInt(args[2]) : 1000);
+            case "seek" -> seek(file, args);
+            default -> {
+                System.err.println("Unknown command: " + args[0]);
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Plays a game with the GreedyStrategy, recording every move, and saves the replay.
+     *
+     * @param file the file to write
+     * @param args the command line, optionally holding the board size and seed
+     * @throws IOException if the replay cannot be written
+     */
+    private static void record(Path file, String[] args) throws IOException {
+        int width = args.length >= 4 ? Integer.parseInt(args[2]) : Board.DEFAULT_WIDTH;
+        int height = args.length >= 4 ? Integer.parseInt(args[3]) : Board.DEFAULT_HEIGHT;
+        long seed = args.length >= 5 ? Long.parseLong(args[4]) : System.nanoTime();
+
+        Board board = new Board(width, height, new GameRandom());
+        board.resetBoard(seed);
+        GameState state = board.getGameState();
+        DirectionStrategy strategy = new GreedyStrategy();
+        ReplayRecorder recorder = new ReplayRecorder(width, height, seed);
+
+        while (!state.isGameOver() && !state.isGameWon()) {
+            Direction direction = strategy.nextDirection(board);
+            recorder.record(direction);
+            board.moveSnake(direction);
+        }
+
+        Replay replay = recorder.toReplay(state.getScore());
+        replay.save(file);
+        System.out.printf("Recorded %d ticks on %dx%d (seed %d, score %d) in %d bytes of moves%n",
+                replay.getTicks(), width, height, seed, replay.getFinalScore(), replay.getEncodedSize());
+    }
+
+    /**
+     * Re-simulates a replay from the start the given number of times and reports the throughput.
+     *
+     * @param file the replay file
+     * @param repeats the number of re-simulations
+     * @throws IOException if the replay cannot be read
+     */
+    private static void play(Path file, int repeats) throws IOException {
+        Replay replay = Replay.load(file);
+        ReplayEngine engine = new ReplayEngine(replay);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < repeats; i++) {
+            engine.rewind();
+            engine.runToEnd();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int score = engine.getBoard().getGameState().getScore();
+        System.out.printf("%d ticks x %d in %.3f s, %,.0f ticks/sec%n", replay.getTicks(), repeats, seconds, replay.getTicks() * (double) repeats / seconds);
+        System.out.printf("final score %d, recorded %d: %s%n", score, replay.getFinalScore(), score == replay.getFinalScore() ? "match" : "MISMATCH");
+    }
+
+    /**
+     * Seeks to each requested tick in turn and prints where the snake is.
+     *
+     * @param file the replay file
+     * @param args the command line, holding the ticks to seek to
+     * @throws IOException if the replay cannot be read
+     */
+    private static void seek(Path file, String[] args) throws IOException {
+        ReplayEngine engine = new ReplayEngine(Replay.load(file));
+
+        for (int i = 2; i < args.length; i++) {
+            int target = Integer.parseInt(args[i]);
+            long start = System.nanoTime();
+            engine.seek(target);
+            double micros = (System.nanoTime() - start) / 1e3;
+
+            Board board = engine.getBoard();
+            Point head = board.getSnake().head();
+            System.out.printf("tick %d: head (%d, %d), length %d, score %d (%.1f us)%n", engine.getTick(),
+                    head.getX(), head.getY(), board.getSnake().size(), board.getGameState().getScore(), micros);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.snakegame.save;
+
+import com.snakegame.model.Board;
+import com.snakegame.model.BoardSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves the game in progress to a file periodically, on a background thread, for crash recovery.
+ * It reads the snapshots the board publishes after every tick, which are immutable, so the tick thread is never locked
+ * nor slowed down, whatever the length of the snake: encoding and writing happen entirely on the checkpoint thread.
+ * A snapshot is only saved once, so an idle or paused game is not written again.
+ * The board must publish snapshots, as it does when it is shown by a GamePanel.
+ *
+ * @author Alessandro Sorbara
+ */
+public class Checkpointer implements AutoCloseable {
+
+    public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+    private final Board board;
+    private final Path file;
+    private final ScheduledExecutorService executor;
+
+    private BoardSnapshot saved;
+    private volatile long checkpoints;
+    private volatile long lastSaveNanos;
+
+    /**
+     * Starts checkpointing a board to a file every second.
+     *
+     * @param board the board to save, which must publish snapshots
+     * @param file the file to save to
+     */
+    public Checkpointer(Board board, Path file) {
+        this(board, file, DEFAULT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Starts checkpointing a board to a file.
+     *
+     * @param board the board to save, which must publish snapshots
+     * @param file the file to save to
+     * @param intervalMillis the time between two checkpoints, in milliseconds
+     */
+    public Checkpointer(Board board, Path file, long intervalMillis) {
+        this.board = board;
+        this.file = file;
+        executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::checkpoint, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Asks for a checkpoint of the latest snapshot as soon as possible, as when the game is paused, without waiting for it.
+     * Once closing has begun the request is dropped, since close writes the latest snapshot itself.
+     */
+    public void requestCheckpoint() {
+        try {
+            executor.execute(this::checkpoint);
+        } catch (RejectedExecutionException e) {
+            // closing, and close saves the latest snapshot itself
+        }
+    }
+
+    /**
+     * Returns the number of checkpoints written.
+     *
+     * @return the number of saves
+     */
+    public long getCheckpoints() {
+        return checkpoints;
+    }
+
+    /**
+     * Returns the time taken to encode and write the last checkpoint.
+     *
+     * @return the duration of the last save, in nanoseconds
+     */
+    public long getLastSaveNanos() {
+        return lastSaveNanos;
+    }
+
+    /**
+     * Stops checkpointing, after writing the latest snapshot if it was not saved yet.
+     * If interrupted while waiting for a checkpoint in progress, the latest snapshot is still saved once that checkpoint
+     * is done, and the interrupt status of the thread is restored afterwards, since an interrupted thread cannot write
+     * through a FileChannel.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        boolean interrupted = false;
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        checkpoint();
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Saves the latest snapshot, unless it was already saved. Only runs on the checkpoint thread, or once it has stopped.
+     */
+    private synchronized void checkpoint() {
+        BoardSnapshot snapshot = board.getSnapshot();
+        if (snapshot == null || snapshot == saved) return;
+
+        long start = System.nanoTime();
+        try {
+            SaveGame.of(snapshot).save(file);
+            saved = snapshot;
+            checkpoints++;
+            lastSaveNanos = System.nanoTime() - start;
+        } catch (IOException e) {
+            System.err.println("Cannot save checkpoint to " + file + ": " + e.getMessage());
+        }
+    }
+}
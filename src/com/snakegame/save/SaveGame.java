@@ -0,0 +1,357 @@
+package com.snakegame.save;
+
+import com.snakegame.model.Board;
+import com.snakegame.model.BoardSnapshot;
+import com.snakegame.model.Direction;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A saved game in progress, enough to resume it exactly: the board size, the state of the random number generator,
+ * so the same apples spawn next, the snake, the apple, the score and the end of game flags.
+ * The snake is stored as its head cell followed by a chain of 2-bit direction ordinals, four per byte, each leading
+ * from a segment to the next one towards the tail, so a snake of a million segments takes 250 KB.
+ * <p>
+ * The binary file holds a header (magic, version, width, height, random state, score, flags, apple cell, length,
+ * head cell) followed by the chain bytes and a CRC-32 of everything before it, all in big-endian order.
+ * Files are written through a FileChannel into a temporary file, forced to the device and moved over the previous save,
+ * so a crash while saving leaves the previous save intact.
+ *
+ * @author Alessandro Sorbara
+ */
+public class SaveGame {
+
+    static final int HEADER_SIZE = 38;
+    private static final int MAGIC = 0x534E4B47;
+    private static final int VERSION = 1;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private static final int GROWING = 1;
+    private static final int GAME_OVER = 2;
+    private static final int GAME_WON = 4;
+
+    private final int width;
+    private final int height;
+    private final long randomState;
+    private final int score;
+    private final int flags;
+    private final int appleCell;
+    private final int length;
+    private final int headCell;
+    private final byte[] chain;
+
+    /**
+     * Creates a save from its encoded fields.
+     *
+     * @param width the number of columns of the board
+     * @param height the number of rows of the board
+     * @param randomState the state of the random number generator, or -1 if unknown
+     * @param score the score of the game
+     * @param flags the growing, game over and game won flags
+     * @param appleCell the packed cell index of the apple
+     * @param length the number of segments of the snake
+     * @param headCell the packed cell index of the head
+     * @param chain the direction chain, (length - 1) ordinals packed four per byte
+     */
+    private SaveGame(int width, int height, long randomState, int score, int flags, int appleCell, int length, int headCell, byte[] chain) {
+        this.width = width;
+        this.height = height;
+        this.randomState = randomState;
+        this.score = score;
+        this.flags = flags;
+        this.appleCell = appleCell;
+        this.length = length;
+        this.headCell = headCell;
+        this.chain = chain;
+    }
+
+    /**
+     * Encodes a snapshot of a board. Snapshots are immutable, so this may run on any thread.
+     *
+     * @param snapshot the snapshot to save
+     * @return the save
+     */
+    public static SaveGame of(BoardSnapshot snapshot) {
+        int width = snapshot.getWidth();
+        int length = snapshot.size();
+        byte[] chain = new byte[chainBytes(length)];
+
+        int previous = snapshot.cellAt(0);
+        for (int i = 1; i < length; i++) {
+            int cell = snapshot.cellAt(i);
+            int d = cell == previous - width ? 0 : cell == previous + width ? 1 : cell == previous - 1 ? 2 : 3;
+            chain[(i - 1) >>> 2] |= (byte) (d << (((i - 1) & 3) << 1));
+            previous = cell;
+        }
+
+        int flags = (snapshot.isGrowing() ? GROWING : 0) | (snapshot.isGameOver() ? GAME_OVER : 0) | (snapshot.isGameWon() ? GAME_WON : 0);
+        return new SaveGame(width, snapshot.getHeight(), snapshot.getRandomState(), snapshot.getScore(), flags,
+                snapshot.getAppleCell(), length, snapshot.headCell(), chain);
+    }
+
+    /**
+     * Encodes the current state of a board.
+     * Must be called by the thread that ticks the board, or with the board locked.
+     *
+     * @param board the board to save
+     * @return the save
+     */
+    public static SaveGame of(Board board) {
+        return of(board.takeSnapshot());
+    }
+
+    /**
+     * Restores the saved game on a board of the same size, random number generator included if it was saved.
+     * The generator is set first, so the snapshot published by the restored board holds its state, and is set back
+     * if the save turns out not to be valid, so a rejected save leaves the apples of the current game as they were.
+     * Must be called by the thread that ticks the board, or with the board locked.
+     *
+     * @param board the board to restore
+     * @throws IllegalArgumentException if the board size differs or the saved snake is not a valid body
+     */
+    public void restore(Board board) {
+        if (board.getWidth() != width || board.getHeight() != height) {
+            throw new IllegalArgumentException("Save of a " + width + "x" + height + " board cannot be restored on " + board.getWidth() + "x" + board.getHeight());
+        }
+        long previousState = board.getRandomState();
+        if (randomState >= 0) board.setRandomState(randomState);
+        try {
+            board.restoreBoard(cells(), length, isGrowing(), appleCell, score, isGameOver(), isGameWon());
+        } catch (IllegalArgumentException e) {
+            if (randomState >= 0) board.setRandomState(previousState);
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes the cells of the snake.
+     *
+     * @return the packed cell indices of the segments, head first
+     * @throws IllegalArgumentException if the chain leaves the board
+     */
+    public int[] cells() {
+        int[] cells = new int[length];
+        int cell = headCell;
+        cells[0] = cell;
+        for (int i = 1; i < length; i++) {
+            int d = (chain[(i - 1) >>> 2] >>> (((i - 1) & 3) << 1)) & 3;
+            int x = cell % width;
+            cell = switch (DIRECTIONS[d]) {
+                case UP -> cell - width;
+                case DOWN -> cell + width;
+                case LEFT -> x > 0 ? cell - 1 : -1;
+                case RIGHT -> x < width - 1 ? cell + 1 : -1;
+            };
+            if (cell < 0 || cell >= width * height) throw new IllegalArgumentException("Saved snake leaves the board at segment " + i);
+            cells[i] = cell;
+        }
+        return cells;
+    }
+
+    /**
+     * Returns the number of columns of the board.
+     *
+     * @return the width of the board
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of rows of the board.
+     *
+     * @return the height of the board
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the number of segments of the snake.
+     *
+     * @return the length of the snake
+     */
+    public int size() {
+        return length;
+    }
+
+    /**
+     * Returns the score of the game.
+     *
+     * @return the score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Checks if the snake had just eaten and keeps its tail on the next move.
+     *
+     * @return true if the snake is growing
+     */
+    public boolean isGrowing() {
+        return (flags & GROWING) != 0;
+    }
+
+    /**
+     * Checks if the game was lost.
+     *
+     * @return true if the game is over
+     */
+    public boolean isGameOver() {
+        return (flags & GAME_OVER) != 0;
+    }
+
+    /**
+     * Checks if the game was won.
+     *
+     * @return true if the snake covers the whole board
+     */
+    public boolean isGameWon() {
+        return (flags & GAME_WON) != 0;
+    }
+
+    /**
+     * Returns the size of the save in its binary format.
+     *
+     * @return the number of bytes written by write
+     */
+    public int getEncodedSize() {
+        return HEADER_SIZE + chain.length + Integer.BYTES;
+    }
+
+    /**
+     * Writes the save in its binary format.
+     *
+     * @param channel the channel to write to
+     * @throws IOException if the channel cannot be written
+     */
+    public void write(GatheringByteChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).put((byte) VERSION).putInt(width).putInt(height).putLong(randomState).putInt(score)
+                .put((byte) flags).putInt(appleCell).putInt(length).putInt(headCell).flip();
+        ByteBuffer body = ByteBuffer.wrap(chain);
+
+        CRC32 crc = new CRC32();
+        crc.update(header.duplicate());
+        crc.update(body.duplicate());
+        ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES).putInt((int) crc.getValue()).flip();
+
+        ByteBuffer[] buffers = {header, body, trailer};
+        while (trailer.hasRemaining()) channel.write(buffers);
+    }
+
+    /**
+     * Writes the save to a file, replacing it if it exists. The save is written to a temporary file next to it,
+     * forced to the device and moved over the file, so the file always holds a complete save.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel);
+            channel.force(false);
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a save written by write. The header is checked before the chain is allocated: the board must be between
+     * Board.MIN_SIZE and Board.MAX_SIZE on each side and, if the channel knows its size, hold the whole chain.
+     *
+     * @param channel the channel to read from
+     * @return the save
+     * @throws IOException if the channel cannot be read or does not hold a valid save
+     */
+    public static SaveGame read(ReadableByteChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header);
+        if (header.getInt() != MAGIC) throw new IOException("Not a save file");
+        int version = header.get() & 0xFF;
+        if (version != VERSION) throw new IOException("Unsupported save version: " + version);
+
+        int width = header.getInt();
+        int height = header.getInt();
+        long randomState = header.getLong();
+        int score = header.getInt();
+        int flags = header.get() & 0xFF;
+        int appleCell = header.getInt();
+        int length = header.getInt();
+        int headCell = header.getInt();
+        if (width < Board.MIN_SIZE || width > Board.MAX_SIZE || height < Board.MIN_SIZE || height > Board.MAX_SIZE) {
+            throw new IOException("Corrupted save header: board of " + width + "x" + height);
+        }
+        long cells = (long) width * height;
+        if (length < 1 || length > cells || score < 0) throw new IOException("Corrupted save header");
+        if (headCell < 0 || headCell >= cells || appleCell < 0 || appleCell >= cells) throw new IOException("Corrupted save header");
+        if (channel instanceof SeekableByteChannel seekable && seekable.size() - seekable.position() < chainBytes(length) + Integer.BYTES) {
+            throw new IOException("Truncated save file");
+        }
+
+        byte[] chain = new byte[chainBytes(length)];
+        readFully(channel, ByteBuffer.wrap(chain));
+        ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES);
+        readFully(channel, trailer);
+
+        CRC32 crc = new CRC32();
+        crc.update(header.flip());
+        crc.update(chain);
+        if (trailer.getInt() != (int) crc.getValue()) throw new IOException("Save checksum mismatch");
+
+        return new SaveGame(width, height, randomState, score, flags, appleCell, length, headCell, chain);
+    }
+
+    /**
+     * Reads a save from a file.
+     *
+     * @param file the file to read
+     * @return the save
+     * @throws IOException if the file cannot be read or does not hold a valid save
+     */
+    public static SaveGame load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+    /**
+     * Fills a buffer from a channel and flips it for reading.
+     *
+     * @param channel the channel to read from
+     * @param buffer the buffer to fill
+     * @throws IOException if the channel cannot be read or ends first
+     */
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new IOException("Truncated save file");
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Returns the number of bytes of the direction chain of a snake.
+     *
+     * @param length the number of segments
+     * @return the chain size, four directions per byte
+     */
+    private static int chainBytes(int length) {
+        return (length - 1 + 3) >>> 2;
+    }
+}
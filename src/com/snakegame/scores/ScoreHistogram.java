@@ -0,0 +1,123 @@
+package com.snakegame.scores;
+
+import java.util.Arrays;
+
+/**
+ * Counts how many records reached each score, in a Fenwick tree over the scores, so that adding a record,
+ * the rank of a score and the score at a percentile all take O(log S) time, S being the highest score seen.
+ * The tree doubles whenever a score beyond it is added, up to ScoreLog.MAX_SCORE, and is rebuilt from the plain counts in O(S).
+ *
+ * @author Alessandro Sorbara
+ */
+class ScoreHistogram {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] counts = new long[INITIAL_CAPACITY];
+    private long[] tree = new long[INITIAL_CAPACITY + 1];
+    private long total;
+    private long sum;
+    private int max;
+
+    /**
+     * Counts a record.
+     *
+     * @param score the score of the record, between 0 and ScoreLog.MAX_SCORE
+     */
+    void add(int score) {
+        if (score >= counts.length) grow(score);
+        counts[score]++;
+        for (int i = score + 1; i < tree.length; i += i & -i) tree[i]++;
+        total++;
+        sum += score;
+        max = Math.max(max, score);
+    }
+
+    /**
+     * Returns the number of records counted.
+     *
+     * @return the total count
+     */
+    long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the highest score counted.
+     *
+     * @return the maximum score, or 0 if no record was counted
+     */
+    int getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the mean score.
+     *
+     * @return the mean, or 0 if no record was counted
+     */
+    double getMean() {
+        return total == 0 ? 0 : (double) sum / total;
+    }
+
+    /**
+     * Returns the number of records with the given score.
+     *
+     * @param score the score
+     * @return the count of the score
+     */
+    long countOf(int score) {
+        return score < 0 || score >= counts.length ? 0 : counts[score];
+    }
+
+    /**
+     * Returns the number of records scoring strictly less than the given score.
+     *
+     * @param score the score
+     * @return the number of records below the score
+     */
+    long countBelow(int score) {
+        long below = 0;
+        for (int i = Math.min(Math.max(score, 0), counts.length); i > 0; i -= i & -i) below += tree[i];
+        return below;
+    }
+
+    /**
+     * Returns the lowest score such that at least the given percentage of the records score at most as much.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the score at the percentile, or 0 if no record was counted
+     */
+    int scoreAt(double percentile) {
+        if (total == 0) return 0;
+        long rank = Math.max(1, Math.min(total, (long) Math.ceil(percentile / 100 * total)));
+
+        int position = 0;
+        for (int step = Integer.highestOneBit(counts.length); step > 0; step >>>= 1) {
+            int next = position + step;
+            if (next < tree.length && tree[next] < rank) {
+                position = next;
+                rank -= tree[next];
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Doubles the capacity, or more if needed to hold the given score, without going beyond the highest possible score,
+     * and rebuilds the tree from the counts.
+     *
+     * @param score the score to make room for, at most ScoreLog.MAX_SCORE
+     */
+    private void grow(int score) {
+        int capacity = Math.min(Math.max(counts.length * 2, score + 1), ScoreLog.MAX_SCORE + 1);
+        counts = Arrays.copyOf(counts, capacity);
+
+        tree = new long[capacity + 1];
+        for (int i = 1; i <= capacity; i++) {
+            tree[i] += counts[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= capacity) tree[parent] += tree[i];
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package com.snakegame.scores;
+
+import com.snakegame.model.Board;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persistent store of game results: an append-only file of fixed-size records, written through memory-mapped regions.
+ * <p>
+ * The file holds a header (magic, version, record size) followed by 32-byte records, big-endian:
+ * timestamp, seed, score, ticks, width, height and a commit word. The commit word holds a tag, the won and resumed flags
+ * and a checksum of the other fields, and is stored last, after a release fence, so a record is only ever seen
+ * as committed once all of its fields are; a record torn by a crash or a power loss fails its checksum.
+ * The file grows by whole regions of a million records, mapped as they are needed, and the unused tail reads as zeros.
+ * <p>
+ * Opening a log scans the mapped file up to the first record that is not committed, which marks the end of the log,
+ * clears whatever valid-looking records follow it, and rebuilds in memory a ranking of the best records and a histogram
+ * of the scores; appends keep both up to date, so the best scores and the rank of a score are answered in microseconds
+ * however many records the file holds. Appends survive a crash of the process as soon as they return, and
+ * a crash of the machine once force has been called. A file is open in one log at a time.
+ *
+ * @author Alessandro Sorbara
+ */
+public class ScoreLog implements AutoCloseable {
+
+    public static final int DEFAULT_TOP_CAPACITY = 100;
+    public static final int MAX_SCORE = Board.MAX_SIZE * Board.MAX_SIZE;
+
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 32;
+    private static final int MAGIC = 0x534E4B53;
+    private static final int VERSION = 1;
+    private static final int REGION_SHIFT = 20;
+    private static final int REGION_RECORDS = 1 << REGION_SHIFT;
+    private static final long REGION_BYTES = (long) REGION_RECORDS * RECORD_SIZE;
+    private static final long MAX_RECORDS = 1L << 32;
+
+    private static final int TIMESTAMP = 0;
+    private static final int SEED = 8;
+    private static final int SCORE = 16;
+    private static final int TICKS = 20;
+    private static final int WIDTH = 24;
+    private static final int HEIGHT = 26;
+    private static final int COMMIT = 28;
+    private static final int COMMIT_TAG = 0x5C;
+    private static final int WON = 1;
+    private static final int RESUMED = 2;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final FileLock lock;
+    private final List<MappedByteBuffer> regions = new ArrayList<>();
+    private final TopScores top;
+    private final ScoreHistogram histogram = new ScoreHistogram();
+    private long count;
+    private long forced;
+    private boolean closed;
+
+    /**
+     * Opens the log, creating it if it does not exist, and ranks the best hundred records.
+     *
+     * @param file the log file
+     * @throws IOException if the file cannot be opened, is not a score log or is already open
+     */
+    public ScoreLog(Path file) throws IOException {
+        this(file, DEFAULT_TOP_CAPACITY);
+    }
+
+    /**
+     * Opens the log, creating it if it does not exist, and scans its records.
+     *
+     * @param file the log file
+     * @param topCapacity the number of best records kept in memory, the most top can return
+     * @throws IOException if the file cannot be opened, is not a score log or is already open
+     */
+    public ScoreLog(Path file, int topCapacity) throws IOException {
+        this.file = file;
+        this.top = new TopScores(topCapacity);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            lock = tryLock();
+            if (channel.size() == 0) writeHeader();
+            else checkHeader();
+
+            long regionCount = Math.max(1, (channel.size() - HEADER_SIZE + REGION_BYTES - 1) / REGION_BYTES);
+            for (long r = 0; r < regionCount; r++) mapRegion();
+            scan();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends the result of a game. The record is durable against a crash of the process when this returns.
+     *
+     * @param timestamp the time the game ended, in milliseconds since the epoch
+     * @param seed the seed the board was reset with
+     * @param width the number of columns of the board
+     * @param height the number of rows of the board
+     * @param score the final score, between 0 and MAX_SCORE
+     * @param ticks the number of moves played
+     * @param won true if the snake filled the board
+     * @return the index of the new record
+     * @throws IOException if the file cannot grow
+     */
+    public long append(long timestamp, long seed, int width, int height, int score, int ticks, boolean won) throws IOException {
+        return append(timestamp, seed, width, height, score, ticks, won, false);
+    }
+
+    /**
+     * Appends the result of a game resumed from a save, whose seed and moves before the save are unknown.
+     * The record is flagged as resumed and its seed and ticks are stored as 0.
+     *
+     * @param timestamp the time the game ended, in milliseconds since the epoch
+     * @param width the number of columns of the board
+     * @param height the number of rows of the board
+     * @param score the final score, between 0 and MAX_SCORE
+     * @param won true if the snake filled the board
+     * @return the index of the new record
+     * @throws IOException if the file cannot grow
+     */
+    public long appendResumed(long timestamp, int width, int height, int score, boolean won) throws IOException {
+        return append(timestamp, 0, width, height, score, 0, won, true);
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @param timestamp the time the game ended, in milliseconds since the epoch
+     * @param seed the seed the board was reset with
+     * @param width the number of columns of the board
+     * @param height the number of rows of the board
+     * @param score the final score, between 0 and MAX_SCORE
+     * @param ticks the number of moves played
+     * @param won true if the snake filled the board
+     * @param resumed true if the game was resumed from a save
+     * @return the index of the new record
+     * @throws IOException if the file cannot grow
+     */
+    private synchronized long append(long timestamp, long seed, int width, int height, int score, int ticks, boolean won, boolean resumed) throws IOException {
+        if (closed) throw new IllegalStateException("Score log is closed: " + file);
+        if (score < 0 || score > MAX_SCORE) throw new IllegalArgumentException("Score must be between 0 and " + MAX_SCORE + ": " + score);
+        if (count == MAX_RECORDS) throw new IOException("Score log is full: " + file);
+        if (count == (long) regions.size() * REGION_RECORDS) mapRegion();
+
+        MappedByteBuffer region = regions.get(region(count));
+        int offset = offset(count);
+        region.putLong(offset + TIMESTAMP, timestamp);
+        region.putLong(offset + SEED, seed);
+        region.putInt(offset + SCORE, score);
+        region.putInt(offset + TICKS, ticks);
+        region.putShort(offset + WIDTH, (short) width);
+        region.putShort(offset + HEIGHT, (short) height);
+        VarHandle.releaseFence();
+        int flags = (won ? WON : 0) | (resumed ? RESUMED : 0);
+        region.putInt(offset + COMMIT, commitWord(timestamp, seed, score, ticks, width, height, flags));
+
+        long index = count++;
+        top.add(score, index);
+        histogram.add(score);
+        return index;
+    }
+
+    /**
+     * Flushes the records appended since the last call to the storage device, so that they survive a crash of the machine.
+     */
+    public synchronized void force() {
+        if (closed || forced == count) return;
+        int last = region(count - 1);
+        for (int r = region(forced); r <= last; r++) regions.get(r).force();
+        forced = count;
+    }
+
+    /**
+     * Returns the number of records in the log.
+     *
+     * @return the number of committed records
+     */
+    public synchronized long size() {
+        return count;
+    }
+
+    /**
+     * Reads a record.
+     *
+     * @param index the index of the record
+     * @return the record
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public synchronized ScoreRecord get(long index) {
+        if (index < 0 || index >= count) throw new IndexOutOfBoundsException("No record " + index + " in a log of " + count);
+        MappedByteBuffer region = regions.get(region(index));
+        int offset = offset(index);
+        int flags = region.getInt(offset + COMMIT) >>> 16;
+        return new ScoreRecord(index, region.getLong(offset + TIMESTAMP), region.getLong(offset + SEED),
+                region.getShort(offset + WIDTH) & 0xFFFF, region.getShort(offset + HEIGHT) & 0xFFFF,
+                region.getInt(offset + SCORE), region.getInt(offset + TICKS), (flags & WON) != 0, (flags & RESUMED) != 0);
+    }
+
+    /**
+     * Returns the best records, the highest score first and, between equal scores, the one reached first.
+     *
+     * @param n the number of records, at most the top capacity the log was opened with
+     * @return the best records, fewer than n if the log is shorter
+     */
+    public synchronized List<ScoreRecord> top(int n) {
+        long[] best = top.best(n);
+        List<ScoreRecord> records = new ArrayList<>(best.length);
+        for (long entry : best) records.add(get(TopScores.index(entry)));
+        return records;
+    }
+
+    /**
+     * Returns the percentile rank of a score: the percentage of records scoring strictly less.
+     *
+     * @param score the score
+     * @return the percentage of records below it, between 0 and 100, or 0 if the log is empty
+     */
+    public synchronized double percentileOf(int score) {
+        return count == 0 ? 0 : 100.0 * histogram.countBelow(score) / count;
+    }
+
+    /**
+     * Returns the score at a percentile: the lowest score that at least the given percentage of the records do not exceed.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the score at the percentile, or 0 if the log is empty
+     */
+    public synchronized int scoreAt(double percentile) {
+        return histogram.scoreAt(percentile);
+    }
+
+    /**
+     * Returns the number of records with the given score.
+     *
+     * @param score the score
+     * @return the count of the score
+     */
+    public synchronized long countOf(int score) {
+        return histogram.countOf(score);
+    }
+
+    /**
+     * Returns the highest score in the log.
+     *
+     * @return the best score, or 0 if the log is empty
+     */
+    public synchronized int getBestScore() {
+        return histogram.getMax();
+    }
+
+    /**
+     * Returns the mean score of the log.
+     *
+     * @return the mean score, or 0 if the log is empty
+     */
+    public synchronized double getMeanScore() {
+        return histogram.getMean();
+    }
+
+    /**
+     * Forces the appended records to the device, releases the file lock and closes the file.
+     * The mapped regions are unmapped once they are garbage collected.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        force();
+        closed = true;
+        try {
+            lock.release();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads the records from the start up to the first one that is not committed, ranking and counting them,
+     * then clears the commit words of any committed records beyond it, which a crash could have left behind a torn one
+     * and which must not reappear once that one is overwritten.
+     */
+    private void scan() {
+        long capacity = (long) regions.size() * REGION_RECORDS;
+        while (count < capacity && isCommitted(count)) {
+            MappedByteBuffer region = regions.get(region(count));
+            int score = region.getInt(offset(count) + SCORE);
+            top.add(score, count);
+            histogram.add(score);
+            count++;
+        }
+
+        for (long stale = count; stale < capacity; stale++) {
+            MappedByteBuffer region = regions.get(region(stale));
+            if (region.getInt(offset(stale) + COMMIT) == 0) break;
+            region.putInt(offset(stale) + COMMIT, 0);
+        }
+        forced = count;
+    }
+
+    /**
+     * Checks if a record is committed, its commit word holding the tag and the checksum of its fields.
+     * A record whose score no board can reach is corrupt, whatever its checksum, and counts as not committed.
+     *
+     * @param index the index of the record
+     * @return true if the record is complete
+     */
+    private boolean isCommitted(long index) {
+        MappedByteBuffer region = regions.get(region(index));
+        int offset = offset(index);
+        int commit = region.getInt(offset + COMMIT);
+        if (commit >>> 24 != COMMIT_TAG) return false;
+        int score = region.getInt(offset + SCORE);
+        if (score < 0 || score > MAX_SCORE) return false;
+        return commit == commitWord(region.getLong(offset + TIMESTAMP), region.getLong(offset + SEED),
+                score, region.getInt(offset + TICKS),
+                region.getShort(offset + WIDTH) & 0xFFFF, region.getShort(offset + HEIGHT) & 0xFFFF, (commit >>> 16) & 0xFF);
+    }
+
+    /**
+     * Builds the commit word of a record: the tag, the flags and a 16-bit checksum of the fields and flags.
+     *
+     * @param timestamp the timestamp of the record
+     * @param seed the seed of the record
+     * @param score the score of the record
+     * @param ticks the ticks of the record
+     * @param width the board width of the record
+     * @param height the board height of the record
+     * @param flags the flags of the record
+     * @return the commit word
+     */
+    private static int commitWord(long timestamp, long seed, int score, int ticks, int width, int height, int flags) {
+        long z = timestamp * 0x9E3779B97F4A7C15L;
+        z = (z ^ seed ^ (z >>> 29)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ ((long) score << 32 | ticks & 0xFFFFFFFFL) ^ (z >>> 31)) * 0x94D049BB133111EBL;
+        z = (z ^ ((long) (width & 0xFFFF) << 24 | (long) (height & 0xFFFF) << 8 | flags) ^ (z >>> 30)) * 0x9E3779B97F4A7C15L;
+        int checksum = (int) (z ^ (z >>> 32) ^ (z >>> 48)) & 0xFFFF;
+        return COMMIT_TAG << 24 | (flags & 0xFF) << 16 | checksum;
+    }
+
+    /**
+     * Locks the whole file for this log.
+     *
+     * @return the lock
+     * @throws IOException if the file is already open, in this process or another one
+     */
+    private FileLock tryLock() throws IOException {
+        try {
+            FileLock fileLock = channel.tryLock();
+            if (fileLock != null) return fileLock;
+        } catch (OverlappingFileLockException e) {
+            // already locked by another log of this process
+        }
+        throw new IOException("Score log is already open: " + file);
+    }
+
+    /**
+     * Writes the header of a new log and forces it to the device.
+     *
+     * @throws IOException if the header cannot be written
+     */
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).rewind();
+        while (header.hasRemaining()) channel.write(header, header.position());
+        channel.force(true);
+    }
+
+    /**
+     * Checks that the file starts with the header of a score log of this version.
+     *
+     * @throws IOException if the header cannot be read or does not match
+     */
+    private void checkHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) throw new IOException("Not a score log: " + file);
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) throw new IOException("Not a score log: " + file);
+        int version = header.getInt();
+        if (version != VERSION) throw new IOException("Unsupported score log version: " + version);
+        int recordSize = header.getInt();
+        if (recordSize != RECORD_SIZE) throw new IOException("Unexpected score log record size: " + recordSize);
+    }
+
+    /**
+     * Maps the next region of the file, which grows the file if needed.
+     *
+     * @throws IOException if the region cannot be mapped
+     */
+    private void mapRegion() throws IOException {
+        long position = HEADER_SIZE + regions.size() * REGION_BYTES;
+        regions.add(channel.map(FileChannel.MapMode.READ_WRITE, position, REGION_BYTES));
+    }
+
+    /**
+     * Returns the region holding a record.
+     *
+     * @param index the index of the record
+     * @return the index of the region
+     */
+    private static int region(long index) {
+        return (int) (index >>> REGION_SHIFT);
+    }
+
+    /**
+     * Returns the offset of a record in its region.
+     *
+     * @param index the index of the record
+     * @return the offset, in bytes
+     */
+    private static int offset(long index) {
+        return (int) (index & (REGION_RECORDS - 1)) * RECORD_SIZE;
+    }
+}
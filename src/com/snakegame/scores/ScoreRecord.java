@@ -0,0 +1,136 @@
+package com.snakegame.scores;
+
+/**
+ * The result of one finished game, as stored in a ScoreLog.
+ *
+ * @author Alessandro Sorbara
+ */
+public class ScoreRecord {
+
+    private final long index;
+    private final long timestamp;
+    private final long seed;
+    private final int width;
+    private final int height;
+    private final int score;
+    private final int ticks;
+    private final boolean won;
+    private final boolean resumed;
+
+    /**
+     * Creates a record.
+     *
+     * @param index the position of the record in its log
+     * @param timestamp the time the game ended, in milliseconds since the epoch
+     * @param seed the seed the board was reset with
+     * @param width the number of columns of the board
+     * @param height the number of rows of the board
+     * @param score the final score
+     * @param ticks the number of moves played
+     * @param won true if the snake filled the board
+     * @param resumed true if the game was resumed from a save
+     */
+    ScoreRecord(long index, long timestamp, long seed, int width, int height, int score, int ticks, boolean won, boolean resumed) {
+        this.index = index;
+        this.timestamp = timestamp;
+        this.seed = seed;
+        this.width = width;
+        this.height = height;
+        this.score = score;
+        this.ticks = ticks;
+        this.won = won;
+        this.resumed = resumed;
+    }
+
+    /**
+     * Returns the position of the record in its log, counting from 0 in the order the games ended.
+     *
+     * @return the index of the record
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the time the game ended.
+     *
+     * @return the timestamp, in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the seed the board was reset with, which together with a replay of the moves reproduces the game.
+     *
+     * @return the seed of the game, or 0 if it was resumed from a save
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the number of columns of the board.
+     *
+     * @return the width of the board
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of rows of the board.
+     *
+     * @return the height of the board
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the final score.
+     *
+     * @return the number of apples eaten
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the number of moves played.
+     *
+     * @return the number of ticks, or 0 if the game was resumed from a save
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Checks if the game was won.
+     *
+     * @return true if the snake filled the board
+     */
+    public boolean isWon() {
+        return won;
+    }
+
+    /**
+     * Checks if the game was resumed from a save, in which case its seed and number of moves are unknown.
+     *
+     * @return true if the game was resumed
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * Returns a one-line description of the record.
+     *
+     * @return the record as text
+     */
+    @Override
+    public String toString() {
+        if (resumed) return String.format("#%d score %d on %dx%d%s (resumed)", index, score, width, height, won ? ", won" : "");
+        return String.format("#%d score %d in %d ticks on %dx%d%s (seed %d)", index, score, ticks, width, height, won ? ", won" : "", seed);
+    }
+}
@@ -0,0 +1,116 @@
+package com.snakegame.scores;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Command line entry point to query and fill score logs.
+ *
+ * @author Alessandro Sorbara
+ */
+public class ScoreTool {
+
+    /**
+     * Runs one of the commands:
+     * <ul>
+     *     <li>{@code stats <file>} prints the number of records, the time taken to open the log and the score percentiles</li>
+     *     <li>{@code top <file> [n]} prints the n best records (default 10)</li>
+     *     <li>{@code rank <file> <score>...} prints the percentile rank of each score and the time taken</li>
+     *     <li>{@code fill <file> <records> [seed]} appends random results, to try the log at scale</li>
+     * </ul>
+     *
+     * @param args the command and its arguments
+     * @throws IOException if the log cannot be opened or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ScoreTool stats <file> | top <file> [n] | rank <file> <score>... | fill <file> <records> [seed]");
+            System.exit(1);
+        }
+
+        Path file = Path.of(args[1]);
+        long start = System.nanoTime();
+        try (ScoreLog scores = new ScoreLog(file)) {
+            double openMillis = (System.nanoTime() - start) / 1e6;
+            switch (args[0]) {
+                case "stats" -> stats(scores, openMillis);
+                case "top" -> top(scores, args.length >= 3 ? Integer.parseInt(args[2]) : 10);
+                case "rank" -> rank(scores, args);
+                case "fill" -> fill(scores, Long.parseLong(args[2]), args.length >= 4 ? Long.parseLong(args[3]) : System.nanoTime());
+                default -> {
+                    System.err.println("Unknown command: " + args[0]);
+                    System.exit(1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints the size of the log, the time taken to open it and its score percentiles.
+     *
+     * @param scores the score log
+     * @param openMillis the time taken to open and scan the log, in milliseconds
+     */
+    private static void stats(ScoreLog scores, double openMillis) {
+        System.out.printf("%,d records scanned in %.1f ms%n", scores.size(), openMillis);
+        System.out.printf("mean %.2f, p50 %d, p90 %d, p99 %d, p99.9 %d, best %d%n", scores.getMeanScore(),
+                scores.scoreAt(50), scores.scoreAt(90), scores.scoreAt(99), scores.scoreAt(99.9), scores.getBestScore());
+    }
+
+    /**
+     * Prints the best records and the time taken to query them.
+     *
+     * @param scores the score log
+     * @param n the number of records
+     */
+    private static void top(ScoreLog scores, int n) {
+        long start = System.nanoTime();
+        List<ScoreRecord> best = scores.top(n);
+        double micros = (System.nanoTime() - start) / 1e3;
+
+        for (ScoreRecord record : best) System.out.println(record);
+        System.out.printf("top %d in %.1f us%n", best.size(), micros);
+    }
+
+    /**
+     * Prints the percentile rank of each score and the time taken to compute it.
+     *
+     * @param scores the score log
+     * @param args the command line, holding the scores to rank
+     */
+    private static void rank(ScoreLog scores, String[] args) {
+        for (int i = 2; i < args.length; i++) {
+            int score = Integer.parseInt(args[i]);
+            long start = System.nanoTime();
+            double percentile = scores.percentileOf(score);
+            double micros = (System.nanoTime() - start) / 1e3;
+            System.out.printf("score %d beats %.3f%% of %,d games (%.1f us)%n", score, percentile, scores.size(), micros);
+        }
+    }
+
+    /**
+     * Appends random results on the default board, with scores spread roughly as those of the greedy autopilot,
+     * and reports the append rate.
+     *
+     * @param scores the score log
+     * @param records the number of records to append
+     * @param seed the seed of the random results
+     * @throws IOException if the log cannot grow
+     */
+    private static void fill(ScoreLog scores, long records, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        long now = System.currentTimeMillis();
+        long start = System.nanoTime();
+
+        for (long i = 0; i < records; i++) {
+            int score = Math.min(252, (int) Math.abs(random.nextGaussian() * 40 + 60));
+            scores.append(now + i, random.nextLong(), 17, 15, score, score * 12 + random.nextInt(100), score == 252);
+        }
+        scores.force();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%,d records appended in %.3f s, %,.0f records/sec, %,d in the log%n", records, seconds, records / seconds, scores.size());
+    }
+}
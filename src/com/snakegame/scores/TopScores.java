@@ -0,0 +1,129 @@
+package com.snakegame.scores;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the best K records seen so far in a binary min-heap, so that the worst of them is replaced in O(log K)
+ * and most records, which do not beat it, are rejected with a single comparison.
+ * Entries are packed in longs: the score in the high half and the complement of the record index in the low half,
+ * so that a higher score ranks first and, between equal scores, the record reached first.
+ *
+ * @author Alessandro Sorbara
+ */
+class TopScores {
+
+    private final long[] heap;
+    private int size;
+
+    /**
+     * Creates an empty ranking.
+     *
+     * @param capacity the number of records kept
+     */
+    TopScores(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        heap = new long[capacity];
+    }
+
+    /**
+     * Offers a record, which is kept if it ranks among the best ones.
+     *
+     * @param score the score of the record
+     * @param index the index of the record in its log, below 2^32
+     */
+    void add(int score, long index) {
+        long entry = (long) score << 32 | (0xFFFFFFFFL - index);
+        if (size < heap.length) {
+            siftUp(size++, entry);
+        } else if (entry > heap[0]) {
+            siftDown(entry);
+        }
+    }
+
+    /**
+     * Returns the number of records kept.
+     *
+     * @return the number of entries, at most the capacity
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the lowest score kept.
+     *
+     * @return the score a record must beat to enter a full ranking, or 0 if it is empty
+     */
+    int minScore() {
+        return size == 0 ? 0 : score(heap[0]);
+    }
+
+    /**
+     * Returns the best entries, best first.
+     *
+     * @param n the maximum number of entries
+     * @return the packed entries, at most n
+     */
+    long[] best(int n) {
+        long[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted);
+        int count = Math.min(n, size);
+        long[] best = new long[count];
+        for (int i = 0; i < count; i++) best[i] = sorted[size - 1 - i];
+        return best;
+    }
+
+    /**
+     * Returns the score of a packed entry.
+     *
+     * @param entry the entry
+     * @return the score
+     */
+    static int score(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    /**
+     * Returns the record index of a packed entry.
+     *
+     * @param entry the entry
+     * @return the index of the record in its log
+     */
+    static long index(long entry) {
+        return 0xFFFFFFFFL - (entry & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Inserts an entry at the given free slot and moves it up to its place.
+     *
+     * @param i the free slot at the end of the heap
+     * @param entry the entry to insert
+     */
+    private void siftUp(int i, long entry) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= entry) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+    }
+
+    /**
+     * Replaces the smallest entry and moves the new one down to its place.
+     *
+     * @param entry the entry replacing the root
+     */
+    private void siftDown(long entry) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if (heap[child] >= entry) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = entry;
+    }
+}
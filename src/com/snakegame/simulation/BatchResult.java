@@ -0,0 +1,170 @@
+package com.snakegame.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Aggregated statistics of a batch of headless games: score histogram, outcomes, ticks and snake lengths.
+ * Each worker of a BatchRunner fills its own instance, and the partial results are merged at the end,
+ * so no instance is ever shared between threads while it is being written.
+ *
+ * @author Alessandro Sorbara
+ */
+public class BatchResult {
+
+    private long games;
+    private long wins;
+    private long timeouts;
+    private long ticks;
+    private long lengthSum;
+    private long scoreSum;
+    private long[] scoreHistogram = new long[64];
+    private long elapsedNanos;
+
+    /**
+     * Records the outcome of one finished game.
+     *
+     * @param score the final score
+     * @param length the final length of the snake
+     * @param gameTicks the number of ticks the game lasted
+     * @param won true if the snake covered the whole board
+     * @param timedOut true if the game was stopped for running too long
+     */
+    void record(int score, int length, long gameTicks, boolean won, boolean timedOut) {
+        if (score >= scoreHistogram.length) scoreHistogram = Arrays.copyOf(scoreHistogram, Math.max(score + 1, scoreHistogram.length * 2));
+        scoreHistogram[score]++;
+
+        games++;
+        if (won) wins++;
+        if (timedOut) timeouts++;
+        ticks += gameTicks;
+        lengthSum += length;
+        scoreSum += score;
+    }
+
+    /**
+     * Adds the statistics of another partial result to this one.
+     *
+     * @param other the result to merge in
+     */
+    void merge(BatchResult other) {
+        if (other.scoreHistogram.length > scoreHistogram.length) scoreHistogram = Arrays.copyOf(scoreHistogram, other.scoreHistogram.length);
+        for (int i = 0; i < other.scoreHistogram.length; i++) scoreHistogram[i] += other.scoreHistogram[i];
+
+        games += other.games;
+        wins += other.wins;
+        timeouts += other.timeouts;
+        ticks += other.ticks;
+        lengthSum += other.lengthSum;
+        scoreSum += other.scoreSum;
+    }
+
+    /**
+     * Sets the wall-clock time the batch took.
+     *
+     * @param elapsedNanos the elapsed time, in nanoseconds
+     */
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the number of games played.
+     *
+     * @return the number of games
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Returns the number of games in which the snake covered the whole board.
+     *
+     * @return the number of wins
+     */
+    public long getWins() {
+        return wins;
+    }
+
+    /**
+     * Returns the number of games stopped for exceeding the tick limit.
+     *
+     * @return the number of timed out games
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * Returns the total number of ticks over all games.
+     *
+     * @return the total number of ticks
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Returns the number of games that ended with each score, indexed by score.
+     *
+     * @return a copy of the score histogram, trimmed after the highest score reached
+     */
+    public long[] getScoreHistogram() {
+        int length = scoreHistogram.length;
+        while (length > 0 && scoreHistogram[length - 1] == 0) length--;
+        return Arrays.copyOf(scoreHistogram, length);
+    }
+
+    /**
+     * Returns the mean final score.
+     *
+     * @return the mean score, or 0 if no game was played
+     */
+    public double getMeanScore() {
+        return games == 0 ? 0 : (double) scoreSum / games;
+    }
+
+    /**
+     * Returns the mean final length of the snake.
+     *
+     * @return the mean length, or 0 if no game was played
+     */
+    public double getMeanLength() {
+        return games == 0 ? 0 : (double) lengthSum / games;
+    }
+
+    /**
+     * Returns the mean number of ticks per game.
+     *
+     * @return the mean ticks per game, or 0 if no game was played
+     */
+    public double getMeanTicks() {
+        return games == 0 ? 0 : (double) ticks / games;
+    }
+
+    /**
+     * Returns the wall-clock time the batch took.
+     *
+     * @return the elapsed time, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the throughput of the batch in games per second.
+     *
+     * @return games per second of wall-clock time
+     */
+    public double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : games / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Returns the throughput of the batch in ticks per second.
+     *
+     * @return ticks per second of wall-clock time
+     */
+    public double getTicksPerSecond() {
+        return elapsedNanos == 0 ? 0 : ticks / (elapsedNanos / 1e9);
+    }
+}
@@ -0,0 +1,181 @@
+package com.snakegame.simulation;
+
+import com.snakegame.ai.DirectionStrategy;
+import com.snakegame.ai.Strategies;
+import com.snakegame.model.Board;
+import com.snakegame.model.GameRandom;
+import com.snakegame.model.GameState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Plays large batches of headless games in parallel and aggregates their statistics.
+ * Games are split into contiguous shards run on a ForkJoinPool; every shard owns its Board, Random
+ * and DirectionStrategy, and fills its own BatchResult, so workers share no mutable state.
+ * Each game is seeded from the batch seed and its index, so a batch gives the same results
+ * whatever the parallelism. A game is stopped, and counted as timed out, when it reaches the tick limit
+ * or when the snake goes twice the board area in ticks without eating, which means it is circling.
+ *
+ * @author Alessandro Sorbara
+ */
+public class BatchRunner {
+
+    private static final int SHARDS_PER_WORKER = 4;
+    private static final long STALL_AREAS = 2;
+
+    private final int width;
+    private final int height;
+    private final Supplier<? extends DirectionStrategy> strategies;
+    private final int parallelism;
+    private final long maxTicksPerGame;
+    private final long stallTicks;
+
+    /**
+     * Constructs a runner using every available core and a tick limit of a hundred times the board area per game.
+     *
+     * @param width the number of columns of the boards
+     * @param height the number of rows of the boards
+     * @param strategies factory creating one strategy per shard
+     */
+    public BatchRunner(int width, int height, Supplier<? extends DirectionStrategy> strategies) {
+        this(width, height, strategies, Runtime.getRuntime().availableProcessors(), 100L * width * height);
+    }
+
+    /**
+     * Constructs a runner.
+     *
+     * @param width the number of columns of the boards
+     * @param height the number of rows of the boards
+     * @param strategies factory creating one strategy per shard
+     * @param parallelism the number of worker threads
+     * @param maxTicksPerGame the number of ticks after which a game that has not ended is stopped
+     */
+    public BatchRunner(int width, int height, Supplier<? extends DirectionStrategy> strategies, int parallelism, long maxTicksPerGame) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        this.width = width;
+        this.height = height;
+        this.strategies = strategies;
+        this.parallelism = parallelism;
+        this.maxTicksPerGame = maxTicksPerGame;
+        this.stallTicks = STALL_AREAS * width * height;
+    }
+
+    /**
+     * Plays the given number of games and returns their aggregated statistics.
+     *
+     * @param games the number of games to play
+     * @param seed the seed the per-game seeds are derived from
+     * @return the merged result of all the games
+     */
+    public BatchResult run(int games, long seed) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long start = System.nanoTime();
+
+        try {
+            int shards = Math.max(1, Math.min(games, parallelism * SHARDS_PER_WORKER));
+            List<ForkJoinTask<BatchResult>> tasks = new ArrayList<>(shards);
+
+            for (int shard = 0; shard < shards; shard++) {
+                int from = (int) ((long) games * shard / shards);
+                int to = (int) ((long) games * (shard + 1) / shards);
+                tasks.add(pool.submit(() -> runShard(from, to, seed)));
+            }
+
+            BatchResult result = new BatchResult();
+            for (ForkJoinTask<BatchResult> task : tasks) result.merge(task.join());
+            result.setElapsedNanos(System.nanoTime() - start);
+            return result;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Plays the games with indices in [from, to) on a board owned by the calling worker.
+     *
+     * @param from the index of the first game
+     * @param to the index after the last game
+     * @param seed the batch seed
+     * @return the statistics of the shard
+     */
+    private BatchResult runShard(int from, int to, long seed) {
+        GameRandom random = new GameRandom();
+        Board board = new Board(width, height, random);
+        DirectionStrategy strategy = strategies.get();
+        BatchResult result = new BatchResult();
+
+        for (int game = from; game < to; game++) {
+            random.setSeed(gameSeed(seed, game));
+            board.resetBoard();
+            GameState state = board.getGameState();
+
+            long ticks = 0;
+            long lastMeal = 0;
+            int score = 0;
+            while (!state.isGameOver() && !state.isGameWon() && ticks < maxTicksPerGame && ticks - lastMeal < stallTicks) {
+                board.moveSnake(strategy.nextDirection(board));
+                ticks++;
+                if (state.getScore() != score) {
+                    score = state.getScore();
+                    lastMeal = ticks;
+                }
+            }
+
+            boolean timedOut = !state.isGameOver() && !state.isGameWon();
+            result.record(state.getScore(), board.getSnake().size(), ticks, state.isGameWon(), timedOut);
+        }
+
+        return result;
+    }
+
+    /**
+     * Derives the seed of a game from the batch seed and the game index with the SplitMix64 finalizer,
+     * so that neighbouring games get unrelated seeds.
+     *
+     * @param seed the batch seed
+     * @param game the index of the game
+     * @return the seed of the game
+     */
+    static long gameSeed(long seed, int game) {
+        long z = seed + (game + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Runs a batch and prints its statistics, including the win rate of the strategy.
+     * Games are stopped after the square of the board area in ticks, which leaves a Hamiltonian cycle time to fill the board.
+     *
+     * @param args optional number of games (default 100000), board width and height (default 17 x 15), threads, seed
+     *             and strategy name (default greedy)
+     */
+    public static void main(String[] args) {
+        int games = args.length >= 1 ? Integer.parseInt(args[0]) : 100_000;
+        int width = args.length >= 3 ? Integer.parseInt(args[1]) : Board.DEFAULT_WIDTH;
+        int height = args.length >= 3 ? Integer.parseInt(args[2]) : Board.DEFAULT_HEIGHT;
+        int threads = args.length >= 4 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length >= 5 ? Long.parseLong(args[4]) : 42;
+        String strategy = args.length >= 6 ? args[5] : "greedy";
+
+        long area = (long) width * height;
+        BatchRunner runner = new BatchRunner(width, height, Strategies.named(strategy), threads, area * area);
+        BatchResult result = runner.run(games, seed);
+
+        System.out.printf("%d %s games on %dx%d with %d threads in %.3f s%n", result.getGames(), strategy, width, height, threads, result.getElapsedNanos() / 1e9);
+        System.out.printf("%,.0f games/sec, %,.0f ticks/sec%n", result.getGamesPerSecond(), result.getTicksPerSecond());
+        System.out.printf("mean score %.2f, mean length %.2f, ticks/game %.1f, wins %d (%.1f%%), timeouts %d%n",
+                result.getMeanScore(), result.getMeanLength(), result.getMeanTicks(), result.getWins(),
+                100.0 * result.getWins() / result.getGames(), result.getTimeouts());
+
+        long[] histogram = result.getScoreHistogram();
+        System.out.println("score histogram:");
+        for (int score = 0; score < histogram.length; score++) {
+            if (histogram[score] > 0) System.out.printf("%5d %,10d%n", score, histogram[score]);
+        }
+    }
+}
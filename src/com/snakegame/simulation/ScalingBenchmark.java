@@ -0,0 +1,83 @@
+package com.snakegame.simulation;
+
+import com.snakegame.ai.DirectionStrategy;
+import com.snakegame.ai.GreedyStrategy;
+import com.snakegame.model.Board;
+import com.snakegame.model.GameRandom;
+import com.snakegame.model.GameState;
+
+/**
+ * Headless benchmark that measures how many ticks per second the model sustains on boards of increasing size.
+ * Each board is driven by the GreedyStrategy that heads for the apple while avoiding immediate collisions,
+ * and is reset whenever the game ends. Since the per-tick cost does not depend on the board area,
+ * the throughput should stay roughly flat from the default board up to 4096 x 4096.
+ *
+ * @author Alessandro Sorbara
+ */
+public class ScalingBenchmark {
+
+    private static final int[] SIZES = {17, 64, 256, 1024, 4096};
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final long MEASURE_NANOS = 2_000_000_000L;
+
+    /**
+     * Runs the benchmark on every board size and prints one line per size.
+     *
+     * @param args command-line arguments (not used)
+     */
+    public static void main(String[] args) {
+        System.out.printf("%-12s %15s %12s %10s%n", "board", "ticks/sec", "avg length", "games");
+
+        for (int size : SIZES) {
+            int width = size;
+            int height = size == 17 ? 15 : size;
+
+            Board board = new Board(width, height, new GameRandom(42));
+            run(board, WARMUP_NANOS);
+
+            long start = System.nanoTime();
+            Result result = run(board, MEASURE_NANOS);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%-12s %,15.0f %12.1f %10d%n", width + "x" + height, result.ticks / seconds, (double) result.lengthSum / result.ticks, result.games);
+        }
+    }
+
+    /**
+     * Steps the board with a greedy strategy for the given amount of time, restarting it whenever the game ends.
+     *
+     * @param board the board to drive
+     * @param nanos how long to run, in nanoseconds
+     * @return the number of ticks, the summed snake length and the number of finished games
+     */
+    private static Result run(Board board, long nanos) {
+        DirectionStrategy strategy = new GreedyStrategy();
+        Result result = new Result();
+        long deadline = System.nanoTime() + nanos;
+
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < 1024; i++) {
+                GameState state = board.getGameState();
+                if (state.isGameOver() || state.isGameWon()) {
+                    board.resetBoard();
+                    result.games++;
+                }
+
+                board.moveSnake(strategy.nextDirection(board));
+                result.ticks++;
+                result.lengthSum += board.getSnake().size();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Accumulated counters of a benchmark run.
+     */
+    private static class Result {
+        long ticks;
+        long lengthSum;
+        int games;
+    }
+}
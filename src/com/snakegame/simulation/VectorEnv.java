@@ -0,0 +1,642 @@
+package com.snakegame.simulation;
+
+import com.snakegame.model.Board;
+import com.snakegame.model.Direction;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Batch of independent single-snake games of the same size, stepped in lockstep for reinforcement-learning training loops.
+ * The games follow the rules of Board: a move fails when it leaves the board or enters a body cell, the tail cell excepted
+ * unless the snake is growing; eating an apple grows the snake on its next move and spawns a new apple on a random free
+ * cell, and a snake with no free cell left has won. Every game starts like Board.resetBoard, with three segments
+ * on the middle row facing left and the apple on the third column.
+ * The state is kept in struct-of-arrays form, with one slot per environment in each array: the bodies are ring buffers
+ * laid end to end in a single int array, the occupied cells one bitset per environment in a single long array, and the
+ * apple, score, length and random number generator state in plain arrays, so that stepping touches no object per game.
+ * Environments that finish are reset on the same step, so the observation after a step always shows a running game;
+ * the step's reward, done flag and final score still describe the finished episode.
+ * Observations are written as three planes of width x height cells per environment, body, head and apple,
+ * holding 1 where the feature is present and 0 elsewhere, either as floats or as bytes.
+ * With a parallelism above one, the environments are split into contiguous shards stepped on a ForkJoinPool;
+ * shards own disjoint slices of every array, so workers share no mutable state.
+ *
+ * @author Alessandro Sorbara
+ */
+public class VectorEnv implements AutoCloseable {
+
+    public static final int CHANNELS = 3;
+    public static final int BODY_CHANNEL = 0;
+    public static final int HEAD_CHANNEL = 1;
+    public static final int APPLE_CHANNEL = 2;
+
+    public static final float APPLE_REWARD = 1f;
+    public static final float DEATH_REWARD = -1f;
+
+    private static final int INITIAL_LENGTH = 3;
+    private static final int SHARDS_PER_WORKER = 4;
+    private static final int DIRECTIONS = Direction.values().length;
+
+    private final int envs;
+    private final int width;
+    private final int height;
+    private final int cells;
+    private final int words;
+    private final int[] neighbors;
+    private final byte[] zeros;
+
+    private final int[] bodies;
+    private final int[] heads;
+    private final int[] lengths;
+    private final boolean[] growing;
+    private final long[] occupancy;
+    private final int[] apples;
+    private final int[] scores;
+    private final int[] sinceMeal;
+    private final long[] randoms;
+
+    private final float[] rewards;
+    private final boolean[] dones;
+    private final boolean[] truncations;
+    private final int[] finalScores;
+
+    private int stallLimit;
+
+    private final ForkJoinPool pool;
+    private final Shard[] shards;
+    private int[] pendingActions;
+    private float[] pendingFloats;
+    private ByteBuffer pendingBytes;
+
+    /**
+     * Constructs a batch of environments stepped on the calling thread.
+     *
+     * @param envs the number of environments
+     * @param width the number of columns of the boards
+     * @param height the number of rows of the boards
+     * @param seed the seed the per-environment generators are derived from
+     */
+    public VectorEnv(int envs, int width, int height, long seed) {
+        this(envs, width, height, seed, 1);
+    }
+
+    /**
+     * Constructs a batch of environments and resets every one of them.
+     *
+     * @param envs the number of environments
+     * @param width the number of columns of the boards
+     * @param height the number of rows of the boards
+     * @param seed the seed the per-environment generators are derived from
+     * @param parallelism the number of worker threads stepping the environments
+     * @throws IllegalArgumentException if there is no environment, a dimension is outside [Board.MIN_SIZE, Board.MAX_SIZE],
+     *                                  the state would not fit in arrays, or the parallelism is not positive
+     */
+    public VectorEnv(int envs, int width, int height, long seed, int parallelism) {
+        if (envs < 1) throw new IllegalArgumentException("Number of environments must be positive: " + envs);
+        if (width < Board.MIN_SIZE || width > Board.MAX_SIZE || height < Board.MIN_SIZE || height > Board.MAX_SIZE) {
+            throw new IllegalArgumentException("Board size must be between " + Board.MIN_SIZE + " and " + Board.MAX_SIZE + ": " + width + "x" + height);
+        }
+        if ((long) envs * width * height * CHANNELS > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many cells for one batch: " + envs + " x " + width + "x" + height);
+        }
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+
+        this.envs = envs;
+        this.width = width;
+        this.height = height;
+        this.cells = width * height;
+        this.words = (cells + 63) >>> 6;
+        this.neighbors = neighborTable(width, height);
+        this.zeros = new byte[CHANNELS * cells];
+
+        this.bodies = new int[envs * cells];
+        this.heads = new int[envs];
+        this.lengths = new int[envs];
+        this.growing = new boolean[envs];
+        this.occupancy = new long[envs * words];
+        this.apples = new int[envs];
+        this.scores = new int[envs];
+        this.sinceMeal = new int[envs];
+        this.randoms = new long[envs];
+
+        this.rewards = new float[envs];
+        this.dones = new boolean[envs];
+        this.truncations = new boolean[envs];
+        this.finalScores = new int[envs];
+
+        int shardCount = Math.min(envs, parallelism == 1 ? 1 : parallelism * SHARDS_PER_WORKER);
+        this.pool = parallelism == 1 ? null : new ForkJoinPool(parallelism);
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard((int) ((long) envs * i / shardCount), (int) ((long) envs * (i + 1) / shardCount));
+        }
+
+        for (int env = 0; env < envs; env++) {
+            randoms[env] = BatchRunner.gameSeed(seed, env);
+            reset(env);
+        }
+    }
+
+    /**
+     * Sets the number of steps without eating after which an episode is cut short, reported as done and truncated.
+     *
+     * @param stallLimit the number of steps, or 0 to never cut episodes short
+     */
+    public void setStallLimit(int stallLimit) {
+        this.stallLimit = stallLimit;
+    }
+
+    /**
+     * Returns the number of environments.
+     *
+     * @return the number of environments
+     */
+    public int getEnvCount() {
+        return envs;
+    }
+
+    /**
+     * Returns the number of columns of the boards.
+     *
+     * @return the width of the boards
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of rows of the boards.
+     *
+     * @return the height of the boards
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the number of values written per environment by an observation.
+     *
+     * @return CHANNELS times the number of cells of a board
+     */
+    public int getObservationSize() {
+        return CHANNELS * cells;
+    }
+
+    /**
+     * Returns the rewards of the last step, one per environment: APPLE_REWARD for eating, DEATH_REWARD for dying, 0 otherwise.
+     * The array is overwritten by the next step.
+     *
+     * @return the rewards, indexed by environment
+     */
+    public float[] getRewards() {
+        return rewards;
+    }
+
+    /**
+     * Returns the done flags of the last step, set for the environments whose episode ended and which were reset.
+     * The array is overwritten by the next step.
+     *
+     * @return the done flags, indexed by environment
+     */
+    public boolean[] getDones() {
+        return dones;
+    }
+
+    /**
+     * Returns the truncation flags of the last step, set for the done environments cut short by the stall limit.
+     * The array is overwritten by the next step.
+     *
+     * @return the truncation flags, indexed by environment
+     */
+    public boolean[] getTruncations() {
+        return truncations;
+    }
+
+    /**
+     * Returns the final scores of the episodes ended by the last step; only meaningful where the done flag is set.
+     *
+     * @return the final scores, indexed by environment
+     */
+    public int[] getFinalScores() {
+        return finalScores;
+    }
+
+    /**
+     * Returns the score of the running episode of an environment.
+     *
+     * @param env the index of the environment
+     * @return the number of apples eaten
+     */
+    public int getScore(int env) {
+        return scores[env];
+    }
+
+    /**
+     * Returns the length of the snake of an environment.
+     *
+     * @param env the index of the environment
+     * @return the number of segments
+     */
+    public int getLength(int env) {
+        return lengths[env];
+    }
+
+    /**
+     * Checks if the snake of an environment keeps its tail on its next move.
+     *
+     * @param env the index of the environment
+     * @return true if the snake has just eaten
+     */
+    public boolean isGrowing(int env) {
+        return growing[env];
+    }
+
+    /**
+     * Returns the apple cell of an environment.
+     *
+     * @param env the index of the environment
+     * @return the packed cell index of the apple
+     */
+    public int getAppleCell(int env) {
+        return apples[env];
+    }
+
+    /**
+     * Returns a segment of the snake of an environment.
+     *
+     * @param env the index of the environment
+     * @param i the index of the segment, 0 for the head
+     * @return the packed cell index of the segment
+     */
+    public int cellAt(int env, int i) {
+        return bodies[env * cells + Math.floorMod(heads[env] - i, cells)];
+    }
+
+    /**
+     * Resets every environment.
+     */
+    public void reset() {
+        for (int env = 0; env < envs; env++) reset(env);
+    }
+
+    /**
+     * Moves every snake by one cell and resets the environments whose episode ended.
+     *
+     * @param actions the ordinal of the Direction of each environment's move, indexed by environment
+     * @throws IllegalArgumentException if there are fewer actions than environments or an action is not a direction
+     */
+    public void step(int[] actions) {
+        run(actions, null, null);
+    }
+
+    /**
+     * Moves every snake by one cell, resets the environments whose episode ended and writes the observations
+     * of all environments in the same pass.
+     *
+     * @param actions the ordinal of the Direction of each environment's move, indexed by environment
+     * @param observations the array to write to, at least getEnvCount() * getObservationSize() long
+     * @throws IllegalArgumentException if an array is too short or an action is not a direction
+     */
+    public void step(int[] actions, float[] observations) {
+        checkCapacity(observations.length);
+        run(actions, observations, null);
+    }
+
+    /**
+     * Moves every snake by one cell, resets the environments whose episode ended and writes the observations
+     * of all environments in the same pass, one byte per value from the start of the buffer.
+     * The buffer position and limit are left untouched.
+     *
+     * @param actions the ordinal of the Direction of each environment's move, indexed by environment
+     * @param observations the buffer to write to, with a capacity of at least getEnvCount() * getObservationSize() bytes
+     * @throws IllegalArgumentException if the array or buffer is too short or an action is not a direction
+     */
+    public void step(int[] actions, ByteBuffer observations) {
+        checkCapacity(observations.capacity());
+        run(actions, null, observations);
+    }
+
+    /**
+     * Writes the observations of all environments.
+     *
+     * @param observations the array to write to, at least getEnvCount() * getObservationSize() long
+     * @throws IllegalArgumentException if the array is too short
+     */
+    public void observe(float[] observations) {
+        checkCapacity(observations.length);
+        run(null, observations, null);
+    }
+
+    /**
+     * Writes the observations of all environments, one byte per value from the start of the buffer.
+     * The buffer position and limit are left untouched.
+     *
+     * @param observations the buffer to write to, with a capacity of at least getEnvCount() * getObservationSize() bytes
+     * @throws IllegalArgumentException if the buffer is too short
+     */
+    public void observe(ByteBuffer observations) {
+        checkCapacity(observations.capacity());
+        run(null, null, observations);
+    }
+
+    /**
+     * Shuts down the worker threads, if any.
+     */
+    @Override
+    public void close() {
+        if (pool != null) pool.shutdown();
+    }
+
+    /**
+     * Checks that an observation buffer can hold every environment.
+     *
+     * @param capacity the number of values the buffer holds
+     * @throws IllegalArgumentException if the buffer is too short
+     */
+    private void checkCapacity(int capacity) {
+        if (capacity < envs * getObservationSize()) {
+            throw new IllegalArgumentException("Observation buffer too short: " + capacity + " < " + envs * getObservationSize());
+        }
+    }
+
+    /**
+     * Steps and observes every shard, on the calling thread or on the pool.
+     * Every action is checked before any environment moves, so invalid actions leave the batch untouched.
+     *
+     * @param actions the actions to apply, or null not to step
+     * @param floats the array to write observations to, or null
+     * @param bytes the buffer to write observations to, or null
+     */
+    private void run(int[] actions, float[] floats, ByteBuffer bytes) {
+        if (actions != null && actions.length < envs) {
+            throw new IllegalArgumentException("Expected " + envs + " actions: " + actions.length);
+        }
+        if (actions != null) {
+            for (int env = 0; env < envs; env++) {
+                int action = actions[env];
+                if (action < 0 || action >= DIRECTIONS) throw new IllegalArgumentException("Not a direction: " + action + " for environment " + env);
+            }
+        }
+
+        pendingActions = actions;
+        pendingFloats = floats;
+        pendingBytes = bytes;
+        try {
+            if (pool == null) {
+                shards[0].compute();
+            } else {
+                for (Shard shard : shards) shard.reinitialize();
+                pool.invoke(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        ForkJoinTask.invokeAll(shards);
+                    }
+                });
+            }
+        } finally {
+            pendingActions = null;
+            pendingFloats = null;
+            pendingBytes = null;
+        }
+    }
+
+    /**
+     * Moves the snake of an environment in the given direction, filling in its reward and flags,
+     * and resets the environment if the episode ended.
+     *
+     * @param env the index of the environment
+     * @param action the ordinal of the direction, already checked
+     */
+    private void step(int env, int action) {
+        int base = env * cells;
+        int length = lengths[env];
+        int head = heads[env];
+        int next = neighbors[bodies[base + head] * DIRECTIONS + action];
+        int tail = bodies[base + Math.floorMod(head - length + 1, cells)];
+
+        rewards[env] = 0;
+        dones[env] = false;
+        truncations[env] = false;
+
+        if (next < 0 || (isOccupied(env, next) && (growing[env] || next != tail))) {
+            rewards[env] = DEATH_REWARD;
+            finish(env, false);
+            return;
+        }
+
+        if (growing[env]) {
+            growing[env] = false;
+            lengths[env] = ++length;
+        } else {
+            occupancy[env * words + (tail >>> 6)] &= ~(1L << tail);
+        }
+        head = head + 1 == cells ? 0 : head + 1;
+        heads[env] = head;
+        bodies[base + head] = next;
+        occupancy[env * words + (next >>> 6)] |= 1L << next;
+
+        if (next == apples[env]) {
+            growing[env] = true;
+            scores[env]++;
+            sinceMeal[env] = 0;
+            rewards[env] = APPLE_REWARD;
+            if (length == cells) {
+                finish(env, false);
+                return;
+            }
+            apples[env] = randomFreeCell(env, cells - length);
+        } else if (++sinceMeal[env] == stallLimit) {
+            finish(env, true);
+        }
+    }
+
+    /**
+     * Records the end of an episode and resets the environment.
+     *
+     * @param env the index of the environment
+     * @param truncated true if the episode was cut short by the stall limit
+     */
+    private void finish(int env, boolean truncated) {
+        dones[env] = true;
+        truncations[env] = truncated;
+        finalScores[env] = scores[env];
+        reset(env);
+    }
+
+    /**
+     * Resets an environment to the start of a game: three segments on the middle row facing left, a few cells away
+     * from the right edge, and the apple on the third column of the same row. The random number generator carries on.
+     *
+     * @param env the index of the environment
+     */
+    private void reset(int env) {
+        int base = env * cells;
+        int row = (height / 2) * width;
+        int x = width - 5;
+
+        Arrays.fill(occupancy, env * words, (env + 1) * words, 0L);
+        for (int i = 0; i < INITIAL_LENGTH; i++) {
+            int cell = row + x + INITIAL_LENGTH - 1 - i;
+            bodies[base + i] = cell;
+            occupancy[env * words + (cell >>> 6)] |= 1L << cell;
+        }
+        heads[env] = INITIAL_LENGTH - 1;
+        lengths[env] = INITIAL_LENGTH;
+        growing[env] = false;
+        apples[env] = row + 2;
+        scores[env] = 0;
+        sinceMeal[env] = 0;
+    }
+
+    /**
+     * Checks if a cell of an environment is covered by its snake.
+     *
+     * @param env the index of the environment
+     * @param cell the packed cell index
+     * @return true if the cell is occupied
+     */
+    private boolean isOccupied(int env, int cell) {
+        return (occupancy[env * words + (cell >>> 6)] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Picks a uniformly random free cell of an environment, the same way as FreeCells: while at least half of the board
+     * is free, random cells are drawn until a free one comes up; past that, a random rank is drawn and located by counting
+     * the free cells of each word of the bitset, since there is no per-environment Fenwick tree.
+     *
+     * @param env the index of the environment
+     * @param free the number of free cells, at least one
+     * @return the packed index of a free cell
+     */
+    private int randomFreeCell(int env, int free) {
+        int offset = env * words;
+        if (free >= cells - free) {
+            while (true) {
+                int cell = nextInt(env, cells);
+                if (!isOccupied(env, cell)) return cell;
+            }
+        }
+
+        int rank = nextInt(env, free);
+        for (int w = 0; ; w++) {
+            long bits = ~occupancy[offset + w];
+            if (w == words - 1 && (cells & 63) != 0) bits &= (1L << cells) - 1;
+            int count = Long.bitCount(bits);
+            if (rank < count) {
+                for (int i = 0; i < rank; i++) bits &= bits - 1;
+                return (w << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            rank -= count;
+        }
+    }
+
+    /**
+     * Draws a random integer from the SplitMix64 generator of an environment.
+     *
+     * @param env the index of the environment
+     * @param bound the exclusive upper bound, positive
+     * @return a random integer in [0, bound)
+     */
+    private int nextInt(int env, int bound) {
+        long z = (randoms[env] += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (int) (((z >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * Writes the observation of an environment as floats.
+     *
+     * @param env the index of the environment
+     * @param out the array to write to
+     */
+    private void observe(int env, float[] out) {
+        int offset = env * CHANNELS * cells;
+        Arrays.fill(out, offset, offset + CHANNELS * cells, 0f);
+
+        int body = offset + BODY_CHANNEL * cells;
+        for (int i = 0; i < lengths[env]; i++) out[body + cellAt(env, i)] = 1f;
+        out[offset + HEAD_CHANNEL * cells + bodies[env * cells + heads[env]]] = 1f;
+        out[offset + APPLE_CHANNEL * cells + apples[env]] = 1f;
+    }
+
+    /**
+     * Writes the observation of an environment as bytes, clearing the planes with a bulk copy of zeros.
+     *
+     * @param env the index of the environment
+     * @param out the buffer to write to
+     */
+    private void observe(int env, ByteBuffer out) {
+        int offset = env * CHANNELS * cells;
+        out.put(offset, zeros, 0, zeros.length);
+
+        int body = offset + BODY_CHANNEL * cells;
+        for (int s = 0; s < lengths[env]; s++) out.put(body + cellAt(env, s), (byte) 1);
+        out.put(offset + HEAD_CHANNEL * cells + bodies[env * cells + heads[env]], (byte) 1);
+        out.put(offset + APPLE_CHANNEL * cells + apples[env], (byte) 1);
+    }
+
+    /**
+     * Builds the table of the neighbors of every cell, four entries per cell in Direction order, -1 off the board.
+     *
+     * @param width the number of columns
+     * @param height the number of rows
+     * @return the neighbor table
+     */
+    private static int[] neighborTable(int width, int height) {
+        int[] table = new int[width * height * DIRECTIONS];
+        for (int cell = 0; cell < width * height; cell++) {
+            int x = cell % width, y = cell / width;
+            for (Direction direction : Direction.values()) {
+                table[cell * DIRECTIONS + direction.ordinal()] = switch (direction) {
+                    case UP -> y > 0 ? cell - width : -1;
+                    case DOWN -> y < height - 1 ? cell + width : -1;
+                    case LEFT -> x > 0 ? cell - 1 : -1;
+                    case RIGHT -> x < width - 1 ? cell + 1 : -1;
+                };
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Contiguous range of environments stepped and observed by one task.
+     */
+    private final class Shard extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+
+        /**
+         * Creates a shard.
+         *
+         * @param from the index of the first environment
+         * @param to the index after the last environment
+         */
+        Shard(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Steps the environments of the shard, if actions are pending, then writes their observations, if requested.
+         */
+        @Override
+        protected void compute() {
+            int[] actions = pendingActions;
+            float[] floats = pendingFloats;
+            ByteBuffer bytes = pendingBytes;
+
+            for (int env = from; env < to; env++) {
+                if (actions != null) step(env, actions[env]);
+                if (floats != null) observe(env, floats);
+                else if (bytes != null) observe(env, bytes);
+            }
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.snakegame.view;
 
 import com.snakegame.model.Board;
+import com.snakegame.view.utils.AssetManager;
 import javax.swing.*;
+import java.awt.*;
 
 /**
  * GameFrame is the main window for the Snake game.
@@ -13,28 +15,74 @@ public class GameFrame extends JFrame {
 
     private GamePanel gamePanel;
 
+    private final AssetManager assets;
+
     /**
-     * Constructs the main game window with a fixed size, title, and centered position.
-     * Adds the GamePanel to the frame and makes it visible.
+     * Constructs the main game window with a new asset manager.
      *
      * @param model the game model to be rendered in the GamePanel
      */
     public GameFrame(Board model) {
+        this(model, new AssetManager());
+    }
+
+    /**
+     * Constructs the main game window sized to the board, with a title and centered position.
+     * Adds the GamePanel to the frame and makes it visible.
+     * Boards larger than the screen are shown inside a scroll pane.
+     * Only the sprite atlas is waited for; the icon is set whenever it finishes loading.
+     *
+     * @param model the game model to be rendered in the GamePanel
+     * @param assets the asset manager loading the sprites and the icon
+     */
+    public GameFrame(Board model, AssetManager assets) {
+        this.assets = assets;
         setTitle("Snake");
-        setSize(696, 639);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setLocationRelativeTo(null);
         setResizable(false);
 
-        ImageIcon icon = new ImageIcon(getClass().getClassLoader().getResource("icon/icon.png"));
-        setIconImage(icon.getImage());
+        assets.icon().thenAccept(icon -> {
+            if (icon != null) SwingUtilities.invokeLater(() -> setIconImage(icon));
+        });
+
+        this.gamePanel = new GamePanel(model, assets.atlas().join());
 
-        this.gamePanel = new GamePanel(model);
-        add(gamePanel);
+        Rectangle screen = GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
+        Dimension boardSize = gamePanel.getPreferredSize();
+        if (boardSize.width > screen.width || boardSize.height > screen.height) {
+            JScrollPane scrollPane = new JScrollPane(gamePanel);
+            scrollPane.setPreferredSize(new Dimension(Math.min(boardSize.width, screen.width * 3 / 4), Math.min(boardSize.height, screen.height * 3 / 4)));
+            add(scrollPane);
+            setResizable(true);
+        } else {
+            add(gamePanel);
+        }
 
+        pack();
+        setLocationRelativeTo(null);
         setVisible(true);
     }
 
+    /**
+     * Paints the window and logs the time to the first frame, once.
+     *
+     * @param g the Graphics context to draw on
+     */
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        assets.firstFrame();
+    }
+
+    /**
+     * Returns the asset manager the window was built with.
+     *
+     * @return the asset manager
+     */
+    public AssetManager getAssets() {
+        return assets;
+    }
+
     /**
      * Returns the GamePanel associated with this frame.
      *
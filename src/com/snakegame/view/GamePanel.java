@@ -1,16 +1,33 @@
 package com.snakegame.view;
 
-import com.snakegame.model.*;
-import com.snakegame.model.Point;
+import com.snakegame.diagnostics.GameEvents;
+import com.snakegame.diagnostics.PaintEvent;
+import com.snakegame.metrics.Counter;
+import com.snakegame.metrics.LatencyHistogram;
+import com.snakegame.metrics.MetricsRegistry;
+import com.snakegame.model.Board;
+import com.snakegame.model.BoardSnapshot;
+import com.snakegame.model.Direction;
+import com.snakegame.view.utils.CachedLayer;
+import com.snakegame.view.utils.Sprite;
+import com.snakegame.view.utils.SpriteAtlas;
 import com.snakegame.view.utils.SpriteLoader;
 import javax.swing.*;
 import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * GamePanel is the visual component responsible for rendering the Snake game board.
  * It draws the background, snake, and apple using sprite images.
+ * Between full repaints, only the tiles changed by the game are repainted, so that the cost of a frame
+ * does not depend on the size of the board.
+ * Everything is drawn from the immutable BoardSnapshot the board publishes after each tick, so painting never
+ * locks the board and never sees a tick halfway through; the tiles to repaint are found by comparing the
+ * snapshot of the last frame with the current one.
+ * Given a MetricsRegistry, the panel times every frame and counts them, and can draw a diagnostics overlay
+ * with the frame rate, the median and 99th percentile tick and frame times over the last second, and the
+ * garbage collector counts. The overlay text is built once per second; recording a frame does not allocate.
+ * While GameEvents are enabled, every paint is reported to the Flight Recorder as a PaintEvent.
  *
  * @author Alessandro Sorbara
  */
@@ -19,50 +36,340 @@ public class GamePanel extends JPanel {
     public static final int TILE_SIZE = 40;
     private static final Color DARK_GREEN = new Color(162, 209, 73);
     private static final Color LIGHT_GREEN = new Color(170, 215, 81);
+    private static final Rectangle SCORE_AREA = new Rectangle(0, 0, 5 * TILE_SIZE, TILE_SIZE);
+    private static final Font FONT = new Font("Monospaced", Font.BOLD, 20);
+    private static final String RESTART_MESSAGE = "Press any key to restart";
+    private static final int DIRTY_CAPACITY = 64;
+    private static final int MAX_INCREMENTAL_TICKS = 16;
+    private static final Rectangle HUD_AREA = new Rectangle(0, TILE_SIZE, 6 * TILE_SIZE, 2 * TILE_SIZE);
+    private static final Font HUD_FONT = new Font("Monospaced", Font.PLAIN, 12);
+    private static final Color HUD_BACKGROUND = new Color(0, 0, 0, 160);
+    private static final int HUD_LINE_HEIGHT = 16;
+    private static final long HUD_REFRESH_NANOS = 1_000_000_000L;
 
     private Board board;
-    private Map<String, BufferedImage> sprites;
+    private SpriteAtlas sprites;
+
+    private Color lightColor = LIGHT_GREEN;
+    private Color darkColor = DARK_GREEN;
+    private final CachedLayer backgroundLayer = new CachedLayer(this::renderBackground, false);
+    private final CachedLayer scoreLayer = new CachedLayer(this::renderScore, true);
+    private final CachedLayer restartLayer = new CachedLayer(this::renderRestart, true);
+    private int backgroundWidth;
+    private int backgroundHeight;
+    private int renderedScore = -1;
+
+    private volatile double interpolation = 1.0;
+    private volatile Runnable frameListener;
+    private final AtomicBoolean paintPosted = new AtomicBoolean();
+    private final Runnable paintJob = this::paintDirty;
+
+    private BoardSnapshot frame;
+    private double frameAlpha = 1.0;
+    private final int[] dirtyCells = new int[DIRTY_CAPACITY];
+    private final long[] dirtySequences = new long[DIRTY_CAPACITY];
+    private int dirtyCount;
+    private int tileSegment = -1;
+    private boolean incremental;
+
+    private LatencyHistogram tickTimes;
+    private LatencyHistogram frameTimes;
+    private Counter frames;
+    private boolean hudVisible;
+    private String[] hudLines = new String[0];
+    private long hudUpdated;
+    private long hudFrames;
+    private final long[] tickCounts = new long[LatencyHistogram.BUCKETS];
+    private final long[] frameCounts = new long[LatencyHistogram.BUCKETS];
+    private final long[] previousTickCounts = new long[LatencyHistogram.BUCKETS];
+    private final long[] previousFrameCounts = new long[LatencyHistogram.BUCKETS];
 
     /**
      * Constructs a GamePanel with the specified game model.
-     * Loads the sprites and sets the preferred size of the panel.
+     * Loads the sprites and sizes the panel to fit the board.
      *
      * @param model the game model to be rendered
      */
     public GamePanel(Board model) {
+        this(model, SpriteLoader.loadAtlas());
+    }
+
+    /**
+     * Constructs a GamePanel with the specified game model and already loaded sprites,
+     * and sizes the panel to fit the board. The board starts publishing the snapshots the panel draws.
+     *
+     * @param model the game model to be rendered
+     * @param sprites the sprite atlas to draw with
+     */
+    public GamePanel(Board model, SpriteAtlas sprites) {
         this.board = model;
-        this.sprites = SpriteLoader.loadSprites();
-        setPreferredSize(new Dimension(680, 600));
+        this.sprites = sprites;
+        model.setPublishingSnapshots(true);
+        setPreferredSize(new Dimension(model.getWidth() * TILE_SIZE, model.getHeight() * TILE_SIZE));
+    }
+
+    /**
+     * Changes the two colors of the checkerboard background, which is rendered again on the next paint.
+     *
+     * @param light the color of the tiles whose coordinates sum to an even number
+     * @param dark the color of the other tiles
+     */
+    public void setTheme(Color light, Color dark) {
+        this.lightColor = light;
+        this.darkColor = dark;
+        backgroundLayer.invalidate();
+        repaint();
+    }
+
+    /**
+     * Records the time of every frame into the FRAME_TIME histogram of the given registry and counts them,
+     * and lets the overlay show the registry's tick times. Must be called on the event dispatch thread,
+     * or before the panel is shown.
+     *
+     * @param metrics the registry to record into and read from
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        tickTimes = metrics.histogram(MetricsRegistry.TICK_TIME);
+        frameTimes = metrics.histogram(MetricsRegistry.FRAME_TIME);
+        frames = metrics.counter(MetricsRegistry.FRAMES);
+    }
+
+    /**
+     * Shows or hides the diagnostics overlay. Does nothing until metrics are set.
+     * Must be called on the event dispatch thread.
+     */
+    public void toggleHud() {
+        if (frameTimes == null) return;
+        hudVisible = !hudVisible;
+        if (hudVisible) updateHud(System.nanoTime());
+        repaint(HUD_AREA);
+    }
+
+    /**
+     * Sets the action to run after each frame is painted, such as signalling the game loop.
+     *
+     * @param frameListener the action to run, or null for none
+     */
+    public void setFrameListener(Runnable frameListener) {
+        this.frameListener = frameListener;
+    }
+
+    /**
+     * Requests a frame drawn at the given point between the last tick and the next one.
+     * The frame is painted on the event dispatch thread from the latest snapshot; requests made
+     * while a frame is still waiting to be painted are merged into it. Safe to call from any thread.
+     *
+     * @param alpha the elapsed fraction of the tick, from 0 (last tick) to 1 (current positions)
+     */
+    public void requestFrame(double alpha) {
+        interpolation = alpha;
+        if (paintPosted.compareAndSet(false, true)) SwingUtilities.invokeLater(paintJob);
     }
 
     /**
      * Called automatically when the panel is repainted.
-     * Delegates drawing tasks to helper methods for background, apple, and snake.
+     * Delegates drawing tasks to helper methods for background, apple, and snake,
+     * each of which only draws what lies inside the clip.
+     * The background layer covers the whole clip, so the panel is not cleared first.
+     * Everything is drawn from the snapshot of the current frame, so the game loop can tick meanwhile.
+     * While GameEvents are enabled, the paint is recorded as a PaintEvent.
      *
      * @param g the Graphics context to draw on
      */
     @Override
     protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        drawBackground(g);
-        drawApple(g, board.getApple());
-        drawSnake(g, board.getSnake());
-        drawScore(g, board.getGameState());
-        if (board.getGameState().isGameOver()) drawRestart(g);
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+        if (frame == null) frame = board.getSnapshot();
+
+        if (!GameEvents.isEnabled()) {
+            paintBoard(g, clip);
+            return;
+        }
+
+        PaintEvent event = new PaintEvent();
+        event.begin();
+        int segments = paintBoard(g, clip);
+        event.end();
+        if (event.shouldCommit()) {
+            event.segmentsDrawn = segments;
+            event.clipWidth = clip.width;
+            event.clipHeight = clip.height;
+            event.incremental = incremental;
+            event.commit();
+        }
+    }
+
+    /**
+     * Draws everything inside the clip from the snapshot of the current frame.
+     *
+     * @param g the Graphics context to draw on
+     * @param clip the area to draw
+     * @return the number of snake segments drawn
+     */
+    private int paintBoard(Graphics g, Rectangle clip) {
+        BoardSnapshot snapshot = frame;
+        drawBackground(g, clip);
+        drawApple(g, snapshot);
+        int segments = drawSnake(g, snapshot, clip);
+        if (clip.intersects(SCORE_AREA)) drawScore(g, snapshot);
+        if (isEnded(snapshot)) drawRestart(g);
+        if (hudVisible && clip.intersects(HUD_AREA)) drawHud(g);
+        return segments;
+    }
+
+    /**
+     * Takes the latest snapshot as the new frame and paints the tiles that differ from the previous frame,
+     * or the whole visible area if they cannot be told apart, then signals the frame listener.
+     * Runs on the event dispatch thread.
+     */
+    private void paintDirty() {
+        long start = System.nanoTime();
+        paintPosted.set(false);
+        BoardSnapshot previous = frame;
+        BoardSnapshot current = board.getSnapshot();
+        frame = current;
+        frameAlpha = interpolation;
+
+        if (!collectDirty(previous, current)) {
+            paintImmediately(getVisibleRect());
+        } else {
+            int width = current.getWidth();
+            long head = current.getHeadSequence();
+            long tail = current.getTailSequence();
+            incremental = true;
+            for (int i = 0; i < dirtyCount; i++) {
+                int cell = dirtyCells[i];
+                tileSegment = dirtySequences[i] >= tail ? (int) (head - dirtySequences[i]) : -1;
+                paintImmediately(cell % width * TILE_SIZE, cell / width * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+            }
+            tileSegment = -1;
+            incremental = false;
+            if (previous.getScore() != current.getScore()) paintImmediately(SCORE_AREA);
+        }
+
+        if (frameTimes != null) {
+            long end = System.nanoTime();
+            frameTimes.record(end - start);
+            frames.increment();
+            if (hudVisible && end - hudUpdated >= HUD_REFRESH_NANOS) {
+                updateHud(end);
+                paintImmediately(HUD_AREA);
+            }
+        }
+
+        Runnable listener = frameListener;
+        if (listener != null) listener.run();
+    }
+
+    /**
+     * Collects the tiles that differ between two frames: where the head and the tail were drawn in either frame,
+     * the cells entered and vacated by the ticks in between, and both apples.
+     * Each tile keeps the latest sequence number of a head that entered it, which tells the segment now lying on it.
+     *
+     * @param previous the snapshot of the previous frame, or null
+     * @param current the snapshot of the new frame
+     * @return false if the whole panel must be repainted instead, true otherwise
+     */
+    private boolean collectDirty(BoardSnapshot previous, BoardSnapshot current) {
+        if (previous == null || previous.getGeneration() != current.getGeneration()) return false;
+        if (isEnded(previous) != isEnded(current)) return false;
+        if (current.getHeadSequence() - previous.getHeadSequence() > MAX_INCREMENTAL_TICKS) return false;
+
+        dirtyCount = 0;
+        if (!markSliding(previous) || !markSliding(current)) return false;
+        for (long s = previous.getHeadSequence() + 1; s <= current.getHeadSequence(); s++) {
+            if (!markDirty(current.cellAtSequence(s), s)) return false;
+        }
+        for (long s = previous.getTailSequence(); s < current.getTailSequence(); s++) {
+            if (!markDirty(current.cellAtSequence(s), s)) return false;
+        }
+        return markDirty(previous.getAppleCell(), -1) && markDirty(current.getAppleCell(), -1);
+    }
+
+    /**
+     * Marks the tiles the head and the tail of a frame slide between.
+     *
+     * @param snapshot the snapshot of the frame
+     * @return false if a tile could not be marked
+     */
+    private boolean markSliding(BoardSnapshot snapshot) {
+        long head = snapshot.getHeadSequence();
+        long tail = snapshot.getTailSequence();
+        int previousHead = snapshot.previousHeadCell();
+        int previousTail = snapshot.previousTailCell();
+        return markDirty(snapshot.headCell(), head)
+                && markDirty(previousHead, previousHead == snapshot.headCell() ? head : head - 1)
+                && markDirty(snapshot.tailCell(), tail)
+                && markDirty(previousTail, previousTail == snapshot.tailCell() ? tail : tail - 1);
+    }
+
+    /**
+     * Adds a tile to the region to repaint, keeping the latest sequence number if it is already there.
+     *
+     * @param cell the packed cell index of the tile, or -1 if the snapshot no longer holds it
+     * @param sequence the sequence number of the head that entered the cell, or -1 for none
+     * @return false if the cell is unknown or too many tiles are pending
+     */
+    private boolean markDirty(int cell, long sequence) {
+        if (cell < 0) return false;
+        for (int i = 0; i < dirtyCount; i++) {
+            if (dirtyCells[i] == cell) {
+                dirtySequences[i] = Math.max(dirtySequences[i], sequence);
+                return true;
+            }
+        }
+        if (dirtyCount == DIRTY_CAPACITY) return false;
+        dirtyCells[dirtyCount] = cell;
+        dirtySequences[dirtyCount++] = sequence;
+        return true;
     }
 
     /**
-     * Draws a checkerboard-style green background for the game grid.
+     * Checks if the game of a frame has ended, either lost or won.
+     *
+     * @param snapshot the snapshot of the frame
+     * @return true if the restart prompt is shown
+     */
+    private static boolean isEnded(BoardSnapshot snapshot) {
+        return snapshot.isGameOver() || snapshot.isGameWon();
+    }
+
+    /**
+     * Draws a checkerboard-style green background for the game grid inside the clip.
+     * The checkerboard repeats every two tiles, so a cached layer covering the clip from the last even tile
+     * before it looks the same anywhere on the board and is drawn with a single blit.
+     * The layer only grows, and is rendered again when a larger clip shows up or the theme changes.
      *
      * @param g the Graphics context to draw on
+     * @param clip the area to draw
+     */
+    private void drawBackground(Graphics g, Rectangle clip) {
+        int period = 2 * TILE_SIZE;
+        int x = Math.max(0, clip.x) / period * period;
+        int y = Math.max(0, clip.y) / period * period;
+        int width = Math.min(clip.x + clip.width, getWidth()) - x;
+        int height = Math.min(clip.y + clip.height, getHeight()) - y;
+
+        backgroundWidth = Math.max(backgroundWidth, (width + period - 1) / period * period);
+        backgroundHeight = Math.max(backgroundHeight, (height + period - 1) / period * period);
+        backgroundLayer.draw(g, getGraphicsConfiguration(), x, y, backgroundWidth, backgroundHeight);
+    }
+
+    /**
+     * Renders the checkerboard into the background layer, starting with a light tile in the top left corner.
+     *
+     * @param g the graphics of the layer
+     * @param width the width of the layer
+     * @param height the height of the layer
      */
-    private void drawBackground(Graphics g) {
-        for (int y = 0; y < board.HEIGHT; y++) {
-            for (int x = 0; x < board.WIDTH; x++) {
+    private void renderBackground(Graphics2D g, int width, int height) {
+        for (int y = 0; y * TILE_SIZE < height; y++) {
+            for (int x = 0; x * TILE_SIZE < width; x++) {
                 if ((x + y) % 2 == 0) {
-                    g.setColor(LIGHT_GREEN);
+                    g.setColor(lightColor);
                 } else {
-                    g.setColor(DARK_GREEN);
+                    g.setColor(darkColor);
                 }
                 g.fillRect(x * TILE_SIZE, y * TILE_SIZE, TILE_SIZE, TILE_SIZE);
             }
@@ -73,83 +380,233 @@ public class GamePanel extends JPanel {
      * Draws the apple on the board using its position and sprite.
      *
      * @param g the Graphics context to draw on
-     * @param apple the Apple object to render
+     * @param snapshot the snapshot holding the apple cell
      */
-    private void drawApple(Graphics g, Apple apple) {
-        Point pos = apple.getPosition();
-        BufferedImage sprite = sprites.get("apple");
-        g.drawImage(sprite, pos.getX() * TILE_SIZE, pos.getY() * TILE_SIZE, null);
+    private void drawApple(Graphics g, BoardSnapshot snapshot) {
+        int cell = snapshot.getAppleCell();
+        int width = snapshot.getWidth();
+        sprites.draw(g, Sprite.APPLE, cell % width * TILE_SIZE, cell / width * TILE_SIZE);
     }
 
     /**
-     * Draws the snake on the board point by point using appropriate sprites.
-     * Handles direction-based sprite selection for head, body turns and tail.
+     * Draws the snake on the board from the tail to the head, so that the head slides over the body.
+     * When painting a tile changed between frames, only the segments that can reach it are drawn:
+     * the tail, the segment lying on the tile, the neck and the head. Otherwise, the body is walked once,
+     * keeping the cells of the neighbouring segments at hand, and every segment whose tile is near the clip is drawn.
      *
      * @param g the Graphics context to draw on
-     * @param snake the Snake object to render
-     */
-    private void drawSnake(Graphics g, Snake snake) {
-        for (int i = 0; i < snake.getBody().size(); i++) {
-            Point s = snake.getBody().get(i);
-            BufferedImage sprite = null;
-
-            if (i == 0) {
-                Point headRelation = Point.sub(snake.getBody().get(1), snake.head());
-                if (headRelation.equals(new Point(1, 0))) sprite = sprites.get("head_left");
-                else if (headRelation.equals(new Point(-1, 0))) sprite = sprites.get("head_right");
-                else if (headRelation.equals(new Point(0, 1))) sprite = sprites.get("head_up");
-                else if (headRelation.equals(new Point(0, -1))) sprite = sprites.get("head_down");
-
-            } else if (i == snake.getBody().size() - 1) {
-                Point tailRelation = Point.sub(snake.getBody().get(snake.getBody().size() - 2), snake.tail());
-
-                if (tailRelation.equals(new Point(1, 0))) sprite = sprites.get("tail_left");
-                else if (tailRelation.equals(new Point(-1, 0))) sprite = sprites.get("tail_right");
-                else if (tailRelation.equals(new Point(0, 1))) sprite = sprites.get("tail_up");
-                else if (tailRelation.equals(new Point(0, -1))) sprite = sprites.get("tail_down");
-
-            } else {
-                Point prev = Point.sub(snake.getBody().get(i + 1), s);
-                Point next = Point.sub(snake.getBody().get(i - 1), s);
-
-                if (prev.getY() == next.getY()) sprite = sprites.get("body_horizontal");
-                else if (prev.getX() == next.getX()) sprite = sprites.get("body_vertical");
-
-                else if ((prev.getX() == -1 && next.getY() == -1) || (prev.getY() == -1 && next.getX() == -1)) sprite = sprites.get("body_topleft");
-                else if ((prev.getX() == -1 && next.getY() == 1) || (prev.getY() == 1 && next.getX() == -1)) sprite = sprites.get("body_bottomleft");
-                else if ((prev.getX() == 1 && next.getY() == -1) || (prev.getY() == -1 && next.getX() == 1)) sprite = sprites.get("body_topright");
-                else if ((prev.getX() == 1 && next.getY() == 1) || (prev.getY() == 1 && next.getX() == 1)) sprite = sprites.get("body_bottomright");
+     * @param snake the snapshot of the snake to render
+     * @param clip the area to draw
+     * @return the number of segments drawn
+     */
+    private int drawSnake(Graphics g, BoardSnapshot snake, Rectangle clip) {
+        int size = snake.size();
+
+        if (incremental) {
+            int drawn = 2;
+            drawSegment(g, snake, size - 1);
+            if (tileSegment > 1 && tileSegment < size - 1) {
+                drawSegment(g, snake, tileSegment);
+                drawn++;
+            }
+            if (size > 2) {
+                drawSegment(g, snake, 1);
+                drawn++;
+            }
+            drawSegment(g, snake, 0);
+            return drawn;
+        }
+
+        int width = snake.getWidth();
+        int minX = clip.x / TILE_SIZE - 1;
+        int minY = clip.y / TILE_SIZE - 1;
+        int maxX = (clip.x + clip.width) / TILE_SIZE + 1;
+        int maxY = (clip.y + clip.height) / TILE_SIZE + 1;
+
+        int drawn = 0;
+        int behind = -1;
+        int cell = snake.cellAt(size - 1);
+        for (int i = size - 1; i >= 0; i--) {
+            int ahead = i > 0 ? snake.cellAt(i - 1) : -1;
+            int x = cell % width;
+            int y = cell / width;
+            if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                drawSegment(g, snake, behind, cell, ahead);
+                drawn++;
             }
+            behind = cell;
+            cell = ahead;
+        }
+        return drawn;
+    }
+
+    /**
+     * Draws the i-th segment of the snake, looking up its neighbours.
+     *
+     * @param g the Graphics context to draw on
+     * @param snake the snapshot of the snake to render
+     * @param i the index of the segment, 0 being the head
+     */
+    private void drawSegment(Graphics g, BoardSnapshot snake, int i) {
+        int behind = i < snake.size() - 1 ? snake.cellAt(i + 1) : -1;
+        int ahead = i > 0 ? snake.cellAt(i - 1) : -1;
+        drawSegment(g, snake, behind, snake.cellAt(i), ahead);
+    }
 
-            g.drawImage(sprite, s.getX() * TILE_SIZE, s.getY() * TILE_SIZE, null);
+    /**
+     * Draws a segment of the snake using the sprite picked from the lookup tables by the directions of its neighbours.
+     * The head and the tail are drawn between their previous and current cell according to the interpolation factor,
+     * while the body stays in place.
+     *
+     * @param g the Graphics context to draw on
+     * @param snake the snapshot of the snake to render
+     * @param behind the cell of the neighbour on the tail side, or -1 for the tail
+     * @param cell the cell of the segment
+     * @param ahead the cell of the neighbour on the head side, or -1 for the head
+     */
+    private void drawSegment(Graphics g, BoardSnapshot snake, int behind, int cell, int ahead) {
+        int width = snake.getWidth();
+        Sprite sprite;
+        if (ahead < 0) sprite = Sprite.head(direction(cell, behind, width));
+        else if (behind < 0) sprite = Sprite.tail(direction(cell, ahead, width));
+        else sprite = Sprite.body(direction(cell, behind, width), direction(cell, ahead, width));
+
+        int x = cell % width * TILE_SIZE;
+        int y = cell / width * TILE_SIZE;
+
+        if (ahead < 0 || behind < 0) {
+            int previous = ahead < 0 ? snake.previousHeadCell() : snake.previousTailCell();
+            double alpha = frameAlpha;
+            x = (int) Math.round((previous % width + (cell % width - previous % width) * alpha) * TILE_SIZE);
+            y = (int) Math.round((previous / width + (cell / width - previous / width) * alpha) * TILE_SIZE);
         }
+
+        sprites.draw(g, sprite, x, y);
     }
 
     /**
-     * Draws the restart prompt.
+     * Returns the direction from a cell to an adjacent one.
+     *
+     * @param from the starting cell
+     * @param to the adjacent cell
+     * @param width the number of columns of the board
+     * @return the ordinal of the direction
+     */
+    private static int direction(int from, int to, int width) {
+        int delta = to - from;
+        if (delta == 1) return Direction.RIGHT.ordinal();
+        if (delta == -1) return Direction.LEFT.ordinal();
+        if (delta == width) return Direction.DOWN.ordinal();
+        return Direction.UP.ordinal();
+    }
+
+    /**
+     * Draws the restart prompt, centered on the panel, from its cached layer.
      *
      * @param g the Graphics context to draw on
      */
     private void drawRestart(Graphics g) {
+        FontMetrics fm = getFontMetrics(FONT);
+        int width = fm.stringWidth(RESTART_MESSAGE);
+        int height = fm.getHeight();
+        int x = (getWidth() - width) / 2;
+        int y = getHeight() / 2 - fm.getAscent();
+        restartLayer.draw(g, getGraphicsConfiguration(), x, y, width, height);
+    }
+
+    /**
+     * Renders the restart prompt into its layer.
+     *
+     * @param g the graphics of the layer
+     * @param width the width of the layer
+     * @param height the height of the layer
+     */
+    private void renderRestart(Graphics2D g, int width, int height) {
         g.setColor(Color.RED);
-        g.setFont(new Font("Monospaced", Font.BOLD, 20));
-        String message = "Press any key to restart";
-        FontMetrics fm = g.getFontMetrics();
-        int x = (getWidth() - fm.stringWidth(message)) / 2;
-        int y = getHeight() / 2;
-        g.drawString(message, x, y);
+        g.setFont(FONT);
+        g.drawString(RESTART_MESSAGE, 0, g.getFontMetrics().getAscent());
+    }
+
+    /**
+     * Draws the score from its cached layer, rendering it again only when the score changed.
+     *
+     * @param g the Graphics context to draw on
+     * @param snapshot the snapshot holding the score
+     */
+    private void drawScore(Graphics g, BoardSnapshot snapshot) {
+        if (snapshot.getScore() != renderedScore) {
+            renderedScore = snapshot.getScore();
+            scoreLayer.invalidate();
+        }
+        scoreLayer.draw(g, getGraphicsConfiguration(), SCORE_AREA.x, SCORE_AREA.y, SCORE_AREA.width, SCORE_AREA.height);
+    }
+
+    /**
+     * Renders the score into its layer.
+     *
+     * @param g the graphics of the layer
+     * @param width the width of the layer
+     * @param height the height of the layer
+     */
+    private void renderScore(Graphics2D g, int width, int height) {
+        g.setColor(Color.WHITE);
+        g.setFont(FONT);
+        g.drawString("Score: " + renderedScore, 10, 30);
+    }
+
+    /**
+     * Rebuilds the overlay text from the frames painted and the ticks and frames recorded since the last update.
+     * Percentiles are taken from the difference between the current and the previous copy of the histogram counts.
+     *
+     * @param now the current time, in nanoseconds
+     */
+    private void updateHud(long now) {
+        tickTimes.copyCounts(tickCounts);
+        frameTimes.copyCounts(frameCounts);
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            long ticks = tickCounts[i];
+            long frameCount = frameCounts[i];
+            tickCounts[i] -= previousTickCounts[i];
+            frameCounts[i] -= previousFrameCounts[i];
+            previousTickCounts[i] = ticks;
+            previousFrameCounts[i] = frameCount;
+        }
+
+        long frameTotal = frames.get();
+        double fps = hudUpdated == 0 ? 0 : (frameTotal - hudFrames) * 1e9 / (now - hudUpdated);
+        hudFrames = frameTotal;
+        hudUpdated = now;
+
+        hudLines = new String[]{
+                String.format("FPS %.1f", fps),
+                String.format("tick  p50 %6.2f p99 %6.2f ms", millis(tickCounts, 50), millis(tickCounts, 99)),
+                String.format("frame p50 %6.2f p99 %6.2f ms", millis(frameCounts, 50), millis(frameCounts, 99)),
+                String.format("GC %d (%d ms)", MetricsRegistry.gcCount(), MetricsRegistry.gcTimeMillis())
+        };
+    }
+
+    /**
+     * Returns a percentile of a window of histogram counts in milliseconds.
+     *
+     * @param counts the bucket counts of the window
+     * @param percentile the percentile, in [0, 100]
+     * @return the duration, in milliseconds
+     */
+    private static double millis(long[] counts, double percentile) {
+        return LatencyHistogram.percentile(counts, percentile) / 1e6;
     }
 
     /**
-     * Draws the score.
+     * Draws the diagnostics overlay over a translucent background.
      *
      * @param g the Graphics context to draw on
-     * @param snake the GameState object to access score
      */
-    private void drawScore(Graphics g, GameState game) {
+    private void drawHud(Graphics g) {
+        g.setColor(HUD_BACKGROUND);
+        g.fillRect(HUD_AREA.x, HUD_AREA.y, HUD_AREA.width, HUD_AREA.height);
         g.setColor(Color.WHITE);
-        g.setFont(new Font("Monospaced", Font.BOLD, 20));
-        String scoreText = "Score: " + game.getScore();
-        g.drawString(scoreText, 10, 30);
+        g.setFont(HUD_FONT);
+        String[] lines = hudLines;
+        for (int i = 0; i < lines.length; i++) g.drawString(lines[i], HUD_AREA.x + 6, HUD_AREA.y + (i + 1) * HUD_LINE_HEIGHT);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,185 @@
+package com.snakegame.view.utils;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads every asset of the Snake game in parallel, on a small pool of daemon threads, as soon as it is created.
+ * Sprites are decoded one per task and packed into a display-compatible atlas, while the window icon
+ * and the sounds load alongside them, so that only the atlas has to be ready before the first frame.
+ * The load time of each asset, the total load time and the time to the first frame are logged.
+ *
+ * @author Alessandro Sorbara
+ */
+public class AssetManager {
+
+    private static final int MAX_THREADS = 4;
+
+    private final long startNanos = System.nanoTime();
+    private final ExecutorService executor;
+    private final AtomicBoolean firstFrameLogged = new AtomicBoolean();
+
+    private final CompletableFuture<SpriteAtlas> atlas;
+    private final CompletableFuture<Image> icon;
+    private final Map<String, CompletableFuture<short[]>> sounds = new HashMap<>();
+
+    /**
+     * Starts loading every asset in the background.
+     * The pool is shut down once every task is queued, so its threads end when loading is done.
+     */
+    public AssetManager() {
+        int threads = Math.max(2, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "asset-loader-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Sprite[] all = Sprite.values();
+        CompletableFuture<?>[] sprites = new CompletableFuture<?>[all.length];
+        for (Sprite sprite : all) {
+            sprites[sprite.ordinal()] = load("sprite " + sprite.fileName(), () -> SpriteLoader.loadSprite(sprite));
+        }
+        atlas = CompletableFuture.allOf(sprites).thenApply(ignored -> {
+            BufferedImage[] images = new BufferedImage[all.length];
+            for (int i = 0; i < all.length; i++) images[i] = (BufferedImage) sprites[i].join();
+            return timed("sprite atlas", () -> SpriteLoader.packAtlas(images));
+        });
+
+        icon = load("icon", () -> toCompatible(readImage("/icon/icon.png")));
+
+        CompletableFuture<?>[] loads = new CompletableFuture<?>[SoundManager.PATHS.length + 2];
+        for (int i = 0; i < SoundManager.PATHS.length; i++) {
+            String path = SoundManager.PATHS[i];
+            CompletableFuture<short[]> sound = load("sound " + path, () -> SoundManager.decode(path));
+            sounds.put(path, sound);
+            loads[i] = sound;
+        }
+        loads[loads.length - 2] = atlas;
+        loads[loads.length - 1] = icon;
+        CompletableFuture.allOf(loads).thenRun(() -> System.out.printf("All assets loaded in %.1f ms%n", elapsedMillis(startNanos)));
+
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the sprite atlas, which completes once every sprite is decoded and packed.
+     *
+     * @return the future sprite atlas
+     */
+    public CompletableFuture<SpriteAtlas> atlas() {
+        return atlas;
+    }
+
+    /**
+     * Returns the window icon, which completes with null if the icon cannot be read.
+     *
+     * @return the future icon
+     */
+    public CompletableFuture<Image> icon() {
+        return icon;
+    }
+
+    /**
+     * Returns the decoded samples of a sound, which complete with null if the sound cannot be read.
+     *
+     * @param path the resource path of the sound
+     * @return the future samples
+     * @throws IllegalArgumentException if the sound is not one of the game sounds
+     */
+    CompletableFuture<short[]> sound(String path) {
+        CompletableFuture<short[]> sound = sounds.get(path);
+        if (sound == null) throw new IllegalArgumentException("Unknown sound: " + path);
+        return sound;
+    }
+
+    /**
+     * Logs the time from the creation of the manager to the first frame. Only the first call logs anything.
+     */
+    public void firstFrame() {
+        if (firstFrameLogged.compareAndSet(false, true)) {
+            System.out.printf("First frame after %.1f ms%n", elapsedMillis(startNanos));
+        }
+    }
+
+    /**
+     * Runs a loader on the pool, logging how long it took.
+     * A failing loader is reported on the error stream and completes the future with null.
+     *
+     * @param name the name of the asset, for the log
+     * @param loader the task loading the asset
+     * @param <T> the type of the asset
+     * @return the future asset
+     */
+    private <T> CompletableFuture<T> load(String name, Callable<T> loader) {
+        return CompletableFuture.supplyAsync(() -> timed(name, loader), executor);
+    }
+
+    /**
+     * Runs a loader on the calling thread, logging how long it took.
+     *
+     * @param name the name of the asset, for the log
+     * @param loader the task loading the asset
+     * @param <T> the type of the asset
+     * @return the asset, or null if it cannot be loaded
+     */
+    private static <T> T timed(String name, Callable<T> loader) {
+        long start = System.nanoTime();
+        try {
+            T asset = loader.call();
+            System.out.printf("Loaded %s in %.1f ms%n", name, elapsedMillis(start));
+            return asset;
+        } catch (Exception e) {
+            System.err.println("Cannot load " + name + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Decodes an image from the given resource path.
+     *
+     * @param path the resource path of the image
+     * @return the decoded image
+     * @throws IOException if the image cannot be read or the resource is not found
+     */
+    private static BufferedImage readImage(String path) throws IOException {
+        try (InputStream stream = AssetManager.class.getResourceAsStream(path)) {
+            if (stream == null) throw new FileNotFoundException("Image not found: " + path);
+            return ImageIO.read(stream);
+        }
+    }
+
+    /**
+     * Copies an image into the pixel format of the default screen.
+     *
+     * @param image the image to convert
+     * @return the converted image
+     */
+    private static BufferedImage toCompatible(BufferedImage image) {
+        BufferedImage compatible = SpriteLoader.createCompatibleImage(image.getWidth(), image.getHeight());
+        Graphics2D g = compatible.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return compatible;
+    }
+
+    /**
+     * Returns the time elapsed since the given instant.
+     *
+     * @param start the instant, from System.nanoTime
+     * @return the elapsed time, in milliseconds
+     */
+    private static double elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1e6;
+    }
+}
@@ -0,0 +1,123 @@
+package com.snakegame.view.utils;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+/**
+ * Utility class caching a pre-rendered layer of the game view, such as the background or a text overlay.
+ * The layer is rendered once into an image compatible with the screen, ideally an accelerated VolatileImage,
+ * and then blitted with a single drawImage. It is rendered again only when it is invalidated, resized,
+ * or when the VolatileImage loses its contents. Without a graphics configuration, as in headless mode,
+ * a BufferedImage is used instead.
+ *
+ * @author Alessandro Sorbara
+ */
+public class CachedLayer {
+
+    /**
+     * Draws the content of a layer.
+     */
+    @FunctionalInterface
+    public interface Renderer {
+
+        /**
+         * Renders the layer into a cleared image.
+         *
+         * @param g the graphics of the image
+         * @param width the width of the image
+         * @param height the height of the image
+         */
+        void render(Graphics2D g, int width, int height);
+    }
+
+    private final Renderer renderer;
+    private final boolean translucent;
+
+    private Image image;
+    private boolean valid;
+
+    /**
+     * Creates an empty layer, rendered on first draw.
+     *
+     * @param renderer the code drawing the layer's content
+     * @param translucent true if the layer has transparent areas, such as text; false if it is fully opaque
+     */
+    public CachedLayer(Renderer renderer, boolean translucent) {
+        this.renderer = renderer;
+        this.translucent = translucent;
+    }
+
+    /**
+     * Marks the layer to be rendered again on the next draw, such as after a theme change.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Draws the layer, rendering it first if it is invalid, has another size, or lost its contents.
+     *
+     * @param g the graphics to draw on
+     * @param gc the graphics configuration of the destination, or null to use a BufferedImage
+     * @param x the x-coordinate at which to draw the layer
+     * @param y the y-coordinate at which to draw the layer
+     * @param width the width of the layer
+     * @param height the height of the layer
+     */
+    public void draw(Graphics g, GraphicsConfiguration gc, int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) return;
+
+        if (gc == null) {
+            if (!(image instanceof BufferedImage) || image.getWidth(null) != width || image.getHeight(null) != height) {
+                image = new BufferedImage(width, height, translucent ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+                valid = false;
+            }
+            if (!valid) render(image);
+            g.drawImage(image, x, y, null);
+            return;
+        }
+
+        VolatileImage volatileImage;
+        do {
+            if (image instanceof VolatileImage && image.getWidth(null) == width && image.getHeight(null) == height) {
+                volatileImage = (VolatileImage) image;
+            } else {
+                volatileImage = gc.createCompatibleVolatileImage(width, height, translucent ? Transparency.TRANSLUCENT : Transparency.OPAQUE);
+                image = volatileImage;
+                valid = false;
+            }
+
+            int status = volatileImage.validate(gc);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                image = null;
+                continue;
+            }
+            if (status == VolatileImage.IMAGE_RESTORED || !valid) render(volatileImage);
+
+            g.drawImage(volatileImage, x, y, null);
+        } while (image == null || volatileImage.contentsLost());
+    }
+
+    /**
+     * Clears the image and renders the layer into it.
+     *
+     * @param target the image to render into
+     */
+    private void render(Image target) {
+        Graphics2D g = (Graphics2D) target.getGraphics();
+        try {
+            int width = target.getWidth(null);
+            int height = target.getHeight(null);
+            if (translucent) {
+                g.setComposite(AlphaComposite.Clear);
+                g.fillRect(0, 0, width, height);
+                g.setComposite(AlphaComposite.SrcOver);
+            }
+            renderer.render(g, width, height);
+        } finally {
+            g.dispose();
+        }
+        valid = true;
+    }
+}
@@ -1,47 +1,348 @@
 package com.snakegame.view.utils;
 
+import com.snakegame.diagnostics.AudioSetupEvent;
+import com.snakegame.diagnostics.GameEvents;
+import com.snakegame.diagnostics.SoundEvent;
+
 import javax.sound.sampled.*;
+import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.net.URL;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Utility class for handling and playing WAV sound effects in the Snake game.
+ * Every sound is decoded once, at construction, into 16-bit stereo PCM at a common sample rate.
+ * A dedicated mixer thread sums the playing sounds into a single SourceDataLine, so playing a sound
+ * only sets a bit in a lock-free trigger mask: it never blocks and never allocates.
+ * Sounds can also be handed over by an AssetManager as they finish decoding in the background;
+ * until a sound is ready, playing it does nothing.
+ * If no audio line is available, as on a headless server, the manager stays silent.
+ * While GameEvents are enabled, sound triggers, decoding and opening the line are reported to the Flight Recorder.
  *
  * @author Alessandro Sorbara
  */
 public class SoundManager {
 
+    private static final String[] SOUNDS = {"crunch.wav", "game_over.wav"};
+    private static final int BRAINROT_SOUNDS = 20;
+    private static final int FIRST_BRAINROT = SOUNDS.length;
+    static final String[] PATHS = new String[SOUNDS.length + BRAINROT_SOUNDS];
+    private static final Map<String, Integer> IDS = new HashMap<>();
+
+    static {
+        for (int i = 0; i < SOUNDS.length; i++) {
+            PATHS[i] = "/sounds/" + SOUNDS[i];
+            IDS.put(SOUNDS[i], i);
+        }
+        for (int i = 0; i < BRAINROT_SOUNDS; i++) PATHS[FIRST_BRAINROT + i] = "/sounds/brainrot/" + (i + 1) + ".wav";
+    }
+
+    private static final float SAMPLE_RATE = 44100f;
+    private static final int CHANNELS = 2;
+    private static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, CHANNELS, true, false);
+    private static final int CHUNK_FRAMES = 512;
+    private static final int MAX_VOICES = 8;
+
+    private final AtomicReferenceArray<short[]> samples = new AtomicReferenceArray<>(PATHS.length);
+    private final Random random = new Random();
+
+    private final AtomicLong triggers = new AtomicLong();
+    private final short[][] voiceSamples = new short[MAX_VOICES][];
+    private final int[] voicePositions = new int[MAX_VOICES];
+    private final int[] mix = new int[CHUNK_FRAMES * CHANNELS];
+    private final byte[] output = new byte[CHUNK_FRAMES * CHANNELS * 2];
+
+    private final Thread mixer;
+
+    /**
+     * Decodes every sound on the calling thread and starts the mixer thread.
+     */
+    public SoundManager() {
+        for (int i = 0; i < PATHS.length; i++) samples.set(i, decode(PATHS[i]));
+        mixer = startMixer();
+    }
+
+    /**
+     * Starts the mixer thread and takes every sound from the asset manager as soon as it is decoded.
+     *
+     * @param assets the asset manager decoding the sounds
+     */
+    public SoundManager(AssetManager assets) {
+        for (int i = 0; i < PATHS.length; i++) {
+            int id = i;
+            assets.sound(PATHS[i]).thenAccept(sound -> samples.set(id, sound));
+        }
+        mixer = startMixer();
+    }
+
     /**
      * Plays a sound file.
+     * The sound starts on the mixer thread within one mixing chunk; this method returns immediately.
      *
      * @param soundName the filename of the sound to play
      * @param brainrot activates brainrot sounds if true
      */
     public void playSound(String soundName, boolean brainrot) {
-        try {
-            URL soundURL = getSound(soundName, brainrot);
-            if (soundURL == null) {
-                System.err.println("Sound file not found: " + soundName);
-                return;
-            }
-            AudioInputStream audioIn = AudioSystem.getAudioInputStream(soundURL);
-            Clip clip = AudioSystem.getClip();
-            clip.open(audioIn);
-            clip.start();
-        } catch (UnsupportedAudioFileException | IOException | LineUnavailableException e) {
-            e.printStackTrace();
+        if (!GameEvents.isEnabled()) {
+            trigger(soundName, brainrot);
+            return;
+        }
+
+        SoundEvent event = new SoundEvent();
+        event.begin();
+        boolean triggered = trigger(soundName, brainrot);
+        event.end();
+        if (event.shouldCommit()) {
+            event.sound = soundName;
+            event.brainrot = brainrot;
+            event.triggered = triggered;
+            event.commit();
         }
     }
 
     /**
-     * Retrieves the URL of a sound from the Resources Root.
+     * Sets the trigger bit of a sound and wakes the mixer up.
      *
      * @param soundName the filename of the sound to play
      * @param brainrot activates brainrot sounds if true
+     * @return true if the sound was triggered, false if it is unknown or not decoded yet
+     */
+    private boolean trigger(String soundName, boolean brainrot) {
+        int id;
+        if (brainrot) {
+            id = FIRST_BRAINROT + random.nextInt(BRAINROT_SOUNDS);
+        } else {
+            Integer known = IDS.get(soundName);
+            if (known == null) {
+                System.err.println("Sound file not found: " + soundName);
+                return false;
+            }
+            id = known;
+        }
+
+        if (samples.get(id) == null) return false;
+
+        long bit = 1L << id;
+        long current;
+        do {
+            current = triggers.get();
+        } while (!triggers.compareAndSet(current, current | bit));
+        LockSupport.unpark(mixer);
+        return true;
+    }
+
+    /**
+     * Starts the daemon mixer thread.
+     *
+     * @return the mixer thread
+     */
+    private Thread startMixer() {
+        Thread thread = new Thread(this::mixLoop, "sound-mixer");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Mixer thread body: opens the output line, then starts the triggered sounds, sums the playing ones into a chunk
+     * and writes it to the line, whose blocking write paces the loop. Parks while nothing is playing.
+     * Ends right away if no line is available.
+     */
+    private void mixLoop() {
+        SourceDataLine line = openLine();
+        if (line == null) return;
+
+        while (true) {
+            long pending = triggers.getAndSet(0);
+            while (pending != 0) {
+                int id = Long.numberOfTrailingZeros(pending);
+                pending &= pending - 1;
+                startVoice(samples.get(id));
+            }
+
+            if (!mixChunk()) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            line.write(output, 0, output.length);
+        }
+    }
+
+    /**
+     * Assigns a sound to a free voice, or to the voice closest to its end if all are busy.
+     *
+     * @param sound the samples of the sound
      */
-    private URL getSound(String soundName, boolean brainrot) {
-        if (!brainrot) return getClass().getResource("/sounds/" + soundName);
-        else return getClass().getResource("/sounds/brainrot/" + String.valueOf(new Random().nextInt(20) + 1) + ".wav");
+    private void startVoice(short[] sound) {
+        int chosen = 0;
+        int bestRemaining = Integer.MAX_VALUE;
+        for (int v = 0; v < MAX_VOICES; v++) {
+            if (voiceSamples[v] == null) {
+                chosen = v;
+                break;
+            }
+            int remaining = voiceSamples[v].length - voicePositions[v];
+            if (remaining < bestRemaining) {
+                bestRemaining = remaining;
+                chosen = v;
+            }
+        }
+        voiceSamples[chosen] = sound;
+        voicePositions[chosen] = 0;
+    }
+
+    /**
+     * Sums the next chunk of every playing voice into the output buffer, clamping to 16 bits.
+     *
+     * @return true if at least one voice was playing, false if the output is silence
+     */
+    private boolean mixChunk() {
+        boolean playing = false;
+        Arrays.fill(mix, 0);
+
+        for (int v = 0; v < MAX_VOICES; v++) {
+            short[] sound = voiceSamples[v];
+            if (sound == null) continue;
+            playing = true;
+
+            int position = voicePositions[v];
+            int count = Math.min(mix.length, sound.length - position);
+            for (int i = 0; i < count; i++) mix[i] += sound[position + i];
+
+            position += count;
+            if (position >= sound.length) voiceSamples[v] = null;
+            voicePositions[v] = position;
+        }
+
+        for (int i = 0; i < mix.length; i++) {
+            int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[i]));
+            output[2 * i] = (byte) sample;
+            output[2 * i + 1] = (byte) (sample >> 8);
+        }
+        return playing;
+    }
+
+    /**
+     * Opens and starts the output line in the common format.
+     *
+     * @return the line, or null if no line is available
+     */
+    private static SourceDataLine openLine() {
+        if (!GameEvents.isEnabled()) return tryOpenLine();
+
+        AudioSetupEvent event = new AudioSetupEvent();
+        event.begin();
+        SourceDataLine line = tryOpenLine();
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = "open line";
+            event.resource = FORMAT.toString();
+            event.succeeded = line != null;
+            event.commit();
+        }
+        return line;
+    }
+
+    /**
+     * Opens and starts the output line, reporting why if it cannot.
+     *
+     * @return the line, or null if no line is available
+     */
+    private static SourceDataLine tryOpenLine() {
+        try {
+            SourceDataLine line = AudioSystem.getSourceDataLine(FORMAT);
+            line.open(FORMAT, CHUNK_FRAMES * CHANNELS * 2 * 4);
+            line.start();
+            return line;
+        } catch (LineUnavailableException | IllegalArgumentException | SecurityException e) {
+            System.err.println("Audio output unavailable, sounds disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Decodes a WAV resource into interleaved 16-bit stereo samples at the common sample rate,
+     * resampling it linearly if it was recorded at another rate.
+     *
+     * @param path the resource path of the sound
+     * @return the samples, or null if the sound cannot be read
+     */
+    static short[] decode(String path) {
+        if (!GameEvents.isEnabled()) return tryDecode(path);
+
+        AudioSetupEvent event = new AudioSetupEvent();
+        event.begin();
+        short[] decoded = tryDecode(path);
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = "decode";
+            event.resource = path;
+            event.samples = decoded == null ? 0 : decoded.length;
+            event.succeeded = decoded != null;
+            event.commit();
+        }
+        return decoded;
+    }
+
+    /**
+     * Decodes and resamples a WAV resource, reporting why if it cannot.
+     *
+     * @param path the resource path of the sound
+     * @return the samples, or null if the sound cannot be read
+     */
+    private static short[] tryDecode(String path) {
+        try (InputStream stream = SoundManager.class.getResourceAsStream(path)) {
+            if (stream == null) {
+                System.err.println("Sound file not found: " + path);
+                return null;
+            }
+
+            AudioInputStream source = AudioSystem.getAudioInputStream(new BufferedInputStream(stream));
+            AudioFormat pcm = new AudioFormat(source.getFormat().getSampleRate(), 16, CHANNELS, true, false);
+            byte[] bytes = AudioSystem.getAudioInputStream(pcm, source).readAllBytes();
+
+            int frames = bytes.length / (2 * CHANNELS);
+            short[] decoded = new short[frames * CHANNELS];
+            for (int i = 0; i < decoded.length; i++) decoded[i] = (short) ((bytes[2 * i] & 0xFF) | (bytes[2 * i + 1] << 8));
+
+            return resample(decoded, pcm.getSampleRate());
+        } catch (UnsupportedAudioFileException | IOException | IllegalArgumentException e) {
+            System.err.println("Cannot decode sound " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Converts interleaved stereo samples to the common sample rate by linear interpolation.
+     *
+     * @param samples the samples to convert
+     * @param rate their sample rate
+     * @return the converted samples, or the same array if the rate already matches
+     */
+    private static short[] resample(short[] samples, float rate) {
+        if (rate == SAMPLE_RATE) return samples;
+
+        int frames = samples.length / CHANNELS;
+        int resampledFrames = (int) ((long) frames * SAMPLE_RATE / rate);
+        short[] resampled = new short[resampledFrames * CHANNELS];
+
+        for (int f = 0; f < resampledFrames; f++) {
+            double source = f * rate / SAMPLE_RATE;
+            int left = (int) source;
+            int right = Math.min(left + 1, frames - 1);
+            double t = source - left;
+            for (int c = 0; c < CHANNELS; c++) {
+                resampled[f * CHANNELS + c] = (short) Math.round(samples[left * CHANNELS + c] * (1 - t) + samples[right * CHANNELS + c] * t);
+            }
+        }
+        return resampled;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,93 @@
+package com.snakegame.view.utils;
+
+import com.snakegame.model.Direction;
+
+/**
+ * Enumerates the sprites of the game, in the order they are packed into the SpriteAtlas.
+ * Also holds the lookup tables choosing the sprite of a snake segment from the directions
+ * of its neighbouring segments, indexed by Direction ordinal.
+ *
+ * @author Alessandro Sorbara
+ */
+public enum Sprite {
+    APPLE,
+    BODY_BOTTOMLEFT, BODY_BOTTOMRIGHT, BODY_HORIZONTAL, BODY_TOPLEFT, BODY_TOPRIGHT, BODY_VERTICAL,
+    HEAD_DOWN, HEAD_LEFT, HEAD_RIGHT, HEAD_UP,
+    TAIL_DOWN, TAIL_LEFT, TAIL_RIGHT, TAIL_UP;
+
+    private static final int DIRECTIONS = Direction.values().length;
+    private static final Sprite[] HEADS = new Sprite[DIRECTIONS];
+    private static final Sprite[] TAILS = new Sprite[DIRECTIONS];
+    private static final Sprite[] BODIES = new Sprite[DIRECTIONS * DIRECTIONS];
+
+    static {
+        HEADS[Direction.UP.ordinal()] = HEAD_DOWN;
+        HEADS[Direction.DOWN.ordinal()] = HEAD_UP;
+        HEADS[Direction.LEFT.ordinal()] = HEAD_RIGHT;
+        HEADS[Direction.RIGHT.ordinal()] = HEAD_LEFT;
+
+        TAILS[Direction.UP.ordinal()] = TAIL_DOWN;
+        TAILS[Direction.DOWN.ordinal()] = TAIL_UP;
+        TAILS[Direction.LEFT.ordinal()] = TAIL_RIGHT;
+        TAILS[Direction.RIGHT.ordinal()] = TAIL_LEFT;
+
+        body(Direction.LEFT, Direction.RIGHT, BODY_HORIZONTAL);
+        body(Direction.UP, Direction.DOWN, BODY_VERTICAL);
+        body(Direction.LEFT, Direction.UP, BODY_TOPLEFT);
+        body(Direction.LEFT, Direction.DOWN, BODY_BOTTOMLEFT);
+        body(Direction.RIGHT, Direction.UP, BODY_TOPRIGHT);
+        body(Direction.RIGHT, Direction.DOWN, BODY_BOTTOMRIGHT);
+    }
+
+    /**
+     * Returns the name of the sprite's image file, without extension.
+     *
+     * @return the file name, e.g. "head_up"
+     */
+    public String fileName() {
+        return name().toLowerCase();
+    }
+
+    /**
+     * Returns the sprite of the head.
+     *
+     * @param toNeck the ordinal of the direction from the head to the next segment
+     * @return the head sprite facing away from the neck
+     */
+    public static Sprite head(int toNeck) {
+        return HEADS[toNeck];
+    }
+
+    /**
+     * Returns the sprite of the tail.
+     *
+     * @param toBody the ordinal of the direction from the tail to the previous segment
+     * @return the tail sprite pointing away from the body
+     */
+    public static Sprite tail(int toBody) {
+        return TAILS[toBody];
+    }
+
+    /**
+     * Returns the sprite of a body segment, straight or turning, from the directions of its two neighbours.
+     *
+     * @param toTail the ordinal of the direction from the segment to its neighbour on the tail side
+     * @param toHead the ordinal of the direction from the segment to its neighbour on the head side
+     * @return the body sprite connecting the two neighbours
+     */
+    public static Sprite body(int toTail, int toHead) {
+        return BODIES[toTail * DIRECTIONS + toHead];
+    }
+
+    /**
+     * Registers a body sprite for both orders of a pair of directions.
+     *
+     * @param a the direction to one neighbour
+     * @param b the direction to the other neighbour
+     * @param sprite the sprite connecting them
+     */
+    private static void body(Direction a, Direction b, Sprite sprite) {
+        BODIES[a.ordinal() * DIRECTIONS + b.ordinal()] = sprite;
+        BODIES[b.ordinal() * DIRECTIONS + a.ordinal()] = sprite;
+    }
+}
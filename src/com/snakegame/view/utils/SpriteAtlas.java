@@ -0,0 +1,58 @@
+package com.snakegame.view.utils;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Single image holding every sprite of the game side by side, in Sprite order.
+ * Drawing a sprite blits its region of the atlas, so rendering uses one texture source and no lookups by name.
+ *
+ * @author Alessandro Sorbara
+ */
+public class SpriteAtlas {
+
+    private final BufferedImage image;
+    private final int size;
+
+    /**
+     * Creates an atlas over an image of square sprites laid out in a single row.
+     *
+     * @param image the atlas image
+     * @param size the side of a sprite, in pixels
+     */
+    public SpriteAtlas(BufferedImage image, int size) {
+        this.image = image;
+        this.size = size;
+    }
+
+    /**
+     * Returns the atlas image.
+     *
+     * @return the image holding every sprite
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Returns the side of a sprite.
+     *
+     * @return the sprite size, in pixels
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Draws a sprite with its top left corner at the given position.
+     *
+     * @param g the Graphics context to draw on
+     * @param sprite the sprite to draw
+     * @param x the x-coordinate of the destination
+     * @param y the y-coordinate of the destination
+     */
+    public void draw(Graphics g, Sprite sprite, int x, int y) {
+        int sx = sprite.ordinal() * size;
+        g.drawImage(image, x, y, x + size, y + size, sx, 0, sx + size, size, null);
+    }
+}
@@ -1,6 +1,7 @@
 package com.snakegame.view.utils;
 
 import javax.imageio.ImageIO;
+import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -10,13 +11,16 @@ import java.util.Map;
 
 /**
  * Utility class for loading and managing sprite images used in the Snake game.
- * This class provides a static method to load all the required sprites from the
- * resources directory and return them as a map for easy access by name.
+ * This class provides static methods to load all the required sprites from the
+ * resources directory and return them as a map for easy access by name, or packed into a SpriteAtlas.
+ * Single sprites can also be loaded one by one and packed afterwards, so that they can be decoded in parallel.
  *
  * @author Alessandro Sorbara
  */
 public class SpriteLoader {
 
+    public static final int SPRITE_SIZE = 40;
+
     /**
      * Loads all the required sprite images from the resources.
      *
@@ -27,21 +31,9 @@ public class SpriteLoader {
         Map<String, BufferedImage> map = new HashMap<>();
 
         try {
-            map.put("apple", loadImage("/sprites/apple.png"));
-            map.put("body_bottomleft", loadImage("/sprites/body_bottomleft.png"));
-            map.put("body_bottomright", loadImage("/sprites/body_bottomright.png"));
-            map.put("body_horizontal", loadImage("/sprites/body_horizontal.png"));
-            map.put("body_topleft", loadImage("/sprites/body_topleft.png"));
-            map.put("body_topright", loadImage("/sprites/body_topright.png"));
-            map.put("body_vertical", loadImage("/sprites/body_vertical.png"));
-            map.put("head_down", loadImage("/sprites/head_down.png"));
-            map.put("head_left", loadImage("/sprites/head_left.png"));
-            map.put("head_right", loadImage("/sprites/head_right.png"));
-            map.put("head_up", loadImage("/sprites/head_up.png"));
-            map.put("tail_down", loadImage("/sprites/tail_down.png"));
-            map.put("tail_left", loadImage("/sprites/tail_left.png"));
-            map.put("tail_right", loadImage("/sprites/tail_right.png"));
-            map.put("tail_up", loadImage("/sprites/tail_up.png"));
+            for (Sprite sprite : Sprite.values()) {
+                map.put(sprite.fileName(), loadImage("/sprites/" + sprite.fileName() + ".png"));
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -49,6 +41,72 @@ public class SpriteLoader {
         return map;
     }
 
+    /**
+     * Loads all the required sprite images from the resources and packs them into a single atlas,
+     * side by side in Sprite order.
+     *
+     * @return the sprite atlas
+     */
+    public static SpriteAtlas loadAtlas() {
+        BufferedImage[] images = new BufferedImage[Sprite.values().length];
+
+        try {
+            for (Sprite sprite : Sprite.values()) images[sprite.ordinal()] = loadSprite(sprite);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        return packAtlas(images);
+    }
+
+    /**
+     * Loads the image of a single sprite from the resources.
+     *
+     * @param sprite the sprite to load
+     * @return the decoded image
+     * @throws IOException if the image cannot be read or the resource is not found
+     */
+    public static BufferedImage loadSprite(Sprite sprite) throws IOException {
+        return loadImage("/sprites/" + sprite.fileName() + ".png");
+    }
+
+    /**
+     * Packs the sprite images into a single atlas, side by side in Sprite order.
+     * The atlas is created in the pixel format of the default screen, so that drawing it needs no conversion.
+     * Missing images leave their slot transparent.
+     *
+     * @param images the sprite images, indexed by Sprite ordinal
+     * @return the sprite atlas
+     */
+    public static SpriteAtlas packAtlas(BufferedImage[] images) {
+        BufferedImage atlas = createCompatibleImage(images.length * SPRITE_SIZE, SPRITE_SIZE);
+        Graphics2D g = atlas.createGraphics();
+
+        try {
+            for (int i = 0; i < images.length; i++) {
+                if (images[i] != null) g.drawImage(images[i], i * SPRITE_SIZE, 0, null);
+            }
+        } finally {
+            g.dispose();
+        }
+
+        return new SpriteAtlas(atlas, SPRITE_SIZE);
+    }
+
+    /**
+     * Creates a translucent image in the pixel format of the default screen,
+     * or a plain ARGB image when there is no screen.
+     *
+     * @param width the width of the image
+     * @param height the height of the image
+     * @return the new, fully transparent image
+     */
+    public static BufferedImage createCompatibleImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless()) return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration()
+                .createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+
     /**
      * Loads a single image from the given resource path.
      *